@@ -0,0 +1,16 @@
+#!/usr/bin/env sh
+# Launches SafetyNet Alerts from the extracted layout, using the AppCDS archive
+# produced by the 'cds' build profile when it is present.
+# Extra arguments are passed to the application (e.g. --server.port=9090).
+DIR="$(cd "$(dirname "$0")" && pwd)"
+JAR="$DIR/@project.build.finalName@.jar"
+JSA="$DIR/application.jsa"
+
+if [ -f "$JSA" ]; then
+    CDS="-XX:SharedArchiveFile=$JSA -Xlog:cds=off -Xlog:cds+dynamic=off"
+else
+    echo "No CDS archive at $JSA, starting without it" >&2
+    CDS=""
+fi
+# shellcheck disable=SC2086
+exec java $CDS $JAVA_OPTS -jar "$JAR" "$@"
@@ -0,0 +1,30 @@
+#!/usr/bin/env sh
+# Measures time to a refreshed Spring context (spring.context.exit=onRefresh)
+# with and without the AppCDS archive, RUNS times each, and prints the medians.
+DIR="$(cd "$(dirname "$0")" && pwd)"
+JAR="$DIR/@project.build.finalName@.jar"
+JSA="$DIR/application.jsa"
+RUNS="${RUNS:-5}"
+WORK="$(mktemp -d)"
+trap 'rm -rf "$WORK"' EXIT
+
+run_ms() {
+    start=$(date +%s%N)
+    # shellcheck disable=SC2086
+    java $1 -Dspring.context.exit=onRefresh -Dsafetynet.warmup.enabled=false \
+        -Dsafetynet.data-file="file:$WORK/data.json" -Dlogging.file.name="$WORK/startup.log" \
+        -jar "$JAR" > /dev/null 2>&1
+    end=$(date +%s%N)
+    echo $(( (end - start) / 1000000 ))
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+without=$(i=0; while [ $i -lt "$RUNS" ]; do run_ms "-Xshare:auto"; i=$((i + 1)); done | median)
+with=$(i=0; while [ $i -lt "$RUNS" ]; do run_ms "-XX:SharedArchiveFile=$JSA"; i=$((i + 1)); done | median)
+
+echo "Startup to refreshed context, median of $RUNS runs:"
+echo "  without AppCDS archive: ${without} ms"
+echo "  with AppCDS archive:    ${with} ms"
@@ -0,0 +1,27 @@
+package com.safetynet.alerts.controller;
+
+import com.safetynet.alerts.service.Deadline;
+
+import java.time.Duration;
+
+/**
+ * Caller deadlines of the heavy endpoints ({@code /firestation?stationNumber},
+ * {@code /flood/stations} and the {@code /all} listings): a time budget in
+ * milliseconds, from the {@value #HEADER} header or the {@value #PARAM}
+ * query parameter (the smaller wins if both are given), counted from when the
+ * endpoint starts. A query still running when it passes is abandoned with
+ * {@code 504 Gateway Timeout}.
+ */
+final class Deadlines {
+
+    static final String HEADER = "X-Timeout-Ms";
+    static final String PARAM = "timeoutMs";
+
+    private Deadlines() {
+    }
+
+    static Deadline of(Long header, Long param) {
+        Long ms = header == null ? param : param == null ? header : Long.valueOf(Math.min(header, param));
+        return ms == null ? Deadline.NONE : Deadline.after(Duration.ofMillis(Math.max(0, ms)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.safetynet.alerts.controller;
+
+import com.safetynet.alerts.model.Versioned;
+
+import java.util.OptionalLong;
+
+/**
+ * Entity tags of {@link Versioned} records: the version stamp as a strong
+ * ETag, {@code "<version>"}. A {@code PUT} or {@code DELETE} whose
+ * {@code If-Match} carries it is applied only while the record is still at
+ * that version; otherwise it fails with {@code 412 Precondition Failed}.
+ */
+final class ETags {
+
+    /** No record has this version: stamps are positive. */
+    static final long NO_MATCH = -1;
+
+    private ETags() {
+    }
+
+    static String of(Versioned record) {
+        return of(record.getVersion());
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Version required by an {@code If-Match} header.
+     *
+     * @return empty when the request is unconditional (no header, or {@code *});
+     *         {@link #NO_MATCH} for weak tags, tag lists and tags not issued here
+     */
+    static OptionalLong expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) return OptionalLong.empty();
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) return OptionalLong.empty();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return OptionalLong.of(Long.parseLong(tag.substring(1, tag.length() - 1)));
+            } catch (NumberFormatException e) {
+                // not one of ours; falls through to NO_MATCH
+            }
+        }
+        return OptionalLong.of(NO_MATCH);
+    }
+}
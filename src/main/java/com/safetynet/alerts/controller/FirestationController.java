@@ -2,8 +2,10 @@ package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.Firestation;
 import com.safetynet.alerts.service.AdminService;
+import com.safetynet.alerts.service.Deadline;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -11,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 
 @RestController
 @RequestMapping("/firestation")
@@ -30,7 +33,7 @@ public class FirestationController {
         try {
             // AdminService.addFirestation throws on IO; repository should throw on duplicate or we can allow repo to decide.
             service.addFirestation(mapping);
-            return ResponseEntity.status(HttpStatus.CREATED).body(mapping);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(mapping)).body(mapping);
         } catch (IllegalArgumentException e) {
             // For invalid body (e.g., missing address or station)
             return ResponseEntity.badRequest().body(Map.of("code", "BAD_REQUEST", "message", e.getMessage()));
@@ -40,10 +43,11 @@ public class FirestationController {
         }
     }
 
-    // ---------- PUT /firestation?address=... (Update station-for-address) ----------
+    // ---------- PUT /firestation?address=... (Update station-for-address; If-Match optional) ----------
     @PutMapping(params = { "address" }, consumes = "application/json", produces = "application/json")
     public ResponseEntity<?> updateStation(
             @RequestParam("address") String address,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Firestation body) throws IOException {
         log.info("PUT /firestation address={} body={}", address, body);
         if (body == null) {
@@ -51,19 +55,26 @@ public class FirestationController {
         }
         // Build mapping for AdminService: address is the selector, station comes from body
         Firestation patch = new Firestation(address, body.getStation());
-        boolean ok = service.updateFirestation(patch);
+        OptionalLong expected = ETags.expectedVersion(ifMatch);
+        boolean ok = expected.isPresent()
+                ? service.updateFirestation(patch, expected.getAsLong())
+                : service.updateFirestation(patch);
         if (!ok) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("code", "NOT_FOUND", "message", "Mapping not found"));
         }
-        return ResponseEntity.ok(patch);
+        return ResponseEntity.ok().eTag(ETags.of(patch)).body(patch);
     }
 
-    // ---------- DELETE /firestation?address=... (Delete one address) ----------
+    // ---------- DELETE /firestation?address=... (Delete one address; If-Match optional) ----------
     @DeleteMapping(params = { "address" })
-    public ResponseEntity<?> deleteByAddress(@RequestParam("address") String address) throws IOException {
+    public ResponseEntity<?> deleteByAddress(@RequestParam("address") String address,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
         log.info("DELETE /firestation address={}", address);
-        boolean ok = service.deleteFirestation(address);
+        OptionalLong expected = ETags.expectedVersion(ifMatch);
+        boolean ok = expected.isPresent()
+                ? service.deleteFirestation(address, expected.getAsLong())
+                : service.deleteFirestation(address);
         if (!ok) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("code", "NOT_FOUND", "message", "Mapping not found"));
@@ -94,16 +105,20 @@ public class FirestationController {
     @GetMapping(params = { "address" }, produces = "application/json")
     public ResponseEntity<?> getByAddress(@RequestParam("address") String address) {
         var opt = service.getFirestationByAddress(address);
-        return opt.<ResponseEntity<?>>map(ResponseEntity::ok)
+        return opt.<ResponseEntity<?>>map(f -> ResponseEntity.ok().eTag(ETags.of(f)).body(f))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("code", "NOT_FOUND", "message", "Mapping not found")));
     }
 
     // ---------- GET /firestation/all ----------
     @GetMapping(value = "/all", produces = "application/json")
-    public ResponseEntity<List<Firestation>> getAll() {
+    public ResponseEntity<List<Firestation>> getAll(
+            @RequestHeader(value = Deadlines.HEADER, required = false) Long timeoutHeader,
+            @RequestParam(value = Deadlines.PARAM, required = false) Long timeoutMs) {
+        Deadline deadline = Deadlines.of(timeoutHeader, timeoutMs);
         var all = service.getAllFirestations();
-        return ResponseEntity.ok(all);  // <-- 200 OK with array (may be empty)
+        deadline.check();
+        return ResponseEntity.ok(deadline.guard(all));  // <-- 200 OK with array (may be empty)
     }
     
     
@@ -1,11 +1,15 @@
 package com.safetynet.alerts.controller;
 
+import com.safetynet.alerts.repository.VersionConflictException;
+import com.safetynet.alerts.service.DeadlineExceededException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -87,6 +91,60 @@ public class GlobalExceptionHandler {
                 .body(body(status, "Storage error", req.getRequestURI()));
     }
 
+    /**
+     * Conditional PUT/DELETE whose If-Match no longer names the current version
+     * of the record; the current ETag is returned so the client can re-read.
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<?> versionConflict(VersionConflictException ex, HttpServletRequest req) {
+        log.warn("Precondition failed: {}", ex.getMessage());
+        HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+        return ResponseEntity.status(status)
+                .eTag(ETags.of(ex.getCurrentVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(status, ex.getMessage(), req.getRequestURI()));
+    }
+
+    /**
+     * A query ran past the deadline its caller set ({@code X-Timeout-Ms} or
+     * {@code timeoutMs}) and was abandoned.
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<?> deadlineExceeded(DeadlineExceededException ex, HttpServletRequest req) {
+        log.warn("Deadline exceeded: {} {}", req.getRequestURI(), ex.getMessage());
+        HttpStatus status = HttpStatus.GATEWAY_TIMEOUT;
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(status, ex.getMessage(), req.getRequestURI()));
+    }
+
+    /**
+     * A response body that could not be written. A listing whose deadline
+     * passed while it was serialized arrives here, wrapped by Jackson.
+     */
+    @ExceptionHandler(HttpMessageNotWritableException.class)
+    public ResponseEntity<?> notWritable(HttpMessageNotWritableException ex, HttpServletRequest req) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof DeadlineExceededException d) return deadlineExceeded(d, req);
+        }
+        return generic(ex, req);
+    }
+
+    /**
+     * Admin writes against a read-only dataset: the mapped and columnar
+     * storage modes, and any store that does not take changes. Only reads are
+     * allowed, which the {@code Allow} header says.
+     */
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public ResponseEntity<?> readOnly(UnsupportedOperationException ex, HttpServletRequest req) {
+        log.error("Rejected write: {}", ex.getMessage());
+        HttpStatus status = HttpStatus.METHOD_NOT_ALLOWED;
+        return ResponseEntity.status(status)
+                .allow(HttpMethod.GET, HttpMethod.HEAD)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(status, ex.getMessage(), req.getRequestURI()));
+    }
+
     /**
      * Keep generic handler LAST so it doesn’t swallow more specific 4xx mappings.
      */
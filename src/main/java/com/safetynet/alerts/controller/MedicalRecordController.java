@@ -3,8 +3,10 @@ package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.MedicalRecord;
 import com.safetynet.alerts.service.AdminService;
+import com.safetynet.alerts.service.Deadline;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 
 @RestController
 @RequestMapping("/medicalRecord")
@@ -33,20 +36,21 @@ public class MedicalRecordController {
             return ResponseEntity.badRequest()
                     .body(Map.of("code", "BAD_REQUEST", "message", "firstName and lastName are required"));
         }
-        // Duplicate check
-        if (service.getMedicalRecord(m.getFirstName(), m.getLastName()).isPresent()) {
-            return ResponseEntity.status(HttpStatus.CONFLICT)
-                    .body(Map.of("code", "CONFLICT", "message", "Medical record already exists for given firstName and lastName"));
+        try {
+            service.addMedicalRecord(m);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(m)).body(m);
+        } catch (IllegalStateException e) {
+            // Duplicate name, detected by the repository as part of the insert
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("code", "CONFLICT", "message", e.getMessage()));
         }
-        service.addMedicalRecord(m);
-        return ResponseEntity.status(HttpStatus.CREATED).body(m);
     }
 
-    // ---------- PUT /medicalRecord?firstName&lastName (Update only; names immutable) ----------
+    // ---------- PUT /medicalRecord?firstName&lastName (Update only; names immutable; If-Match optional) ----------
     @PutMapping(params = { "firstName", "lastName" }, consumes = "application/json", produces = "application/json")
     public ResponseEntity<?> update(
             @RequestParam("firstName") String firstName,
             @RequestParam("lastName")  String lastName,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody MedicalRecord body) throws IOException {
         log.info("PUT /medicalRecord firstName={} lastName={} body={}", firstName, lastName, body);
 
@@ -59,21 +63,28 @@ public class MedicalRecordController {
         body.setFirstName(firstName);
         body.setLastName(lastName);
 
-        boolean ok = service.updateMedicalRecord(body);
+        OptionalLong expected = ETags.expectedVersion(ifMatch);
+        boolean ok = expected.isPresent()
+                ? service.updateMedicalRecord(body, expected.getAsLong())
+                : service.updateMedicalRecord(body);
         if (!ok) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("code", "NOT_FOUND", "message", "Medical record not found"));
         }
-        return ResponseEntity.ok(body);
+        return ResponseEntity.ok().eTag(ETags.of(body)).body(body);
     }
 
-    // ---------- DELETE /medicalRecord?firstName&lastName ----------
+    // ---------- DELETE /medicalRecord?firstName&lastName (If-Match optional) ----------
     @DeleteMapping(params = { "firstName", "lastName" })
     public ResponseEntity<?> delete(
             @RequestParam("firstName") String firstName,
-            @RequestParam("lastName")  String lastName) throws IOException {
+            @RequestParam("lastName")  String lastName,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
         log.info("DELETE /medicalRecord firstName={} lastName={}", firstName, lastName);
-        boolean removed = service.deleteMedicalRecord(firstName, lastName);
+        OptionalLong expected = ETags.expectedVersion(ifMatch);
+        boolean removed = expected.isPresent()
+                ? service.deleteMedicalRecord(firstName, lastName, expected.getAsLong())
+                : service.deleteMedicalRecord(firstName, lastName);
         if (!removed) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("code", "NOT_FOUND", "message", "Medical record not found"));
@@ -87,13 +98,18 @@ public class MedicalRecordController {
             @RequestParam("firstName") String firstName,
             @RequestParam("lastName")  String lastName) {
         var opt = service.getMedicalRecord(firstName, lastName);
-        return opt.<ResponseEntity<?>>map(ResponseEntity::ok)
+        return opt.<ResponseEntity<?>>map(m -> ResponseEntity.ok().eTag(ETags.of(m)).body(m))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("code", "NOT_FOUND", "message", "Medical record not found")));
     }
 
     @GetMapping(value = "/all", produces = "application/json")
-    public ResponseEntity<List<MedicalRecord>> getAll() {
-        return ResponseEntity.ok(service.getAllMedicalRecords());
+    public ResponseEntity<List<MedicalRecord>> getAll(
+            @RequestHeader(value = Deadlines.HEADER, required = false) Long timeoutHeader,
+            @RequestParam(value = Deadlines.PARAM, required = false) Long timeoutMs) {
+        Deadline deadline = Deadlines.of(timeoutHeader, timeoutMs);
+        var all = service.getAllMedicalRecords();
+        deadline.check();
+        return ResponseEntity.ok(deadline.guard(all));
     }
 }
\ No newline at end of file
@@ -1,15 +1,19 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.service.Deadline;
 import com.safetynet.alerts.service.PersonService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 
 /**
  * Handle Person Requests
@@ -32,11 +36,11 @@ public class PersonController {
 	 * @return  - Created Person Details
 	 */
 	@PostMapping(consumes = "application/json", produces = "application/json")
-	public ResponseEntity<?> addPerson(@RequestBody Person person) {
+	public ResponseEntity<?> addPerson(@RequestBody Person person) throws IOException {
 		log.info("POST /person body={}", person);
 		try {
 			Person created = service.addPerson(person);
-			return ResponseEntity.status(HttpStatus.CREATED).body(created);
+			return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(created)).body(created);
 		} catch (IllegalArgumentException e) { // invalid/missing fields or body
 			return ResponseEntity.badRequest().body(Map.of("code", "BAD_REQUEST", "message", e.getMessage()));
 		} catch (IllegalStateException e) { // duplicate (firstName+lastName)
@@ -45,14 +49,19 @@ public class PersonController {
 		}
 	}
 
-	// ---------- PUT /person?firstName&lastName (Update only) ----------
+	// ---------- PUT /person?firstName&lastName (Update only; If-Match optional) ----------
 	@PutMapping(params = { "firstName", "lastName" }, consumes = "application/json", produces = "application/json")
 	public ResponseEntity<?> updatePerson(@RequestParam("firstName") String firstName,
-			@RequestParam("lastName") String lastName, @RequestBody Person p) {
+			@RequestParam("lastName") String lastName,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch, @RequestBody Person p)
+			throws IOException {
 		log.warn(">>> Entered updatePerson(RequestParam) handler");
 		try {
-			Person updated = service.updatePerson(firstName, lastName, p);
-			return ResponseEntity.ok(updated);
+			OptionalLong expected = ETags.expectedVersion(ifMatch);
+			Person updated = expected.isPresent()
+					? service.updatePerson(firstName, lastName, p, expected.getAsLong())
+					: service.updatePerson(firstName, lastName, p);
+			return ResponseEntity.ok().eTag(ETags.of(updated)).body(updated);
 		} catch (IllegalArgumentException e) {
 			if ("Person not found".equals(e.getMessage())) {
 				return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -62,12 +71,16 @@ public class PersonController {
 		}
 	}
 
-	// ---------- DELETE /person?firstName&lastName ----------
+	// ---------- DELETE /person?firstName&lastName (If-Match optional) ----------
 	@DeleteMapping(params = { "firstName", "lastName" })
 	public ResponseEntity<?> deletePerson(@RequestParam("firstName") String firstName,
-			@RequestParam("lastName") String lastName) {
+			@RequestParam("lastName") String lastName,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
 		log.info("DELETE /person firstName={} lastName={}", firstName, lastName);
-		boolean ok = service.deletePerson(firstName, lastName);
+		OptionalLong expected = ETags.expectedVersion(ifMatch);
+		boolean ok = expected.isPresent()
+				? service.deletePerson(firstName, lastName, expected.getAsLong())
+				: service.deletePerson(firstName, lastName);
 		if (!ok) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND)
 					.body(Map.of("code", "NOT_FOUND", "message", "Person not found"));
@@ -81,7 +94,7 @@ public class PersonController {
 			@RequestParam("lastName") String lastName) {
 		log.info("GET /person firstName={} lastName={}", firstName, lastName);
 		var personOpt = service.getPerson(firstName, lastName);
-		return personOpt.<ResponseEntity<?>>map(ResponseEntity::ok).orElseGet(() -> ResponseEntity
+		return personOpt.<ResponseEntity<?>>map(p -> ResponseEntity.ok().eTag(ETags.of(p)).body(p)).orElseGet(() -> ResponseEntity
 				.status(HttpStatus.NOT_FOUND).body(Map.of("code", "NOT_FOUND", "message", "Person not found")));
 	}
 
@@ -94,9 +107,13 @@ public class PersonController {
 
 	// ---------- GET /person/all (for quick inspection) ----------
 	@GetMapping("/all")
-	public ResponseEntity<List<Person>> getAllPersons() {
+	public ResponseEntity<List<Person>> getAllPersons(
+			@RequestHeader(value = Deadlines.HEADER, required = false) Long timeoutHeader,
+			@RequestParam(value = Deadlines.PARAM, required = false) Long timeoutMs) {
 		log.info("GET /person/all");
+		Deadline deadline = Deadlines.of(timeoutHeader, timeoutMs);
 		List<Person> people = service.getAllPersons();
-		return ResponseEntity.ok(people);
+		deadline.check();
+		return ResponseEntity.ok(deadline.guard(people));
 	}
 }
\ No newline at end of file
@@ -2,6 +2,7 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.service.AlertService;
+import com.safetynet.alerts.service.Deadline;
 import com.safetynet.alerts.repository.DataRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,16 +17,17 @@ public class QueryController {
 	private final AlertService service;
 	private final DataRepository repo;
 
-	public QueryController(AlertService s, DataRepository r) throws Exception {
+	public QueryController(AlertService s, DataRepository r) {
 		this.service = s;
 		this.repo = r;
-		this.repo.load();
 	}
 
 	@GetMapping("/firestation")
-	public ResponseEntity<?> firestation(@RequestParam("stationNumber") int n) {
+	public ResponseEntity<?> firestation(@RequestParam("stationNumber") int n,
+			@RequestHeader(value = Deadlines.HEADER, required = false) Long timeoutHeader,
+			@RequestParam(value = Deadlines.PARAM, required = false) Long timeoutMs) {
 		log.info("GET /firestation?stationNumber={}", n);
-		Object res = service.firestation(n);
+		Object res = service.firestation(n, Deadlines.of(timeoutHeader, timeoutMs));
 		log.info("Response: {}", res);
 		return ResponseEntity.ok(res);
 	}
@@ -55,11 +57,14 @@ public class QueryController {
 	}
 
 	@GetMapping("/flood/stations")
-	public ResponseEntity<?> flood(@RequestParam("stations") String csv) {
+	public ResponseEntity<?> flood(@RequestParam("stations") String csv,
+			@RequestHeader(value = Deadlines.HEADER, required = false) Long timeoutHeader,
+			@RequestParam(value = Deadlines.PARAM, required = false) Long timeoutMs) {
 		log.info("GET /flood/stations?stations={}", csv);
+		Deadline deadline = Deadlines.of(timeoutHeader, timeoutMs);
 		List<Integer> s = Arrays.stream(csv.split(",")).map(String::trim).filter(v -> !v.isEmpty())
 				.map(Integer::parseInt).collect(Collectors.toList());
-		Object res = service.floodStations(s);
+		Object res = service.floodStations(s, deadline);
 		log.info("Response: {}", res);
 		return ResponseEntity.ok(res);
 	}
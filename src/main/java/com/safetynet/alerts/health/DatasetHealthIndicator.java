@@ -0,0 +1,34 @@
+package com.safetynet.alerts.health;
+
+import com.safetynet.alerts.repository.DataRepository;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports {@code dataset} as UP once {@link DataRepository} has loaded the data
+ * file and built its indexes. Part of the readiness group
+ * ({@code /actuator/health/readiness}), so a node whose load failed is never
+ * marked ready even though the context started.
+ */
+@Component("dataset")
+public class DatasetHealthIndicator implements HealthIndicator {
+
+    private final DataRepository repo;
+
+    public DatasetHealthIndicator(DataRepository repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public Health health() {
+        if (!repo.isLoaded()) {
+            return Health.outOfService().withDetail("reason", "dataset not loaded").build();
+        }
+        return Health.up()
+                .withDetail("persons", repo.getPersons().size())
+                .withDetail("firestations", repo.getFirestations().size())
+                .withDetail("medicalrecords", repo.getMedicalrecords().size())
+                .build();
+    }
+}
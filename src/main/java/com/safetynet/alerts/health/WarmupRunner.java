@@ -0,0 +1,169 @@
+package com.safetynet.alerts.health;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import com.safetynet.alerts.service.AlertService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * JIT warm-up stage run before the application reports ready.
+ * <p>
+ * Replays a synthetic workload of every {@link AlertService} endpoint over keys
+ * sampled from the loaded dataset (stations, addresses, last names, cities) and
+ * serializes each result with the application's {@link ObjectMapper}, in rounds
+ * of {@code safetynet.warmup.round-size} calls. It stops once JIT compilation has
+ * settled (less than {@code settle-threshold} of compile time in
+ * {@code settle-rounds} consecutive rounds) or the {@code budget} is spent.
+ * </p>
+ * <p>
+ * Spring Boot flips readiness to {@code ACCEPTING_TRAFFIC} only after all
+ * {@link ApplicationRunner}s return; the {@code warmup} health component also
+ * stays OUT_OF_SERVICE until then. Warm-up calls go through the normal query
+ * meters, which is harmless: their sliding windows age them out.
+ * </p>
+ */
+@Component("warmup")
+public class WarmupRunner implements ApplicationRunner, HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private static final int SAMPLE_SIZE = 256;
+
+    private final AlertService service;
+    private final DataRepository repo;
+    private final ObjectMapper mapper;
+
+    @Value("${safetynet.warmup.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${safetynet.warmup.budget:PT15S}")
+    private Duration budget = Duration.ofSeconds(15);
+
+    @Value("${safetynet.warmup.round-size:500}")
+    private int roundSize = 500;
+
+    @Value("${safetynet.warmup.settle-rounds:3}")
+    private int settleRounds = 3;
+
+    @Value("${safetynet.warmup.settle-threshold:5ms}")
+    private Duration settleThreshold = Duration.ofMillis(5);
+
+    private volatile boolean done;
+    private volatile String summary = "not started";
+
+    public WarmupRunner(AlertService service, DataRepository repo, ObjectMapper mapper) {
+        this.service = service;
+        this.repo = repo;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /** Runs the warm-up rounds; returns the number of calls made. */
+    public long warmUp() {
+        if (!enabled) {
+            summary = "disabled";
+            done = true;
+            return 0;
+        }
+        Random rnd = new Random(42);
+        List<Integer> stations = sample(repo.getFirestations(), Firestation::getStation, rnd);
+        List<String> addresses = sample(repo.getPersons(), Person::getAddress, rnd);
+        List<String> lastNames = sample(repo.getPersons(), Person::getLastName, rnd);
+        List<String> cities = sample(repo.getPersons(), Person::getCity, rnd);
+        if (stations.isEmpty() || addresses.isEmpty()) {
+            summary = "skipped: empty dataset";
+            done = true;
+            return 0;
+        }
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean canMonitor = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        long calls = 0;
+        int rounds = 0;
+        int quiet = 0;
+        long compiled = canMonitor ? jit.getTotalCompilationTime() : 0;
+        while (System.nanoTime() < deadline && quiet < settleRounds) {
+            for (int i = 0; i < roundSize; i++) {
+                serialize(call(calls++, rnd, stations, addresses, lastNames, cities));
+            }
+            rounds++;
+            if (canMonitor) {
+                long now = jit.getTotalCompilationTime();
+                quiet = now - compiled < settleThreshold.toMillis() ? quiet + 1 : 0;
+                compiled = now;
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        summary = String.format("%d calls in %d rounds, %d ms, %s", calls, rounds, elapsedMs,
+                quiet >= settleRounds ? "compilation settled" : "budget exhausted");
+        log.info("JIT warm-up: {}", summary);
+        done = true;
+        return calls;
+    }
+
+    @Override
+    public Health health() {
+        return (done ? Health.up() : Health.outOfService()).withDetail("warmup", summary).build();
+    }
+
+    private Object call(long n, Random rnd, List<Integer> stations, List<String> addresses,
+                        List<String> lastNames, List<String> cities) {
+        int station = pick(stations, rnd);
+        String address = pick(addresses, rnd);
+        return switch ((int) (n % 7)) {
+            case 0 -> service.firestation(station);
+            case 1 -> service.childAlert(address);
+            case 2 -> service.phoneAlert(station);
+            case 3 -> service.fire(address);
+            case 4 -> service.floodStations(List.of(station, pick(stations, rnd)));
+            case 5 -> service.personInfo(pick(lastNames, rnd));
+            default -> service.communityEmail(pick(cities, rnd));
+        };
+    }
+
+    private void serialize(Object result) {
+        try {
+            mapper.writeValueAsBytes(result);
+        } catch (Exception e) {
+            log.debug("Warm-up serialization failed", e);
+        }
+    }
+
+    private static <T, K> List<K> sample(List<T> items, Function<T, K> key, Random rnd) {
+        List<K> out = new ArrayList<>();
+        if (items.isEmpty()) return out;
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            K k = key.apply(items.get(rnd.nextInt(items.size())));
+            if (k != null) out.add(k);
+        }
+        return out.stream().distinct().toList();
+    }
+
+    private static <T> T pick(List<T> values, Random rnd) {
+        return values.get(rnd.nextInt(values.size()));
+    }
+}
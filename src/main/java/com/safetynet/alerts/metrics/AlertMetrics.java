@@ -0,0 +1,130 @@
+package com.safetynet.alerts.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hot-path meters for the query service and the data repository.
+ * <p>
+ * Every timer and summary publishes p50/p99/p999, computed client side from an
+ * HDR histogram over a sliding window, which the Prometheus endpoint exposes as
+ * {@code quantile} series. Meters are cached per operation so recording does
+ * not rebuild meter ids on each call.
+ * </p>
+ *
+ * <h2>Exposed meters</h2>
+ * <ul>
+ *   <li>{@code safetynet.alerts.query} / {@code safetynet.alerts.result.size}: per endpoint of {@code AlertService}</li>
+ *   <li>{@code safetynet.repository.operation} / {@code safetynet.repository.result.size}: load, save, find*, mutations</li>
+ *   <li>{@code safetynet.repository.lock.wait}: time spent waiting for the repository locks ({@code op=engine} for the engine lock of admin changes)</li>
+ *   <li>{@code safetynet.alerts.coalesced}: queries answered with the result of an identical query already running, per endpoint</li>
+ *   <li>{@code safetynet.admission.wait} / {@code safetynet.admission.rejected}: time requests waited for a slot, and requests shed, per request class (and {@code reason})</li>
+ * </ul>
+ * HTTP-level latency (controllers, including serialization) is covered by
+ * Spring's {@code http.server.requests}, configured in {@code application.yml}.
+ */
+@Component
+public class AlertMetrics {
+
+    public static final String QUERY = "safetynet.alerts.query";
+    public static final String QUERY_SIZE = "safetynet.alerts.result.size";
+    public static final String REPOSITORY = "safetynet.repository.operation";
+    public static final String REPOSITORY_SIZE = "safetynet.repository.result.size";
+    public static final String LOCK_WAIT = "safetynet.repository.lock.wait";
+    public static final String COALESCED = "safetynet.alerts.coalesced";
+    public static final String ADMISSION_WAIT = "safetynet.admission.wait";
+    public static final String ADMISSION_REJECTED = "safetynet.admission.rejected";
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public AlertMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Metrics bound to a private registry; used when the repository or service
+     * is created outside of Spring (unit tests, benchmarks).
+     */
+    public static AlertMetrics standalone() {
+        return new AlertMetrics(new SimpleMeterRegistry());
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Times a query endpoint and records the size of its result.
+     *
+     * @param endpoint endpoint tag (e.g. {@code fire})
+     * @param query    the computation
+     * @param sizer    derives the result size from the returned value
+     */
+    public <T> T query(String endpoint, Supplier<T> query, ToIntFunction<T> sizer) {
+        long start = System.nanoTime();
+        T result = query.get();
+        timer(QUERY, "endpoint", endpoint).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        summary(QUERY_SIZE, "endpoint", endpoint).record(sizer.applyAsInt(result));
+        return result;
+    }
+
+    public Timer repository(String op) {
+        return timer(REPOSITORY, "op", op);
+    }
+
+    public void repositoryResultSize(String op, int size) {
+        summary(REPOSITORY_SIZE, "op", op).record(size);
+    }
+
+    public void lockWait(String op, long nanos) {
+        timer(LOCK_WAIT, "op", op).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Counts a query that waited for an identical one instead of computing. */
+    public void coalesced(String endpoint) {
+        counters.computeIfAbsent(COALESCED + '|' + endpoint, k -> Counter.builder(COALESCED)
+                .tag("endpoint", endpoint)
+                .register(registry)).increment();
+    }
+
+    public void admissionWait(String requestClass, long nanos) {
+        timer(ADMISSION_WAIT, "class", requestClass).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Counts a request shed by admission control; {@code reason} is {@code queue-full}, {@code evicted} or {@code timeout}. */
+    public void admissionRejected(String requestClass, String reason) {
+        counters.computeIfAbsent(ADMISSION_REJECTED + '|' + requestClass + '|' + reason, k -> Counter.builder(ADMISSION_REJECTED)
+                .tag("class", requestClass)
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    private Timer timer(String name, String tag, String value) {
+        return timers.computeIfAbsent(name + '|' + value, k -> Timer.builder(name)
+                .tag(tag, value)
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+
+    private DistributionSummary summary(String name, String tag, String value) {
+        return summaries.computeIfAbsent(name + '|' + value, k -> DistributionSummary.builder(name)
+                .tag(tag, value)
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+}
@@ -1,9 +1,15 @@
 
 package com.safetynet.alerts.model;
 
-public class Firestation {
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Objects;
+
+public class Firestation implements Versioned {
 	private String address;
 	private int station;
+	// maintained by the repository; not serialized, not part of equals
+	private long version;
 
 	public Firestation() {
 	}
@@ -28,4 +34,27 @@ public class Firestation {
 	public void setStation(int s) {
 		station = s;
 	}
+
+	@JsonIgnore
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public void setVersion(long v) {
+		version = v;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Firestation f)) return false;
+		return station == f.station && Objects.equals(address, f.address);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(address, station);
+	}
 }
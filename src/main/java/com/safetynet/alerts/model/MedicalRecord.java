@@ -1,14 +1,19 @@
 
 package com.safetynet.alerts.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
+import java.util.Objects;
 
-public class MedicalRecord {
+public class MedicalRecord implements Versioned {
 	private String firstName;
 	private String lastName;
 	private String birthdate;
 	private List<String> medications;
 	private List<String> allergies;
+	// maintained by the repository; not serialized, not part of equals
+	private long version;
 
 	public MedicalRecord() {
 	}
@@ -60,4 +65,30 @@ public class MedicalRecord {
 	public void setAllergies(List<String> v) {
 		allergies = v;
 	}
+
+	@JsonIgnore
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public void setVersion(long v) {
+		version = v;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof MedicalRecord m)) return false;
+		return Objects.equals(getFirstName(), m.getFirstName()) && Objects.equals(getLastName(), m.getLastName())
+				&& Objects.equals(getBirthdate(), m.getBirthdate())
+				&& Objects.equals(getMedications(), m.getMedications())
+				&& Objects.equals(getAllergies(), m.getAllergies());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(getFirstName(), getLastName(), getBirthdate(), getMedications(), getAllergies());
+	}
 }
@@ -1,7 +1,11 @@
 
 package com.safetynet.alerts.model;
 
-public class Person {
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Objects;
+
+public class Person implements Versioned {
 	private String firstName;
 	private String lastName;
 	private String address;
@@ -9,6 +13,8 @@ public class Person {
 	private String zip;
 	private String phone;
 	private String email;
+	// maintained by the repository; not serialized, not part of equals
+	private long version;
 
 	public Person() {
 	}
@@ -79,4 +85,30 @@ public class Person {
 	public void setEmail(String v) {
 		this.email = v;
 	}
+
+	@JsonIgnore
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public void setVersion(long v) {
+		version = v;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Person p)) return false;
+		return Objects.equals(getFirstName(), p.getFirstName()) && Objects.equals(getLastName(), p.getLastName())
+				&& Objects.equals(getAddress(), p.getAddress()) && Objects.equals(getCity(), p.getCity())
+				&& Objects.equals(getZip(), p.getZip()) && Objects.equals(getPhone(), p.getPhone())
+				&& Objects.equals(getEmail(), p.getEmail());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(getFirstName(), getLastName(), getAddress(), getCity(), getZip(), getPhone(), getEmail());
+	}
 }
@@ -0,0 +1,15 @@
+package com.safetynet.alerts.model;
+
+/**
+ * A record with a version stamp maintained by the repository. Every write
+ * stores the record with a fresh stamp, so conditional updates and deletes
+ * can compare it with the version a client read; the REST layer exposes it
+ * as the {@code ETag}. The stamp is neither serialized nor part of
+ * {@code equals}.
+ */
+public interface Versioned {
+
+	long getVersion();
+
+	void setVersion(long version);
+}
@@ -0,0 +1,84 @@
+package com.safetynet.alerts.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls {@link DataRepository#rollover()} shortly after every midnight, so
+ * the households where somebody has a birthday are rebuilt before the first
+ * request of the day rather than by it.
+ * <p>
+ * The next run is computed from the wall clock after each run, so it stays
+ * on midnight across daylight saving changes.
+ * </p>
+ */
+@Component
+public class AgeRolloverScheduler implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AgeRolloverScheduler.class);
+
+    // Past midnight by this much, so that the day has changed on every clock reading.
+    private static final Duration MARGIN = Duration.ofSeconds(1);
+
+    private final DataRepository repo;
+
+    @Value("${safetynet.rollover.enabled:true}")
+    private boolean enabled = true;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public AgeRolloverScheduler(DataRepository repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "age-rollover");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        scheduleNext();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void scheduleNext() {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime next = now.toLocalDate().plusDays(1).atStartOfDay(now.getZone()).plus(MARGIN);
+        scheduler.schedule(this::run, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            int rebuilt = repo.rollover();
+            log.info("Ages rolled over to {}: {} households rebuilt", LocalDate.now(), rebuilt);
+        } catch (RuntimeException e) {
+            log.warn("Age rollover failed", e);
+        } finally {
+            if (running) scheduleNext();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.safetynet.alerts.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * B+tree of byte-array keys (unsigned lexicographic order) to byte-array
+ * values, stored in the pages of a {@link PageFile}. The root page id lives in
+ * a meta slot so several trees can share one file.
+ * <p>
+ * Page layout: {@code type:byte, count:short, link:int}, then the entries.
+ * Leaves hold {@code (klen:short, key, vlen:short, value)} and link to the next
+ * leaf; inner nodes hold {@code (klen:short, key, child:int)} and link to their
+ * leftmost child. A node that outgrows its page is split at its byte midpoint.
+ * Removal does not merge: a leaf may become empty, separators stay valid and
+ * the space is reclaimed when the file is rebuilt.
+ * </p>
+ */
+final class BPlusTree {
+
+    /** Upper bound of key + value so that both halves of a split fit a page. */
+    static final int MAX_ENTRY = 2000;
+    static final int MAX_KEY = 255;
+
+    private static final byte LEAF = 1;
+    private static final byte INNER = 2;
+    private static final int HEADER = 7;
+
+    private final PageFile pages;
+    private final int rootSlot;
+
+    private BPlusTree(PageFile pages, int rootSlot) {
+        this.pages = pages;
+        this.rootSlot = rootSlot;
+    }
+
+    /** Creates an empty tree whose root id is kept in {@code rootSlot}. */
+    static BPlusTree create(PageFile pages, int rootSlot) throws IOException {
+        int root = pages.allocate();
+        pages.write(root, new Node(true).encode());
+        pages.setMeta(rootSlot, root);
+        return new BPlusTree(pages, rootSlot);
+    }
+
+    static BPlusTree open(PageFile pages, int rootSlot) {
+        return new BPlusTree(pages, rootSlot);
+    }
+
+    byte[] get(byte[] key) throws IOException {
+        Node leaf = node(findLeaf(key));
+        int i = leaf.search(key);
+        return i >= 0 ? leaf.values.get(i) : null;
+    }
+
+    /**
+     * Inserts or replaces the value of {@code key}.
+     *
+     * @return {@code true} if the key was new
+     */
+    boolean put(byte[] key, byte[] value) throws IOException {
+        if (key.length > MAX_KEY || key.length + value.length > MAX_ENTRY) {
+            throw new IllegalArgumentException("Entry too large for a page: " + (key.length + value.length) + " bytes");
+        }
+        int root = (int) pages.meta(rootSlot);
+        boolean[] added = new boolean[1];
+        Split split = insert(root, key, value, added);
+        if (split != null) {
+            Node newRoot = new Node(false);
+            newRoot.link = root;
+            newRoot.keys.add(split.key());
+            newRoot.children.add(split.right());
+            int id = pages.allocate();
+            pages.write(id, newRoot.encode());
+            pages.setMeta(rootSlot, id);
+        }
+        return added[0];
+    }
+
+    /** @return {@code true} if {@code key} was present */
+    boolean remove(byte[] key) throws IOException {
+        int id = findLeaf(key);
+        Node leaf = node(id);
+        int i = leaf.search(key);
+        if (i < 0) return false;
+        leaf.keys.remove(i);
+        leaf.values.remove(i);
+        pages.write(id, leaf.encode());
+        return true;
+    }
+
+    /** Entries with keys starting with {@code prefix}, in key order, at most {@code limit}. */
+    List<byte[][]> scan(byte[] prefix, int limit) throws IOException {
+        return scan(prefix, prefix, false, limit);
+    }
+
+    /**
+     * Entries with keys starting with {@code prefix} and at or after {@code from}
+     * ({@code from} itself excluded when {@code exclusive}), in key order, at most
+     * {@code limit}. Each entry is {@code {key, value}}.
+     */
+    List<byte[][]> scan(byte[] prefix, byte[] from, boolean exclusive, int limit) throws IOException {
+        List<byte[][]> out = new ArrayList<>();
+        Node leaf = node(findLeaf(from));
+        int i = leaf.search(from);
+        if (i < 0) i = -i - 1;
+        else if (exclusive) i++;
+        while (out.size() < limit) {
+            if (i >= leaf.keys.size()) {
+                if (leaf.link == 0) break;
+                leaf = node(leaf.link);
+                i = 0;
+                continue;
+            }
+            byte[] k = leaf.keys.get(i);
+            if (!startsWith(k, prefix)) break;
+            out.add(new byte[][] {k, leaf.values.get(i)});
+            i++;
+        }
+        return out;
+    }
+
+    // -------------- Internals --------------
+
+    private record Split(byte[] key, int right) {
+    }
+
+    private int findLeaf(byte[] key) throws IOException {
+        int id = (int) pages.meta(rootSlot);
+        Node n = node(id);
+        while (!n.leaf) {
+            id = n.child(n.childIndex(key));
+            n = node(id);
+        }
+        return id;
+    }
+
+    private Split insert(int id, byte[] key, byte[] value, boolean[] added) throws IOException {
+        Node n = node(id);
+        if (n.leaf) {
+            int i = n.search(key);
+            if (i >= 0) {
+                n.values.set(i, value);
+            } else {
+                n.keys.add(-i - 1, key);
+                n.values.add(-i - 1, value);
+                added[0] = true;
+            }
+        } else {
+            int ci = n.childIndex(key);
+            Split s = insert(n.child(ci), key, value, added);
+            if (s == null) return null;
+            n.keys.add(ci, s.key());
+            n.children.add(ci, s.right());
+        }
+        if (n.size() <= PageFile.PAGE_SIZE) {
+            pages.write(id, n.encode());
+            return null;
+        }
+        return split(id, n);
+    }
+
+    private Split split(int id, Node n) throws IOException {
+        int half = n.size() / 2;
+        int at = 0;
+        for (int bytes = HEADER; at < n.keys.size() - 1 && bytes < half; at++) bytes += n.entrySize(at);
+        Node right = new Node(n.leaf);
+        int rightId = pages.allocate();
+        byte[] separator;
+        if (n.leaf) {
+            right.keys.addAll(n.keys.subList(at, n.keys.size()));
+            right.values.addAll(n.values.subList(at, n.values.size()));
+            right.link = n.link;
+            n.link = rightId;
+            separator = right.keys.get(0);
+        } else {
+            // keys[at] moves up; its child becomes the right node's leftmost child
+            separator = n.keys.get(at);
+            right.link = n.children.get(at);
+            right.keys.addAll(n.keys.subList(at + 1, n.keys.size()));
+            right.children.addAll(n.children.subList(at + 1, n.children.size()));
+            n.keys.subList(at, n.keys.size()).clear();
+            n.children.subList(at, n.children.size()).clear();
+        }
+        if (n.leaf) {
+            n.keys.subList(at, n.keys.size()).clear();
+            n.values.subList(at, n.values.size()).clear();
+        }
+        pages.write(id, n.encode());
+        pages.write(rightId, right.encode());
+        return new Split(separator, rightId);
+    }
+
+    private Node node(int id) throws IOException {
+        return Node.decode(pages.read(id));
+    }
+
+    static int compare(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Decoded page. Inner nodes: child {@code i} ({@link #child}) holds the keys
+     * below {@code keys[i]}; {@code link} is child 0 and {@code children[i]} is
+     * child {@code i + 1}.
+     */
+    private static final class Node {
+        final boolean leaf;
+        int link;
+        final List<byte[]> keys = new ArrayList<>();
+        final List<byte[]> values = new ArrayList<>();
+        final List<Integer> children = new ArrayList<>();
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        int search(byte[] key) {
+            int lo = 0, hi = keys.size() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(keys.get(mid), key);
+                if (c < 0) lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        /** Index of the child subtree that may hold {@code key}. */
+        int childIndex(byte[] key) {
+            int i = search(key);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        int child(int i) {
+            return i == 0 ? link : children.get(i - 1);
+        }
+
+        int entrySize(int i) {
+            return 2 + keys.get(i).length + (leaf ? 2 + values.get(i).length : 4);
+        }
+
+        int size() {
+            int size = HEADER;
+            for (int i = 0; i < keys.size(); i++) size += entrySize(i);
+            return size;
+        }
+
+        byte[] encode() {
+            byte[] page = new byte[PageFile.PAGE_SIZE];
+            ByteBuffer buf = ByteBuffer.wrap(page);
+            buf.put(leaf ? LEAF : INNER).putShort((short) keys.size()).putInt(link);
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] k = keys.get(i);
+                buf.putShort((short) k.length).put(k);
+                if (leaf) {
+                    byte[] v = values.get(i);
+                    buf.putShort((short) v.length).put(v);
+                } else {
+                    buf.putInt(children.get(i));
+                }
+            }
+            return page;
+        }
+
+        static Node decode(byte[] page) {
+            ByteBuffer buf = ByteBuffer.wrap(page);
+            Node n = new Node(buf.get() == LEAF);
+            int count = buf.getShort() & 0xFFFF;
+            n.link = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] k = new byte[buf.getShort() & 0xFFFF];
+                buf.get(k);
+                n.keys.add(k);
+                if (n.leaf) {
+                    byte[] v = new byte[buf.getShort() & 0xFFFF];
+                    buf.get(v);
+                    n.values.add(v);
+                } else {
+                    n.children.add(buf.getInt());
+                }
+            }
+            return n;
+        }
+    }
+}
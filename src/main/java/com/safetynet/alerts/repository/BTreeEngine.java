@@ -0,0 +1,72 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@code btree} engine: the dataset lives in {@code <data-file>.btree}
+ * ({@link BTreeStore}) with at most {@code safetynet.storage.btree.cache-pages}
+ * pages on the heap. A change writes only the pages it touched; the data
+ * file is the seed and is not rewritten. A reload builds the replacement in
+ * {@code <data-file>.btree.next}, which is renamed over the live file only
+ * once the reload has been swapped in.
+ */
+final class BTreeEngine implements StoreEngine {
+
+    private final ObjectMapper mapper;
+    private final int cachePages;
+    private File bin;
+    private BTreeStore store;
+
+    BTreeEngine(ObjectMapper mapper, int cachePages) {
+        this.mapper = mapper;
+        this.cachePages = cachePages;
+    }
+
+    @Override
+    public CompactStore openStore(File dataFile) throws IOException {
+        bin = file(dataFile);
+        store = BTreeStore.openOrBuild(dataFile, bin, mapper, cachePages);
+        return store;
+    }
+
+    /** Builds into {@code <data-file>.btree.next}, so the current store's file and log stay untouched. */
+    @Override
+    public CompactStore buildStore(File dataFile) throws IOException {
+        return BTreeStore.buildAndOpen(dataFile, new File(file(dataFile).getPath() + ".next"), mapper, cachePages);
+    }
+
+    @Override
+    public void adopt(CompactStore next) throws IOException {
+        ((BTreeStore) next).moveTo(bin);
+        store.close();
+        store = (BTreeStore) next;
+    }
+
+    @Override
+    public void discard(CompactStore next) throws IOException {
+        ((BTreeStore) next).discard();
+    }
+
+    private static File file(File dataFile) {
+        return new File(dataFile.getPath() + ".btree");
+    }
+
+    @Override
+    public List<Change> open(File dataFile) {
+        return List.of();
+    }
+
+    @Override
+    public void commit(Change change, SnapshotWriter snapshot) throws IOException {
+        store.flush();
+    }
+
+    @Override
+    public void flush(SnapshotWriter snapshot) throws IOException {
+        store.flush();
+    }
+}
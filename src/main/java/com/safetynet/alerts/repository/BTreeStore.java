@@ -0,0 +1,630 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Writable {@link CompactStore} on disk: B+trees in one {@link PageFile}
+ * ({@code <data-file>.btree}) hold the records and their indexes, and only a
+ * bounded page cache lives on the heap.
+ * <p>
+ * Each entity has a primary tree keyed by row id (dataset order) and secondary
+ * trees of {@code key \0 rowId} entries: persons by normalized name and by
+ * normalized address, medical records by name, firestations by address and by
+ * station. Each record is stored with its {@linkplain Versioned version stamp}.
+ * A change touches a handful of pages in each affected tree and is
+ * made durable by {@link #flush()}; the JSON file is only read to build the
+ * store and again when its stamp changes.
+ * </p>
+ * <p>
+ * Access is serialized on the store. Records handed out are detached copies;
+ * list views read the primary tree in batches and are weakly consistent under
+ * concurrent changes.
+ * </p>
+ */
+final class BTreeStore implements CompactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BTreeStore.class);
+
+    // Meta slots: tree roots, then per-entity row counters and counts, then the source stamp.
+    private static final int PERSONS = 0, PERSON_NAME = 1, PERSON_ADDRESS = 2, MEDICAL = 3, MEDICAL_NAME = 4,
+            STATIONS = 5, STATION_ADDRESS = 6, STATION_NUMBER = 7;
+    private static final int NEXT_ROW = 8, COUNT = 11, SOURCE_SIZE = 14, SOURCE_MODIFIED = 15, VERSION = 16;
+    private static final int FORMAT = 2;
+    private static final int P = 0, M = 1, S = 2;
+
+    private static final int BATCH = 256;
+    private static final byte[] NONE = new byte[0];
+
+    private final PageFile file;
+    private final BPlusTree persons, personName, personAddress, medical, medicalName,
+            stations, stationAddress, stationNumber;
+
+    private BTreeStore(PageFile file) {
+        this.file = file;
+        persons = BPlusTree.open(file, PERSONS);
+        personName = BPlusTree.open(file, PERSON_NAME);
+        personAddress = BPlusTree.open(file, PERSON_ADDRESS);
+        medical = BPlusTree.open(file, MEDICAL);
+        medicalName = BPlusTree.open(file, MEDICAL_NAME);
+        stations = BPlusTree.open(file, STATIONS);
+        stationAddress = BPlusTree.open(file, STATION_ADDRESS);
+        stationNumber = BPlusTree.open(file, STATION_NUMBER);
+    }
+
+    /**
+     * Opens {@code bin}, or builds it from {@code json} when it is missing,
+     * unreadable or was built from another version of {@code json}.
+     */
+    static BTreeStore openOrBuild(File json, File bin, ObjectMapper mapper, int cachePages) throws IOException {
+        if (bin.exists()) {
+            try {
+                PageFile f = PageFile.open(bin, cachePages);
+                if (f.meta(VERSION) == FORMAT && f.meta(SOURCE_SIZE) == json.length()
+                        && f.meta(SOURCE_MODIFIED) == json.lastModified()) {
+                    return new BTreeStore(f);
+                }
+                f.close();
+            } catch (IOException e) {
+                log.warn("Rebuilding unreadable {}", bin.getAbsolutePath(), e);
+            }
+        }
+        build(json, bin, mapper, cachePages);
+        return new BTreeStore(PageFile.open(bin, cachePages));
+    }
+
+    /**
+     * Builds {@code json} into {@code bin}, replacing whatever is there, and opens
+     * it. A reload builds the next store this way beside the current one, which
+     * stays in use until {@link #moveTo} puts the new file in its place.
+     */
+    static BTreeStore buildAndOpen(File json, File bin, ObjectMapper mapper, int cachePages) throws IOException {
+        build(json, bin, mapper, cachePages);
+        return new BTreeStore(PageFile.open(bin, cachePages));
+    }
+
+    /** Renames the file of this store, which has no unflushed changes, over {@code bin} (and its log). */
+    synchronized void moveTo(File bin) throws IOException {
+        file.moveTo(bin);
+    }
+
+    /** Closes this store and deletes its file, for a store that was built but never used. */
+    synchronized void discard() throws IOException {
+        file.delete();
+    }
+
+    /** Streams {@code json} into a new page file next to {@code bin}, then renames it over {@code bin}. */
+    static void build(File json, File bin, ObjectMapper mapper, int cachePages) throws IOException {
+        long start = System.nanoTime();
+        File tmp = new File(bin.getPath() + ".tmp");
+        try (PageFile f = PageFile.create(tmp, cachePages)) {
+            for (int slot = PERSONS; slot <= STATION_NUMBER; slot++) BPlusTree.create(f, slot);
+            BTreeStore store = new BTreeStore(f);
+            long version = DataRepository.nextVersion();
+            int[] n = new int[1];
+            DatasetStream.read(json, mapper, new DatasetStream.Sink() {
+                @Override
+                public void person(Person p) throws IOException {
+                    p.setVersion(version);
+                    store.insertPerson(p);
+                    step();
+                }
+
+                @Override
+                public void medicalRecord(MedicalRecord m) throws IOException {
+                    m.setVersion(version);
+                    store.insertMedical(m);
+                    step();
+                }
+
+                @Override
+                public void firestation(Firestation s) throws IOException {
+                    s.setVersion(version);
+                    store.insertStation(s);
+                    step();
+                }
+
+                // keeps the dirty part of the pool bounded
+                private void step() throws IOException {
+                    if (++n[0] % 1024 == 0) f.flushUnlogged();
+                }
+            });
+            f.setMeta(VERSION, FORMAT);
+            f.setMeta(SOURCE_SIZE, json.length());
+            f.setMeta(SOURCE_MODIFIED, json.lastModified());
+            f.flushUnlogged();
+        }
+        Files.deleteIfExists(new File(bin.getPath() + ".wal").toPath());
+        Files.move(tmp.toPath(), bin.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Built {} in {} ms", bin.getAbsolutePath(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // -------------- Reads --------------
+
+    @Override
+    public List<Person> persons() {
+        return new TreeView<>(persons, P, BTreeStore::decodePerson);
+    }
+
+    @Override
+    public List<MedicalRecord> medicalRecords() {
+        return new TreeView<>(medical, M, BTreeStore::decodeMedical);
+    }
+
+    @Override
+    public List<Firestation> firestations() {
+        return new TreeView<>(stations, S, BTreeStore::decodeStation);
+    }
+
+    @Override
+    public synchronized List<Person> personsByAddress(String key) {
+        return io(() -> fetch(personAddress, prefix(key), persons, BTreeStore::decodePerson, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public synchronized Optional<Person> personByName(String key) {
+        return io(() -> fetch(personName, prefix(key), persons, BTreeStore::decodePerson, 1).stream().findFirst());
+    }
+
+    @Override
+    public synchronized Optional<MedicalRecord> medicalByName(String key) {
+        return io(() -> fetch(medicalName, prefix(key), medical, BTreeStore::decodeMedical, 1).stream().findFirst());
+    }
+
+    @Override
+    public synchronized Optional<Firestation> stationByAddress(String key) {
+        return io(() -> fetch(stationAddress, prefix(key), stations, BTreeStore::decodeStation, 1).stream().findFirst());
+    }
+
+    @Override
+    public synchronized Set<String> addressesOfStation(int station) {
+        return io(() -> {
+            Set<String> out = new LinkedHashSet<>();
+            for (byte[][] e : stationNumber.scan(stationPrefix(station), Integer.MAX_VALUE)) {
+                byte[] k = e[0];
+                out.add(new String(k, 4, k.length - 4 - 9, StandardCharsets.UTF_8));
+            }
+            return out;
+        });
+    }
+
+    // -------------- Writes --------------
+
+    /**
+     * Applies {@code c} to the page cache with the semantics of the in-memory
+     * repository; {@link #flush()} makes it durable. A failed change is rolled back.
+     */
+    @Override
+    public synchronized int apply(Change c) throws IOException {
+        try {
+            return switch (c.op()) {
+                case ADD_PERSON -> {
+                    insertPerson((Person) c.value());
+                    yield 1;
+                }
+                case UPDATE_PERSON -> updatePerson((Person) c.value());
+                case DELETE_PERSON -> deletePersons(c.name().get(0), c.name().get(1));
+                case ADD_FIRESTATION -> {
+                    insertStation((Firestation) c.value());
+                    yield 1;
+                }
+                case UPDATE_FIRESTATION -> updateStation((Firestation) c.value());
+                case DELETE_FIRESTATION -> {
+                    String addressOrStation = (String) c.value();
+                    try {
+                        yield deleteStations(Integer.parseInt(addressOrStation));
+                    } catch (NumberFormatException e) {
+                        yield deleteStations(addressOrStation);
+                    }
+                }
+                case DELETE_FIRESTATION_BY_STATION -> deleteStations((Integer) c.value());
+                case ADD_MEDICAL_RECORD -> {
+                    insertMedical((MedicalRecord) c.value());
+                    yield 1;
+                }
+                case UPDATE_MEDICAL_RECORD -> updateMedical((MedicalRecord) c.value());
+                case DELETE_MEDICAL_RECORD -> deleteMedical(c.name().get(0), c.name().get(1));
+            };
+        } catch (IOException | RuntimeException e) {
+            file.rollback();
+            throw e;
+        }
+    }
+
+    /** Writes the pages touched since the last flush, through the page log. */
+    synchronized void flush() throws IOException {
+        file.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    private void insertPerson(Person p) throws IOException {
+        byte[] row = nextRow(P);
+        persons.put(row, encodePerson(p));
+        personName.put(key(DataRepository.nameKey(p.getFirstName(), p.getLastName()), row), NONE);
+        if (p.getAddress() != null) personAddress.put(key(DataRepository.norm(p.getAddress()), row), NONE);
+    }
+
+    private int updatePerson(Person p) throws IOException {
+        List<byte[]> rows = rows(personName, prefix(DataRepository.nameKey(p.getFirstName(), p.getLastName())), 1);
+        if (rows.isEmpty()) return 0;
+        byte[] row = rows.get(0);
+        Person cur = decodePerson(persons.get(row));
+        // preserve key fields
+        p.setFirstName(cur.getFirstName());
+        p.setLastName(cur.getLastName());
+        if (cur.getAddress() != null) personAddress.remove(key(DataRepository.norm(cur.getAddress()), row));
+        if (p.getAddress() != null) personAddress.put(key(DataRepository.norm(p.getAddress()), row), NONE);
+        persons.put(row, encodePerson(p));
+        return 1;
+    }
+
+    private int deletePersons(String first, String last) throws IOException {
+        List<byte[]> rows = rows(personName, prefix(DataRepository.nameKey(first, last)), Integer.MAX_VALUE);
+        for (byte[] row : rows) {
+            Person cur = decodePerson(persons.get(row));
+            persons.remove(row);
+            personName.remove(key(DataRepository.nameKey(cur.getFirstName(), cur.getLastName()), row));
+            if (cur.getAddress() != null) personAddress.remove(key(DataRepository.norm(cur.getAddress()), row));
+        }
+        addCount(P, -rows.size());
+        return rows.size();
+    }
+
+    private void insertMedical(MedicalRecord m) throws IOException {
+        byte[] row = nextRow(M);
+        medical.put(row, encodeMedical(m));
+        medicalName.put(key(DataRepository.nameKey(m.getFirstName(), m.getLastName()), row), NONE);
+    }
+
+    private int updateMedical(MedicalRecord m) throws IOException {
+        List<byte[]> rows = rows(medicalName, prefix(DataRepository.nameKey(m.getFirstName(), m.getLastName())), 1);
+        if (rows.isEmpty()) return 0;
+        MedicalRecord cur = decodeMedical(medical.get(rows.get(0)));
+        // preserve key fields
+        m.setFirstName(cur.getFirstName());
+        m.setLastName(cur.getLastName());
+        medical.put(rows.get(0), encodeMedical(m));
+        return 1;
+    }
+
+    private int deleteMedical(String first, String last) throws IOException {
+        String name = DataRepository.nameKey(first, last);
+        List<byte[]> rows = rows(medicalName, prefix(name), Integer.MAX_VALUE);
+        for (byte[] row : rows) {
+            medical.remove(row);
+            medicalName.remove(key(name, row));
+        }
+        addCount(M, -rows.size());
+        return rows.size();
+    }
+
+    private void insertStation(Firestation s) throws IOException {
+        byte[] row = nextRow(S);
+        stations.put(row, encodeStation(s));
+        if (s.getAddress() != null) indexStation(s, row);
+    }
+
+    private void indexStation(Firestation s, byte[] row) throws IOException {
+        String address = DataRepository.norm(s.getAddress());
+        stationAddress.put(key(address, row), NONE);
+        stationNumber.put(stationKey(s.getStation(), address, row), NONE);
+    }
+
+    private void unindexStation(Firestation s, byte[] row) throws IOException {
+        if (s.getAddress() == null) return;
+        String address = DataRepository.norm(s.getAddress());
+        stationAddress.remove(key(address, row));
+        stationNumber.remove(stationKey(s.getStation(), address, row));
+    }
+
+    private int updateStation(Firestation s) throws IOException {
+        List<byte[]> rows = rows(stationAddress, prefix(DataRepository.norm(s.getAddress())), 1);
+        if (rows.isEmpty()) return 0;
+        byte[] row = rows.get(0);
+        Firestation cur = decodeStation(stations.get(row));
+        unindexStation(cur, row);
+        // preserve key fields
+        s.setAddress(cur.getAddress());
+        stations.put(row, encodeStation(s));
+        indexStation(s, row);
+        return 1;
+    }
+
+    private int deleteStations(String address) throws IOException {
+        return deleteStationRows(rows(stationAddress, prefix(DataRepository.norm(address)), Integer.MAX_VALUE));
+    }
+
+    private int deleteStations(int station) throws IOException {
+        return deleteStationRows(rows(stationNumber, stationPrefix(station), Integer.MAX_VALUE));
+    }
+
+    private int deleteStationRows(List<byte[]> rows) throws IOException {
+        for (byte[] row : rows) {
+            unindexStation(decodeStation(stations.get(row)), row);
+            stations.remove(row);
+        }
+        addCount(S, -rows.size());
+        return rows.size();
+    }
+
+    private byte[] nextRow(int entity) throws IOException {
+        long row = file.meta(NEXT_ROW + entity);
+        file.setMeta(NEXT_ROW + entity, row + 1);
+        addCount(entity, 1);
+        return rowKey(row);
+    }
+
+    private void addCount(int entity, int delta) throws IOException {
+        file.setMeta(COUNT + entity, file.meta(COUNT + entity) + delta);
+    }
+
+    // -------------- Keys --------------
+
+    private static byte[] rowKey(long row) {
+        return ByteBuffer.allocate(8).putLong(row).array();
+    }
+
+    /** {@code value \0} */
+    private static byte[] prefix(String value) {
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        return Arrays.copyOf(v, v.length + 1);
+    }
+
+    /** {@code value \0 row} */
+    private static byte[] key(String value, byte[] row) {
+        byte[] p = prefix(value);
+        byte[] k = Arrays.copyOf(p, p.length + row.length);
+        System.arraycopy(row, 0, k, p.length, row.length);
+        return k;
+    }
+
+    /** Station number with the sign bit flipped, so unsigned order is numeric order. */
+    private static byte[] stationPrefix(int station) {
+        return ByteBuffer.allocate(4).putInt(station ^ Integer.MIN_VALUE).array();
+    }
+
+    /** {@code station address \0 row} */
+    private static byte[] stationKey(int station, String address, byte[] row) {
+        byte[] k = key(address, row);
+        return ByteBuffer.allocate(4 + k.length).put(stationPrefix(station)).put(k).array();
+    }
+
+    /** Row ids of the secondary entries under {@code prefix} (the last 8 bytes of each key). */
+    private static List<byte[]> rows(BPlusTree index, byte[] prefix, int limit) throws IOException {
+        List<byte[]> rows = new ArrayList<>();
+        for (byte[][] e : index.scan(prefix, limit)) {
+            byte[] k = e[0];
+            rows.add(Arrays.copyOfRange(k, k.length - 8, k.length));
+        }
+        return rows;
+    }
+
+    private static <T> List<T> fetch(BPlusTree index, byte[] prefix, BPlusTree primary,
+                                     Function<byte[], T> decoder, int limit) throws IOException {
+        List<T> out = new ArrayList<>();
+        for (byte[] row : rows(index, prefix, limit)) {
+            byte[] v = primary.get(row);
+            if (v != null) out.add(decoder.apply(v));
+        }
+        return out;
+    }
+
+    // -------------- Record encoding --------------
+
+    private static byte[] encodePerson(Person p) {
+        return encode(out -> {
+            writeString(out, p.getFirstName());
+            writeString(out, p.getLastName());
+            writeString(out, p.getAddress());
+            writeString(out, p.getCity());
+            writeString(out, p.getZip());
+            writeString(out, p.getPhone());
+            writeString(out, p.getEmail());
+            out.writeLong(p.getVersion());
+        });
+    }
+
+    private static Person decodePerson(byte[] b) {
+        return decode(b, in -> versioned(new Person(readString(in), readString(in), readString(in), readString(in),
+                readString(in), readString(in), readString(in)), in));
+    }
+
+    private static byte[] encodeMedical(MedicalRecord m) {
+        return encode(out -> {
+            writeString(out, m.getFirstName());
+            writeString(out, m.getLastName());
+            writeString(out, m.getBirthdate());
+            writeList(out, m.getMedications());
+            writeList(out, m.getAllergies());
+            out.writeLong(m.getVersion());
+        });
+    }
+
+    private static MedicalRecord decodeMedical(byte[] b) {
+        return decode(b, in -> versioned(new MedicalRecord(readString(in), readString(in), readString(in),
+                readList(in), readList(in)), in));
+    }
+
+    private static byte[] encodeStation(Firestation s) {
+        return encode(out -> {
+            writeString(out, s.getAddress());
+            out.writeInt(s.getStation());
+            out.writeLong(s.getVersion());
+        });
+    }
+
+    private static Firestation decodeStation(byte[] b) {
+        return decode(b, in -> versioned(new Firestation(readString(in), in.readInt()), in));
+    }
+
+    /** Sets the version stamp that follows the fields of every record. */
+    private static <T extends Versioned> T versioned(T record, DataInputStream in) throws IOException {
+        record.setVersion(in.readLong());
+        return record;
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IoSupplier<T> {
+        T get() throws IOException;
+    }
+
+    private static byte[] encode(Writer w) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            w.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static <T> T decode(byte[] b, Reader<T> r) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(b))) {
+            return r.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list == null ? -1 : list.size());
+        if (list != null) for (String s : list) writeString(out, s);
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(readString(in));
+        return list;
+    }
+
+    private static <T> T io(IoSupplier<T> body) {
+        try {
+            return body.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // -------------- Views --------------
+
+    /**
+     * Read-only list over a primary tree, in row order. Iteration reads
+     * {@value #BATCH} records per lock acquisition and resumes after the last
+     * row seen, so it tolerates concurrent splits. While no row was ever
+     * deleted, row ids equal list indexes and {@link #get} is a point lookup.
+     */
+    private final class TreeView<T> extends AbstractList<T> {
+        private final BPlusTree tree;
+        private final int entity;
+        private final Function<byte[], T> decoder;
+
+        TreeView(BPlusTree tree, int entity, Function<byte[], T> decoder) {
+            this.tree = tree;
+            this.entity = entity;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public int size() {
+            synchronized (BTreeStore.this) {
+                return io(() -> (int) file.meta(COUNT + entity));
+            }
+        }
+
+        @Override
+        public T get(int index) {
+            synchronized (BTreeStore.this) {
+                byte[] v = io(() -> file.meta(NEXT_ROW + entity) == file.meta(COUNT + entity)
+                        ? tree.get(rowKey(index)) : null);
+                if (v != null) return decoder.apply(v);
+            }
+            if (index < 0) throw new IndexOutOfBoundsException(index);
+            Iterator<T> it = iterator();
+            for (int i = 0; i < index && it.hasNext(); i++) it.next();
+            if (!it.hasNext()) throw new IndexOutOfBoundsException(index);
+            return it.next();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<>() {
+                private List<byte[][]> batch = List.of();
+                private int i;
+                private byte[] last;
+                private boolean done;
+
+                @Override
+                public boolean hasNext() {
+                    if (i < batch.size()) return true;
+                    if (done) return false;
+                    synchronized (BTreeStore.this) {
+                        batch = io(() -> last == null ? tree.scan(NONE, BATCH) : tree.scan(NONE, last, true, BATCH));
+                    }
+                    i = 0;
+                    done = batch.size() < BATCH;
+                    return !batch.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    byte[][] e = batch.get(i++);
+                    last = e[0];
+                    return decoder.apply(e[1]);
+                }
+            };
+        }
+    }
+}
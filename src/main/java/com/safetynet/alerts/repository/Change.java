@@ -0,0 +1,72 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.util.List;
+
+/**
+ * One admin mutation of the dataset, as handed to a {@link StorageEngine}.
+ * {@code value} is the record for adds and updates, the {@code [firstName, lastName]}
+ * key for person and medical record deletes, the address or station for
+ * {@link Op#DELETE_FIRESTATION} and the station number for
+ * {@link Op#DELETE_FIRESTATION_BY_STATION}.
+ *
+ * @param op    the mutation
+ * @param value its argument, of type {@link Op#type()}
+ */
+public record Change(Op op, Object value) {
+
+    /** Entity list a mutation touches. */
+    public enum Entity { PERSONS, FIRESTATIONS, MEDICAL_RECORDS }
+
+    public enum Op {
+        ADD_PERSON("addPerson", Entity.PERSONS, Person.class),
+        UPDATE_PERSON("updatePerson", Entity.PERSONS, Person.class),
+        DELETE_PERSON("deletePerson", Entity.PERSONS, List.class),
+        ADD_FIRESTATION("addFirestation", Entity.FIRESTATIONS, Firestation.class),
+        UPDATE_FIRESTATION("updateFirestation", Entity.FIRESTATIONS, Firestation.class),
+        DELETE_FIRESTATION("deleteFirestation", Entity.FIRESTATIONS, String.class),
+        DELETE_FIRESTATION_BY_STATION("deleteFirestationByStation", Entity.FIRESTATIONS, Integer.class),
+        ADD_MEDICAL_RECORD("addMedicalRecord", Entity.MEDICAL_RECORDS, MedicalRecord.class),
+        UPDATE_MEDICAL_RECORD("updateMedicalRecord", Entity.MEDICAL_RECORDS, MedicalRecord.class),
+        DELETE_MEDICAL_RECORD("deleteMedicalRecord", Entity.MEDICAL_RECORDS, List.class);
+
+        private final String label;
+        private final Entity entity;
+        private final Class<?> type;
+
+        Op(String label, Entity entity, Class<?> type) {
+            this.label = label;
+            this.entity = entity;
+            this.type = type;
+        }
+
+        /** Repository method name; also the metrics tag and the journal encoding. */
+        public String label() {
+            return label;
+        }
+
+        public Entity entity() {
+            return entity;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+
+        public static Op of(String label) {
+            for (Op op : values()) {
+                if (op.label.equals(label)) return op;
+            }
+            throw new IllegalArgumentException("Unknown change: " + label);
+        }
+    }
+
+    /** {@code [firstName, lastName]} of a person or medical record delete. */
+    @SuppressWarnings("unchecked")
+    List<String> name() {
+        return (List<String>) value;
+    }
+}
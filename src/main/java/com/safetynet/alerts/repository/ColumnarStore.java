@@ -0,0 +1,561 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only, off-heap columnar store for persons and medical records.
+ * <p>
+ * Every string goes through one dictionary (UTF-8 bytes, offsets and an
+ * open-addressing hash table, all in direct buffers), so person and medical
+ * columns are plain ints: name, address, city, zip and email ids, plus the
+ * normalized address, lowercase city and {@link DataRepository#nameKey name
+ * key} ids used for matching. Phones of the form {@code ddd-ddd-dddd} are
+ * packed into a long; birthdates are epoch days; medication and allergy lists
+ * are ranges of a shared id column. Persons by address is a CSR index over
+ * address ids, and medical records by name a row-per-key column.
+ * </p>
+ * <p>
+ * The heap only holds the buffer objects, so a million persons cost the GC a
+ * few dozen objects instead of millions. {@link #emailsInCity},
+ * {@link #phonesAt} and {@link #birthdatesAt} are column scans that never
+ * decode a person; other reads go through flyweights.
+ * </p>
+ */
+final class ColumnarStore implements CompactStore {
+
+    private static final Pattern PHONE = Pattern.compile("\\d{3}-\\d{3}-\\d{4}");
+    private static final long NO_PHONE = Long.MIN_VALUE;
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final int NONE = -1;
+
+    private final Dictionary dict;
+    private final int personCount;
+    private final int medicalCount;
+
+    // Person columns
+    private final IntColumn first, last, address, addressKey, city, cityKey, zip, email, personKey;
+    private final LongColumn phone;
+    // Medical columns
+    private final IntColumn mFirst, mLast, birthDay, birthRaw, medsStart, medsLen, allergiesStart, allergiesLen;
+    private final IntColumn listItems;
+    // Indexes
+    private final IntColumn addressStart, addressRows, medicalRowByKey;
+
+    private final List<Firestation> firestations;
+    private final DataRepository.StationIndex stationIndex;
+
+    private ColumnarStore(Builder b) {
+        dict = b.dict.freeze();
+        personCount = b.first.size;
+        medicalCount = b.mFirst.size;
+        first = b.first.freeze();
+        last = b.last.freeze();
+        address = b.address.freeze();
+        addressKey = b.addressKey.freeze();
+        city = b.city.freeze();
+        cityKey = b.cityKey.freeze();
+        zip = b.zip.freeze();
+        email = b.email.freeze();
+        personKey = b.personKey.freeze();
+        phone = b.phone.freeze();
+        mFirst = b.mFirst.freeze();
+        mLast = b.mLast.freeze();
+        birthDay = b.birthDay.freeze();
+        birthRaw = b.birthRaw.freeze();
+        medsStart = b.medsStart.freeze();
+        medsLen = b.medsLen.freeze();
+        allergiesStart = b.allergiesStart.freeze();
+        allergiesLen = b.allergiesLen.freeze();
+        listItems = b.listItems.freeze();
+        firestations = b.firestations;
+        stationIndex = DataRepository.StationIndex.build(firestations);
+
+        // CSR: rows of each address id, in dataset order
+        int ids = dict.size();
+        addressStart = IntColumn.filled(ids + 1, 0);
+        for (int r = 0; r < personCount; r++) {
+            int k = addressKey.get(r);
+            addressStart.set(k + 1, addressStart.get(k + 1) + 1);
+        }
+        for (int i = 0; i < ids; i++) addressStart.set(i + 1, addressStart.get(i + 1) + addressStart.get(i));
+        addressRows = IntColumn.filled(personCount, 0);
+        IntColumn fill = IntColumn.filled(ids, 0);
+        for (int r = 0; r < personCount; r++) {
+            int k = addressKey.get(r);
+            addressRows.set(addressStart.get(k) + fill.get(k), r);
+            fill.set(k, fill.get(k) + 1);
+        }
+
+        medicalRowByKey = IntColumn.filled(ids, NONE);
+        for (int r = 0; r < medicalCount; r++) {
+            int k = b.medicalKey.get(r);
+            if (medicalRowByKey.get(k) == NONE) medicalRowByKey.set(k, r);
+        }
+    }
+
+    static ColumnarStore build(File json, ObjectMapper mapper) throws IOException {
+        Builder b = new Builder();
+        DatasetStream.read(json, mapper, b);
+        return new ColumnarStore(b);
+    }
+
+    // -------------- Views and lookups --------------
+
+    @Override
+    public List<Person> persons() {
+        return new RowList<>(personCount) {
+            @Override
+            public Person get(int i) {
+                return new ColumnarPerson(ColumnarStore.this, checkRow(i, personCount));
+            }
+        };
+    }
+
+    @Override
+    public List<MedicalRecord> medicalRecords() {
+        return new RowList<>(medicalCount) {
+            @Override
+            public MedicalRecord get(int i) {
+                return new ColumnarMedicalRecord(ColumnarStore.this, checkRow(i, medicalCount));
+            }
+        };
+    }
+
+    @Override
+    public List<Firestation> firestations() {
+        return firestations;
+    }
+
+    @Override
+    public Optional<Firestation> stationByAddress(String key) {
+        return Optional.ofNullable(stationIndex.byAddress().get(key));
+    }
+
+    @Override
+    public Set<String> addressesOfStation(int station) {
+        return stationIndex.addressesByStation().getOrDefault(station, Set.of());
+    }
+
+    @Override
+    public List<Person> personsByAddress(String key) {
+        int id = dict.find(key);
+        if (id == NONE) return new ArrayList<>();
+        List<Person> res = new ArrayList<>();
+        for (int i = addressStart.get(id), end = addressStart.get(id + 1); i < end; i++) {
+            res.add(new ColumnarPerson(this, addressRows.get(i)));
+        }
+        return res;
+    }
+
+    @Override
+    public Optional<MedicalRecord> medicalByName(String key) {
+        int id = dict.find(key);
+        int row = id == NONE ? NONE : medicalRowByKey.get(id);
+        return row == NONE ? Optional.empty() : Optional.of(new ColumnarMedicalRecord(this, row));
+    }
+
+    // -------------- Column scans --------------
+
+    @Override
+    public List<String> emailsInCity(String cityName) {
+        List<String> out = new ArrayList<>();
+        int id = cityName == null ? NONE : dict.find(cityName.toLowerCase(Locale.ROOT));
+        if (id == NONE) return out;
+        BitSet seen = new BitSet();
+        boolean nullSeen = false;
+        for (int r = 0; r < personCount; r++) {
+            if (cityKey.get(r) != id) continue;
+            int e = email.get(r);
+            if (e == NONE) {
+                if (!nullSeen) out.add(null);
+                nullSeen = true;
+            } else if (!seen.get(e)) {
+                seen.set(e);
+                out.add(dict.get(e));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> phonesAt(Set<String> addresses) {
+        Set<Long> packed = new LinkedHashSet<>();
+        for (int r : rowsAt(addresses)) {
+            long p = phone.get(r);
+            if (p != NO_PHONE) packed.add(p);
+        }
+        Set<String> out = new LinkedHashSet<>();
+        for (long p : packed) DataRepository.addPhone(out, decodePhone(p));
+        return new ArrayList<>(out);
+    }
+
+    @Override
+    public List<LocalDate> birthdatesAt(Set<String> addresses) {
+        List<LocalDate> out = new ArrayList<>();
+        for (int r : rowsAt(addresses)) {
+            int m = medicalRowByKey.get(personKey.get(r));
+            int day = m == NONE ? NO_DAY : birthDay.get(m);
+            out.add(day == NO_DAY ? null : LocalDate.ofEpochDay(day));
+        }
+        return out;
+    }
+
+    /** Person rows living at any of the normalized {@code addresses}, in dataset order. */
+    private int[] rowsAt(Set<String> addresses) {
+        BitSet ids = new BitSet();
+        for (String a : addresses) {
+            int id = dict.find(a);
+            if (id != NONE) ids.set(id);
+        }
+        if (ids.isEmpty()) return new int[0];
+        int[] rows = new int[16];
+        int n = 0;
+        for (int r = 0; r < personCount; r++) {
+            if (ids.get(addressKey.get(r))) {
+                if (n == rows.length) rows = Arrays.copyOf(rows, n * 2);
+                rows[n++] = r;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    // -------------- Decoding --------------
+
+    private String str(IntColumn column, int row) {
+        int id = column.get(row);
+        return id == NONE ? null : dict.get(id);
+    }
+
+    private String phoneOf(int row) {
+        long p = phone.get(row);
+        return p == NO_PHONE ? null : decodePhone(p);
+    }
+
+    private String decodePhone(long p) {
+        if (p < 0) return dict.get((int) (-p - 1));
+        String d = String.format("%010d", p);
+        return d.substring(0, 3) + '-' + d.substring(3, 6) + '-' + d.substring(6);
+    }
+
+    private String birthdateOf(int row) {
+        int raw = birthRaw.get(row);
+        if (raw != NONE) return dict.get(raw);
+        int day = birthDay.get(row);
+        return day == NO_DAY ? null : LocalDate.ofEpochDay(day).format(DataRepository.BIRTHDATE);
+    }
+
+    private List<String> list(IntColumn start, IntColumn len, int row) {
+        int n = len.get(row);
+        if (n == NONE) return null;
+        int s = start.get(row);
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(dict.get(listItems.get(s + i)));
+        return out;
+    }
+
+    private static int checkRow(int i, int count) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException("row " + i + " of " + count);
+        return i;
+    }
+
+    private abstract static class RowList<T> extends AbstractList<T> implements RandomAccess {
+        private final int size;
+
+        RowList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /** Person decoded from the columns on each getter call. */
+    static final class ColumnarPerson extends Person {
+        private final ColumnarStore s;
+        private final int row;
+
+        ColumnarPerson(ColumnarStore s, int row) {
+            this.s = s;
+            this.row = row;
+        }
+
+        @Override public String getFirstName() { return s.str(s.first, row); }
+        @Override public String getLastName() { return s.str(s.last, row); }
+        @Override public String getAddress() { return s.str(s.address, row); }
+        @Override public String getCity() { return s.str(s.city, row); }
+        @Override public String getZip() { return s.str(s.zip, row); }
+        @Override public String getPhone() { return s.phoneOf(row); }
+        @Override public String getEmail() { return s.str(s.email, row); }
+
+        @Override public void setFirstName(String v) { throw readOnly(); }
+        @Override public void setLastName(String v) { throw readOnly(); }
+        @Override public void setAddress(String v) { throw readOnly(); }
+        @Override public void setCity(String v) { throw readOnly(); }
+        @Override public void setZip(String v) { throw readOnly(); }
+        @Override public void setPhone(String v) { throw readOnly(); }
+        @Override public void setEmail(String v) { throw readOnly(); }
+    }
+
+    /** Medical record decoded from the columns on each getter call. */
+    static final class ColumnarMedicalRecord extends MedicalRecord {
+        private final ColumnarStore s;
+        private final int row;
+
+        ColumnarMedicalRecord(ColumnarStore s, int row) {
+            this.s = s;
+            this.row = row;
+        }
+
+        @Override public String getFirstName() { return s.str(s.mFirst, row); }
+        @Override public String getLastName() { return s.str(s.mLast, row); }
+        @Override public String getBirthdate() { return s.birthdateOf(row); }
+        @Override public List<String> getMedications() { return s.list(s.medsStart, s.medsLen, row); }
+        @Override public List<String> getAllergies() { return s.list(s.allergiesStart, s.allergiesLen, row); }
+
+        @Override public void setFirstName(String v) { throw readOnly(); }
+        @Override public void setLastName(String v) { throw readOnly(); }
+        @Override public void setBirthdate(String v) { throw readOnly(); }
+        @Override public void setMedications(List<String> v) { throw readOnly(); }
+        @Override public void setAllergies(List<String> v) { throw readOnly(); }
+    }
+
+    static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Dataset is read-only in columnar storage mode");
+    }
+
+    // -------------- Build --------------
+
+    /** Appends records to growable columns; the dictionary map lives only while building. */
+    private static final class Builder implements DatasetStream.Sink {
+        final Dictionary dict = new Dictionary();
+        final IntColumn first = new IntColumn(), last = new IntColumn(), address = new IntColumn(),
+                addressKey = new IntColumn(), city = new IntColumn(), cityKey = new IntColumn(),
+                zip = new IntColumn(), email = new IntColumn(), personKey = new IntColumn();
+        final LongColumn phone = new LongColumn();
+        final IntColumn mFirst = new IntColumn(), mLast = new IntColumn(), medicalKey = new IntColumn(),
+                birthDay = new IntColumn(), birthRaw = new IntColumn(), medsStart = new IntColumn(),
+                medsLen = new IntColumn(), allergiesStart = new IntColumn(), allergiesLen = new IntColumn(),
+                listItems = new IntColumn();
+        final List<Firestation> firestations = new ArrayList<>();
+
+        @Override
+        public void person(Person p) {
+            first.add(dict.id(p.getFirstName()));
+            last.add(dict.id(p.getLastName()));
+            address.add(dict.id(p.getAddress()));
+            addressKey.add(dict.id(DataRepository.norm(p.getAddress())));
+            city.add(dict.id(p.getCity()));
+            cityKey.add(dict.id(p.getCity() == null ? null : p.getCity().toLowerCase(Locale.ROOT)));
+            zip.add(dict.id(p.getZip()));
+            email.add(dict.id(p.getEmail()));
+            personKey.add(dict.id(DataRepository.nameKey(p.getFirstName(), p.getLastName())));
+            phone.add(packPhone(p.getPhone()));
+        }
+
+        @Override
+        public void medicalRecord(MedicalRecord m) {
+            mFirst.add(dict.id(m.getFirstName()));
+            mLast.add(dict.id(m.getLastName()));
+            medicalKey.add(dict.id(DataRepository.nameKey(m.getFirstName(), m.getLastName())));
+            LocalDate dob = DataRepository.parseBirthdate(m.getBirthdate());
+            birthDay.add(dob == null ? NO_DAY : (int) dob.toEpochDay());
+            // Keep the original text unless it round-trips through the epoch day.
+            boolean canonical = dob == null ? m.getBirthdate() == null
+                    : dob.format(DataRepository.BIRTHDATE).equals(m.getBirthdate());
+            birthRaw.add(canonical ? NONE : dict.id(m.getBirthdate()));
+            addList(m.getMedications(), medsStart, medsLen);
+            addList(m.getAllergies(), allergiesStart, allergiesLen);
+        }
+
+        @Override
+        public void firestation(Firestation f) {
+            firestations.add(f);
+        }
+
+        private void addList(List<String> values, IntColumn start, IntColumn len) {
+            start.add(listItems.size);
+            len.add(values == null ? NONE : values.size());
+            if (values != null) for (String v : values) listItems.add(dict.id(v));
+        }
+
+        private long packPhone(String p) {
+            if (p == null) return NO_PHONE;
+            if (PHONE.matcher(p).matches()) return Long.parseLong(p.replace("-", ""));
+            return -(long) dict.id(p) - 1;
+        }
+    }
+
+    /**
+     * String dictionary. While building, ids come from an on-heap map; after
+     * {@link #freeze()} the bytes, offsets and an open-addressing hash table of
+     * ids are all off-heap and the map is dropped.
+     */
+    private static final class Dictionary {
+        private Map<String, Integer> ids = new HashMap<>();
+        private ByteColumn bytes = new ByteColumn();
+        private IntColumn offsets = new IntColumn();
+        private IntColumn table;
+        private int mask;
+        private int count;
+
+        int id(String s) {
+            if (s == null) return NONE;
+            Integer known = ids.get(s);
+            if (known != null) return known;
+            int id = count++;
+            offsets.add(bytes.size);
+            bytes.add(s.getBytes(StandardCharsets.UTF_8));
+            ids.put(s, id);
+            return id;
+        }
+
+        int size() {
+            return count;
+        }
+
+        Dictionary freeze() {
+            offsets.add(bytes.size);
+            offsets = offsets.freeze();
+            bytes = bytes.freeze();
+            int capacity = Integer.highestOneBit(Math.max(2, size() * 2 - 1)) << 1;
+            mask = capacity - 1;
+            table = IntColumn.filled(capacity, NONE);
+            for (int id = 0; id < size(); id++) {
+                int slot = get(id).hashCode() & mask;
+                while (table.get(slot) != NONE) slot = (slot + 1) & mask;
+                table.set(slot, id);
+            }
+            ids = null;
+            return this;
+        }
+
+        String get(int id) {
+            int from = offsets.get(id);
+            return bytes.string(from, offsets.get(id + 1) - from);
+        }
+
+        /** Id of {@code s}, or {@code -1}. Only valid after {@link #freeze()}. */
+        int find(String s) {
+            if (s == null) return NONE;
+            for (int slot = s.hashCode() & mask; ; slot = (slot + 1) & mask) {
+                int id = table.get(slot);
+                if (id == NONE) return NONE;
+                if (get(id).equals(s)) return id;
+            }
+        }
+    }
+
+    /** Growable int column in a direct buffer. */
+    private static final class IntColumn {
+        private ByteBuffer buf = ByteBuffer.allocateDirect(1024 * 4);
+        private int size;
+
+        static IntColumn filled(int size, int value) {
+            IntColumn c = new IntColumn();
+            c.buf = ByteBuffer.allocateDirect(Math.max(1, size) * 4);
+            for (int i = 0; i < size; i++) c.buf.putInt(i * 4, value);
+            c.size = size;
+            return c;
+        }
+
+        void add(int v) {
+            if ((size + 1) * 4 > buf.capacity()) buf = grow(buf, (size + 1) * 4);
+            buf.putInt(size++ * 4, v);
+        }
+
+        int get(int i) {
+            return buf.getInt(i * 4);
+        }
+
+        void set(int i, int v) {
+            buf.putInt(i * 4, v);
+        }
+
+        IntColumn freeze() {
+            buf = trim(buf, size * 4);
+            return this;
+        }
+    }
+
+    /** Growable long column in a direct buffer. */
+    private static final class LongColumn {
+        private ByteBuffer buf = ByteBuffer.allocateDirect(1024 * 8);
+        private int size;
+
+        void add(long v) {
+            if ((size + 1) * 8 > buf.capacity()) buf = grow(buf, (size + 1) * 8);
+            buf.putLong(size++ * 8, v);
+        }
+
+        long get(int i) {
+            return buf.getLong(i * 8);
+        }
+
+        LongColumn freeze() {
+            buf = trim(buf, size * 8);
+            return this;
+        }
+    }
+
+    /** Growable byte column in a direct buffer. */
+    private static final class ByteColumn {
+        private ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+        private int size;
+
+        void add(byte[] b) {
+            if (size + b.length > buf.capacity()) buf = grow(buf, size + b.length);
+            buf.put(size, b);
+            size += b.length;
+        }
+
+        String string(int from, int length) {
+            byte[] b = new byte[length];
+            buf.get(from, b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        ByteColumn freeze() {
+            buf = trim(buf, size);
+            return this;
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buf, int needed) {
+        long capacity = Math.max(needed, (long) buf.capacity() * 2);
+        if (capacity > Integer.MAX_VALUE) throw new IllegalStateException("Column exceeds 2 GB");
+        ByteBuffer bigger = ByteBuffer.allocateDirect((int) capacity);
+        bigger.put(0, buf, 0, buf.capacity());
+        return bigger;
+    }
+
+    private static ByteBuffer trim(ByteBuffer buf, int bytes) {
+        if (buf.capacity() == bytes) return buf;
+        ByteBuffer exact = ByteBuffer.allocateDirect(Math.max(1, bytes));
+        exact.put(0, buf, 0, bytes);
+        return exact;
+    }
+}
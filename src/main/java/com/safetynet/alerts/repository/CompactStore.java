@@ -0,0 +1,96 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Store that keeps the dataset outside of model-object lists and serves all
+ * lookups itself ({@link MappedDataset}, {@link ColumnarStore}, which are
+ * read-only, and {@link BTreeStore}). The list views hand out flyweights or
+ * copies; the scan methods have row-by-row defaults that stores with a better
+ * layout override.
+ */
+interface CompactStore extends Closeable {
+
+    List<Person> persons();
+
+    List<MedicalRecord> medicalRecords();
+
+    List<Firestation> firestations();
+
+    /** Persons whose normalized address equals {@code key}, in dataset order. */
+    List<Person> personsByAddress(String key);
+
+    /** First person with the given {@link DataRepository#nameKey name key}, in dataset order. */
+    default Optional<Person> personByName(String key) {
+        for (Person p : persons()) {
+            if (DataRepository.nameKey(p.getFirstName(), p.getLastName()).equals(key)) return Optional.of(p);
+        }
+        return Optional.empty();
+    }
+
+    /** First medical record with the given {@link DataRepository#nameKey name key}. */
+    Optional<MedicalRecord> medicalByName(String key);
+
+    /** First firestation mapping of the normalized address {@code key}. */
+    Optional<Firestation> stationByAddress(String key);
+
+    /** Normalized addresses mapped to {@code station}. */
+    Set<String> addressesOfStation(int station);
+
+    /**
+     * Applies an admin change.
+     *
+     * @return number of records added, updated or removed
+     * @throws UnsupportedOperationException if the store is read-only
+     */
+    default int apply(Change change) throws IOException {
+        throw new UnsupportedOperationException("Store is read-only");
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /** @see DataRepository#emailsInCity(String) */
+    default List<String> emailsInCity(String city) {
+        Set<String> out = new LinkedHashSet<>();
+        for (Person p : persons()) {
+            if (p.getCity() != null && p.getCity().equalsIgnoreCase(city)) out.add(p.getEmail());
+        }
+        return new ArrayList<>(out);
+    }
+
+    /** @see DataRepository#phonesAt(Set) */
+    default List<String> phonesAt(Set<String> addresses) {
+        Set<String> out = new LinkedHashSet<>();
+        for (Person p : persons()) {
+            if (p.getAddress() != null && addresses.contains(DataRepository.norm(p.getAddress()))) {
+                DataRepository.addPhone(out, p.getPhone());
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    /** @see DataRepository#birthdatesAt(Set) */
+    default List<LocalDate> birthdatesAt(Set<String> addresses) {
+        List<LocalDate> out = new ArrayList<>();
+        for (Person p : persons()) {
+            if (p.getAddress() != null && addresses.contains(DataRepository.norm(p.getAddress()))) {
+                out.add(medicalByName(DataRepository.nameKey(p.getFirstName(), p.getLastName()))
+                        .map(m -> DataRepository.parseBirthdate(m.getBirthdate())).orElse(null));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,125 @@
+package com.safetynet.alerts.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches {@code safetynet.data-file} and hands external replacements to
+ * {@link DataRepository#reloadIfChanged()}.
+ * <p>
+ * The parent directory is watched, so both in-place rewrites and
+ * write-then-rename exports are seen. Events are debounced: the reload starts
+ * once the file has been quiet for {@code safetynet.reload.debounce}, which
+ * keeps a half-written export from being parsed. Reloads run on the watcher
+ * thread; readers are never blocked by them.
+ * </p>
+ */
+@Component
+public class DataFileWatcher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DataFileWatcher.class);
+
+    private final DataRepository repo;
+
+    @Value("${safetynet.reload.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${safetynet.reload.debounce:500ms}")
+    private Duration debounce = Duration.ofMillis(500);
+
+    private WatchService watcher;
+    private Thread thread;
+    private volatile boolean running;
+
+    public DataFileWatcher(DataRepository repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        try {
+            Path file = repo.dataFile().toPath().toAbsolutePath();
+            watcher = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            running = true;
+            thread = new Thread(() -> watch(file), "data-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            log.info("Watching {} for external changes", file);
+        } catch (IOException e) {
+            log.warn("Cannot watch data file, hot reload disabled", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                log.debug("Closing watch service failed", e);
+            }
+        }
+        if (thread != null) thread.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch(Path file) {
+        Path name = file.getFileName();
+        try {
+            while (running) {
+                WatchKey key = watcher.take();
+                boolean touched = drain(key, name);
+                // Debounce: wait until the file has been quiet for one full interval.
+                while (touched) {
+                    WatchKey next = watcher.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    drain(next, name);
+                }
+                if (touched) {
+                    try {
+                        repo.reloadIfChanged();
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Reload of {} failed", file, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private static boolean drain(WatchKey key, Path name) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+}
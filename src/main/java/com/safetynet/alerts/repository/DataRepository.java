@@ -1,23 +1,112 @@
 package com.safetynet.alerts.repository;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.model.Firestation;
 import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.metrics.AlertMetrics;
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Versioned;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Repository;
 
 import java.io.*;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 // ...rest of the class...
 
+/**
+ * In-memory dataset backed by a JSON file.
+ * <p>
+ * The file is read once at startup ({@link #init()}); its three sections are
+ * bound and indexed in parallel. Lookups by address, station and name go
+ * through per-entity-type indexes that are kept up to date whenever that
+ * entity list changes. {@link #isLoaded()} turns true only once a load,
+ * including its indexes, has completed, and backs the {@code dataset}
+ * readiness check.
+ * </p>
+ * <p>
+ * Lists and indexes are published together as one {@link Dataset} snapshot
+ * and never modified afterwards, so reads take no lock. An admin change
+ * copies the list of the entity type it touches and patches copies of its
+ * indexes with the records it replaced while holding only that type's lock;
+ * the new version is then published and handed to the storage engine under
+ * a short engine lock. Changes to
+ * persons, firestations and medical records therefore proceed concurrently,
+ * and changes to one type keep their order in memory and in the engine. A
+ * data file rewrite after a change ({@code json} engine) runs after both
+ * locks are released, one at a time; a rewrite that starts after a change
+ * was published covers it too. Loads and reload swaps take every lock.
+ * {@link #reloadIfChanged()} builds a replacement snapshot from an externally
+ * rewritten file without holding any lock and swaps it in atomically, so
+ * readers keep using the previous version until the swap. The replacement is
+ * diffed against the current version (persons and medical records by name,
+ * firestations by address): unchanged records keep their instances and only
+ * the inserts, updates and deletes are applied to copies of the indexes.
+ * </p>
+ * <p>
+ * Every record carries a {@linkplain Versioned version stamp}: a write stores
+ * it with a fresh stamp, and records read from the data file are stamped as
+ * they are bound. The conditional mutations compare the stamp of the record
+ * they target with the one the caller read, under the entity lock, and throw
+ * {@link VersionConflictException} if it moved on; a client's
+ * read-modify-write therefore holds no lock between its requests.
+ * </p>
+ * <p>
+ * The name of a person or medical record and the normalized address of a
+ * firestation are unique keys. An add looks its key up in the index under
+ * the entity lock and throws {@link IllegalStateException} if it is taken, so
+ * the check and the insert are one step and concurrent adds of one key
+ * create one record. The index of an add is patched rather than rebuilt.
+ * </p>
+ * <p>
+ * {@link #findHousehold} and {@link #ageCountsAt} serve the station and
+ * residents of an address with their ages, age groups and medical details
+ * from {@link Households}, published with the rest of the snapshot. A change
+ * or a reload rebuilds only the households of the addresses, names and stations it
+ * touches, and a new day only those where somebody has a birthday, which a
+ * calendar of birthdays tells ({@link #rollover()}).
+ * </p>
+ * <p>
+ * With {@code safetynet.storage.mode=mapped} persons and medical records are
+ * served from a {@link MappedDataset} compiled next to the data file, and with
+ * {@code columnar} from an off-heap {@link ColumnarStore}, instead of being
+ * held as objects; the repository is then read-only and mutations throw
+ * {@link UnsupportedOperationException}.
+ * </p>
+ * <p>
+ * How admin changes reach the disk is up to the {@link StorageEngine} named by
+ * {@code safetynet.storage.engine}: each mutation is described as a
+ * {@link Change}, applied to the in-memory lists and handed to the engine,
+ * and changes the engine recorded since the data file was written are
+ * replayed on {@link #load()}. The data file itself is only ever replaced
+ * atomically and carries a checksum that is verified when it is read
+ * ({@link SnapshotFile}); large snapshots can be written on a background
+ * thread while mutations continue, and GZIP-compressed with
+ * {@code safetynet.storage.snapshot.compression-level}.
+ * </p>
+ */
 @Repository
 public class DataRepository {
 
@@ -25,6 +114,10 @@ public class DataRepository {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
+    // Source of version stamps, seeded from the wall clock in microseconds so that
+    // stamps handed out before a restart are not handed out again after it.
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis() * 1000);
+
     /**
      * Writable dataset path. Defaults to a filesystem file that we can update.
      * Examples:
@@ -41,21 +134,155 @@ public class DataRepository {
     @Value("${safetynet.seed-file:classpath:data.json}")
     private Resource seedResource;
 
-    private List<Person> persons = new ArrayList<>();
-    private List<Firestation> firestations = new ArrayList<>();
-    private List<MedicalRecord> medicalrecords = new ArrayList<>();
+    // Current version; indexes inside are never mutated, only replaced with the snapshot.
+    private volatile Dataset data = Dataset.EMPTY;
+
+    // Bumped after every load, reload swap and change, once its result is visible to reads.
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * {@code memory} (default), {@code mapped} ({@link MappedDataset}) or
+     * {@code columnar} ({@link ColumnarStore}); the last two are read-only.
+     */
+    @Value("${safetynet.storage.mode:memory}")
+    private String storageMode = "memory";
+
+    /** {@code json} (default), {@code journal}, {@code memory} or {@code btree}; see {@link StorageEngine}. */
+    @Value("${safetynet.storage.engine:json}")
+    private String engineName = "json";
+
+    @Value("${safetynet.storage.journal.compact-after:1000}")
+    private int journalCompactAfter = 1000;
+
+    @Value("${safetynet.storage.journal.fsync:true}")
+    private boolean journalFsync = true;
+
+    @Value("${safetynet.storage.btree.cache-pages:1024}")
+    private int btreeCachePages = 1024;
+
+    /** 0 writes plain JSON, 1-9 GZIP at that level; reads detect either. */
+    @Value("${safetynet.storage.snapshot.compression-level:0}")
+    private int compressionLevel = 0;
+
+    private StorageEngine engine;
+
+    // Size and mtime of the data file as last loaded or written by this repository.
+    private volatile FileStamp stamp;
+
+    // Writers of one entity type serialize on its lock. Taken before engineLock, in entity order.
+    private final Map<Change.Entity, ReentrantLock> entityLocks = new EnumMap<>(Change.Entity.class);
+
+    // Guards publishing a new Dataset, the storage engine and the snapshot state below.
+    private final ReentrantLock engineLock = new ReentrantLock();
+
+    // Bumped whenever the data file is loaded, written or replaced; a background
+    // snapshot captured at an older version is not published. Guarded by engineLock.
+    private long snapshotVersion;
+
+    // Background snapshot in progress, if any. Guarded by engineLock.
+    private Thread snapshotThread;
+
+    // Data file rewrites asked for with writeAfterCommit run one at a time under this
+    // lock instead of engineLock, which they take only to capture and to publish.
+    private final ReentrantLock rewriteLock = new ReentrantLock();
+
+    // Rewrites asked for so far, guarded by engineLock, and how many of them the
+    // data file covers, guarded by rewriteLock.
+    private long rewritesRequested;
+    private long rewritesDone;
+
+    private final StorageEngine.SnapshotWriter snapshots = new StorageEngine.SnapshotWriter() {
+        @Override
+        public void write() throws IOException {
+            writeDataFile();
+        }
+
+        @Override
+        public boolean writeInBackground(StorageEngine.Compaction compaction) throws IOException {
+            return writeDataFileInBackground(compaction);
+        }
+    };
+
+    private volatile boolean loaded;
+
+    private AlertMetrics metrics = AlertMetrics.standalone();
+
+    // Decides the current day for the age groups of households.
+    private volatile Clock clock = Clock.systemDefaultZone();
+
+    {
+        for (Change.Entity e : Change.Entity.values()) entityLocks.put(e, new ReentrantLock());
+    }
+
+    /** Used by Spring; resources are injected from {@code safetynet.*} properties. */
+    public DataRepository() {
+    }
+
+    /**
+     * Creates a repository outside of Spring (benchmarks, tooling).
+     *
+     * @param dataResource writable dataset file
+     * @param seedResource dataset copied to {@code dataResource} when it does not exist
+     */
+    public DataRepository(Resource dataResource, Resource seedResource) {
+        this.dataResource = dataResource;
+        this.seedResource = seedResource;
+    }
+
+    @Autowired(required = false)
+    public void setMetrics(AlertMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Sets the clock that decides the current day outside of Spring (tests, tooling). */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Selects the storage engine outside of Spring; takes effect on the next
+     * {@link #load()}.
+     *
+     * @param name {@code json}, {@code journal}, {@code memory} or {@code btree}
+     */
+    public void setStorageEngine(String name) throws IOException {
+        withLocks("setStorageEngine", allLocks(), () -> {
+            if (engine != null) engine.close();
+            engine = null;
+            engineName = name;
+            return null;
+        });
+    }
+
+    /**
+     * Sets the compression of data file snapshots outside of Spring; takes
+     * effect on the next write.
+     *
+     * @param level 0 for plain JSON, 1-9 for GZIP at that level
+     */
+    public void setCompressionLevel(int level) {
+        if (level < 0 || level > 9) throw new IllegalArgumentException("Compression level must be 0-9: " + level);
+        engineLock.lock();
+        try {
+            compressionLevel = level;
+        } finally {
+            engineLock.unlock();
+        }
+    }
 
     // -------------- Lifecycle --------------
 
     @PostConstruct
     public void init() {
         try {
+            long start = System.nanoTime();
             load();
-            log.info("Loaded data: persons={}, firestations={}, medicalrecords={}",
-                    persons.size(), firestations.size(), medicalrecords.size());
+            log.info("Loaded data in {} ms: persons={}, firestations={}, medicalrecords={}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    data.persons().size(), data.firestations().size(), data.medicalrecords().size());
 
             // Build deterministic distinct station set without method-reference collector
-            List<Integer> stationList = firestations.stream()
+            List<Integer> stationList = data.firestations().stream()
                     .map(Firestation::getStation)
                     .collect(Collectors.toList());
             Set<Integer> stationSet = new LinkedHashSet<>(stationList);
@@ -66,200 +293,1462 @@ public class DataRepository {
         }
     }
 
+    /** Waits for a running background snapshot, then releases the store and the engine. */
+    @PreDestroy
+    public void close() throws IOException {
+        Thread writer = withLocks("close", List.of(engineLock), () -> snapshotThread);
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        withLocks("close", allLocks(), () -> {
+            if (data.store() != null) data.store().close();
+            if (engine != null) engine.close();
+            return null;
+        });
+    }
+
+    private StorageEngine engine() {
+        engineLock.lock();
+        try {
+            if (engine == null) engine = createEngine(engineName);
+            return engine;
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    private StorageEngine createEngine(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "json" -> new JsonFileEngine();
+            case "journal" -> new JournalEngine(mapper, journalCompactAfter, journalFsync);
+            case "memory" -> new MemoryEngine();
+            case "btree" -> new BTreeEngine(mapper, btreeCachePages);
+            default -> throw new IllegalArgumentException("Unknown storage engine: " + name);
+        };
+    }
+
     // -------------- IO --------------
 
-    public synchronized void load() throws IOException {
+    /**
+     * (Re)reads the data file. The JSON tree is parsed once; the three sections
+     * are then bound to model objects and indexed concurrently, and published
+     * together once all of them are done, after any changes the storage engine
+     * recorded since the file was written have been replayed.
+     */
+    public void load() throws IOException {
+        mutate("load", allLocks(), () -> {
+            File targetFile = resolveWritableDataFile();
+            ensureSeedIfMissing(targetFile);
+            snapshotVersion++;
+            if (snapshotThread == null) SnapshotFile.deleteTemps(targetFile);
+
+            FileStamp before = FileStamp.of(targetFile);
+            Dataset fresh = readDataset(targetFile, false);
+            List<Change> pending = engine().open(targetFile);
+            if (!pending.isEmpty() && isCompact()) {
+                log.warn("Ignoring {} journaled changes: {} storage mode serves {} as written",
+                        pending.size(), storageMode, targetFile.getAbsolutePath());
+            } else if (!pending.isEmpty()) {
+                long version = nextVersion();
+                for (Change c : pending) {
+                    stamp(c, version);
+                    apply(c, fresh);
+                }
+                fresh = new Dataset(fresh.persons(), fresh.firestations(), fresh.medicalrecords(),
+                        PersonIndex.build(fresh.persons()), StationIndex.build(fresh.firestations()),
+                        indexMedical(fresh.medicalrecords()), null, null);
+                fresh = housed(fresh);
+                log.info("Replayed {} journaled changes onto {}", pending.size(), targetFile.getAbsolutePath());
+            }
+            Dataset previous = data;
+            data = fresh;
+            generation.incrementAndGet();
+            stamp = before;
+            loaded = true;
+            if (previous.store() != null && previous.store() != fresh.store()) previous.store().close();
+            return null;
+        });
+    }
+
+    /**
+     * Picks up an externally replaced data file. The new version is parsed and
+     * indexed without holding any lock, so reads and writes continue on the
+     * current snapshot; the locks are only taken for the swap. Files this
+     * repository wrote itself are recognized by their stamp and ignored. If a
+     * local write lands while the new file is being read, that version is
+     * discarded and the next change notification retries. A storage engine
+     * with its own store builds the new one beside the current store and only
+     * switches to it under the locks, once the swap is certain.
+     *
+     * @return {@code true} if a new version was swapped in
+     */
+    public boolean reloadIfChanged() throws IOException {
         File targetFile = resolveWritableDataFile();
-        ensureSeedIfMissing(targetFile);
+        FileStamp seen = stamp;
+        FileStamp current = FileStamp.of(targetFile);
+        if (current == null || current.equals(seen)) return false;
+
+        long start = System.nanoTime();
+        Dataset base = data;
+        Dataset fresh;
+        try {
+            fresh = base.store() != null ? readDataset(targetFile, true) : readDelta(targetFile, base);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Reload of {} failed, keeping current version", targetFile.getAbsolutePath(), e);
+            return false;
+        }
+        boolean swapped = false;
+        try {
+            swapped = withLocks("reload", allLocks(), () -> {
+                if (stamp != seen || data != base) return false;
+                engine().replaced(targetFile);
+                if (fresh.store() != null && engine() instanceof StoreEngine se) se.adopt(fresh.store());
+                data = fresh;
+                generation.incrementAndGet();
+                stamp = current;
+                loaded = true;
+                snapshotVersion++;
+                return true;
+            });
+        } finally {
+            metrics.repository("reload").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (base.store() != null) {
+                if (swapped) base.store().close();
+                else if (engine() instanceof StoreEngine se) se.discard(fresh.store());
+                else fresh.store().close();
+            }
+        }
+        if (swapped) {
+            log.info("Reloaded {}: persons={}, firestations={}, medicalrecords={}", targetFile.getAbsolutePath(),
+                    fresh.persons().size(), fresh.firestations().size(), fresh.medicalrecords().size());
+        }
+        return swapped;
+    }
+
+    /** Writable data file this repository reads and writes. */
+    public File dataFile() throws IOException {
+        return resolveWritableDataFile();
+    }
+
+    private boolean isCompact() {
+        return "mapped".equalsIgnoreCase(storageMode) || "columnar".equalsIgnoreCase(storageMode);
+    }
 
-        try (InputStream is = new FileInputStream(targetFile)) {
-            Map<String, Object> root = mapper.readValue(is, new TypeReference<Map<String, Object>>() {});
-            persons = convertList(root.get("persons"), new TypeReference<List<Person>>() {});
-            firestations = convertList(root.get("firestations"), new TypeReference<List<Firestation>>() {});
-            medicalrecords = convertList(root.get("medicalrecords"), new TypeReference<List<MedicalRecord>>() {});
+    /**
+     * Parses the JSON tree once, then binds and indexes the three sections
+     * concurrently. In the compact modes, and with a {@link StoreEngine}, the
+     * file is streamed into a {@link CompactStore} instead; for a
+     * {@code replacement} the engine builds it beside the store it is using. A
+     * file whose embedded checksum does not match is rejected.
+     */
+    private Dataset readDataset(File file, boolean replacement) throws IOException {
+        SnapshotFile.verify(file);
+        CompactStore store = null;
+        if (engine() instanceof StoreEngine se) {
+            if (isCompact()) {
+                throw new IllegalStateException("safetynet.storage.mode=" + storageMode
+                        + " cannot be combined with safetynet.storage.engine=" + engineName);
+            }
+            store = replacement ? se.buildStore(file) : se.openStore(file);
+        } else if (isCompact()) {
+            store = "mapped".equalsIgnoreCase(storageMode)
+                    ? MappedDataset.openOrBuild(file, new File(file.getPath() + ".map"), mapper)
+                    : ColumnarStore.build(file, mapper);
+        }
+        if (store != null) {
+            return new Dataset(store.persons(), store.firestations(), store.medicalRecords(),
+                    PersonIndex.build(List.of()), StationIndex.build(List.of()), Map.of(), store, null);
+        }
+        JsonNode root = readTree(file);
+        CompletableFuture<Section<Person, PersonIndex>> p = loadSection(root, "persons",
+                new TypeReference<List<Person>>() {}, PersonIndex::build);
+        CompletableFuture<Section<Firestation, StationIndex>> f = loadSection(root, "firestations",
+                new TypeReference<List<Firestation>>() {}, StationIndex::build);
+        CompletableFuture<Section<MedicalRecord, Map<String, MedicalRecord>>> m = loadSection(root, "medicalrecords",
+                new TypeReference<List<MedicalRecord>>() {}, DataRepository::indexMedical);
+        return housed(assemble(p, f, m));
+    }
+
+    /**
+     * Like {@link #readDataset} but each section is diffed against {@code base}
+     * and its index patched with the delta instead of rebuilt. Likewise only
+     * the households the deltas touch (and those due today) are rebuilt,
+     * unless a section had to be built in full.
+     */
+    private Dataset readDelta(File file, Dataset base) throws IOException {
+        SnapshotFile.verify(file);
+        JsonNode root = readTree(file);
+        CompletableFuture<Section<Person, PersonIndex>> p = diffSection(root, "persons",
+                new TypeReference<List<Person>>() {}, new Section<>(base.persons(), base.personIndex(), null),
+                x -> nameKey(x.getFirstName(), x.getLastName()), PersonIndex::build, PersonIndex::apply);
+        CompletableFuture<Section<Firestation, StationIndex>> f = diffSection(root, "firestations",
+                new TypeReference<List<Firestation>>() {}, new Section<>(base.firestations(), base.stationIndex(), null),
+                x -> norm(x.getAddress()), StationIndex::build, StationIndex::apply);
+        CompletableFuture<Section<MedicalRecord, Map<String, MedicalRecord>>> m = diffSection(root, "medicalrecords",
+                new TypeReference<List<MedicalRecord>>() {}, new Section<>(base.medicalrecords(), base.medicalIndex(), null),
+                x -> nameKey(x.getFirstName(), x.getLastName()), DataRepository::indexMedical,
+                DataRepository::applyMedical);
+        Dataset fresh = assemble(p, f, m);
+        Households h = base.households();
+        Delta<Person> persons = p.join().delta();
+        Delta<Firestation> stations = f.join().delta();
+        Delta<MedicalRecord> records = m.join().delta();
+        if (h == null || persons == null || stations == null || records == null) return housed(fresh);
+        LocalDate today = today();
+        Set<String> touched = h.touchedBy(persons.changed(), stations.changed(), records.changed());
+        touched.addAll(h.dueBy(today));
+        return fresh.withHouseholds(h.refresh(touched, fresh, today));
+    }
 
-            if (persons == null) persons = new ArrayList<>();
-            if (firestations == null) firestations = new ArrayList<>();
-            if (medicalrecords == null) medicalrecords = new ArrayList<>();
+    private JsonNode readTree(File file) throws IOException {
+        JsonNode root;
+        try (InputStream is = SnapshotFile.open(file)) {
+            root = mapper.readTree(is);
         }
+        return root == null ? mapper.createObjectNode() : root;
     }
 
-    public synchronized void save() throws IOException {
+    private static Dataset assemble(CompletableFuture<Section<Person, PersonIndex>> p,
+                                    CompletableFuture<Section<Firestation, StationIndex>> f,
+                                    CompletableFuture<Section<MedicalRecord, Map<String, MedicalRecord>>> m) {
+        try {
+            CompletableFuture.allOf(p, f, m).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+        return new Dataset(p.join().items(), f.join().items(), m.join().items(),
+                p.join().index(), f.join().index(), m.join().index(), null, null);
+    }
+
+    /** {@code true} once a load (data and indexes) has completed successfully. */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Makes the full dataset durable through the storage engine (a data file
+     * rewrite except for {@code memory}). Holds only the engine lock, so
+     * changes keep being prepared meanwhile. Only the wait for the lock is
+     * recorded here; the write itself is timed as {@code op=save} in {@link #writeDataFile()},
+     * whichever caller triggered it.
+     */
+    public void save() throws IOException {
+        requireWritable();
+        withLocks("save", List.of(engineLock), () -> {
+            engine().flush(snapshots);
+            return null;
+        });
+    }
+
+    /** Replaces the data file with the current dataset ({@link SnapshotFile}); caller holds the engine lock. */
+    private void writeDataFile() throws IOException {
+        long start = System.nanoTime();
+        File targetFile = resolveWritableDataFile();
+        Dataset d = data;
+        SnapshotFile.write(targetFile, mapper, sections(d.persons(), d.firestations(), d.medicalrecords()),
+                compressionLevel);
+        snapshotVersion++;
+        stamp = FileStamp.of(targetFile);
+        metrics.repository("save").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Rewrites the data file unless a rewrite that captured the dataset after
+     * the {@code request}-th was asked for has already done so. The dataset is
+     * captured and the new file published under the engine lock, and written
+     * in between without it; the file is not published if something else
+     * wrote or replaced the data file meanwhile, as that wrote this dataset
+     * or a newer one. Timed as {@code op=save}.
+     */
+    private void rewriteThrough(long request) throws IOException {
+        rewriteLock.lock();
+        try {
+            if (rewritesDone >= request) return;
+            long start = System.nanoTime();
+            Dataset d;
+            long covered, version;
+            engineLock.lock();
+            try {
+                d = data;
+                covered = rewritesRequested;
+                version = snapshotVersion;
+            } finally {
+                engineLock.unlock();
+            }
+            File targetFile = resolveWritableDataFile();
+            File temp = SnapshotFile.writeTemp(targetFile, mapper,
+                    sections(d.persons(), d.firestations(), d.medicalrecords()), compressionLevel);
+            engineLock.lock();
+            try {
+                if (snapshotVersion == version) {
+                    SnapshotFile.publish(temp, targetFile);
+                    snapshotVersion++;
+                    stamp = FileStamp.of(targetFile);
+                }
+            } finally {
+                engineLock.unlock();
+                temp.delete();
+            }
+            rewritesDone = covered;
+            metrics.repository("save").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } finally {
+            rewriteLock.unlock();
+        }
+    }
+
+    /** Snapshot writer of one commit; remembers a {@code writeAfterCommit} for {@link #finish()}. */
+    private final class CommitSnapshots implements StorageEngine.SnapshotWriter {
+        private long request;
+
+        @Override
+        public void write() throws IOException {
+            writeDataFile();
+        }
+
+        @Override
+        public boolean writeInBackground(StorageEngine.Compaction compaction) throws IOException {
+            return writeDataFileInBackground(compaction);
+        }
+
+        @Override
+        public void writeAfterCommit() {
+            request = ++rewritesRequested;
+        }
+
+        /** Runs the rewrite asked for, if any; caller holds no repository lock. */
+        void finish() throws IOException {
+            if (request != 0) rewriteThrough(request);
+        }
+    }
+
+    /**
+     * Captures the published lists, which are never modified (caller holds the
+     * engine lock), and writes them on a background thread, timed as
+     * {@code op=snapshot}. The new file is published only if nothing else wrote
+     * or replaced the data file in the meantime.
+     */
+    private boolean writeDataFileInBackground(StorageEngine.Compaction compaction) throws IOException {
+        if (snapshotThread != null) return false;
+        Dataset d = data;
+        Map<String, Object> root = sections(d.persons(), d.firestations(), d.medicalrecords());
+        File targetFile = resolveWritableDataFile();
+        long version = snapshotVersion;
+        int level = compressionLevel;
+        Thread writer = new Thread(() -> runSnapshot(targetFile, root, level, version, compaction), "snapshot-writer");
+        writer.setDaemon(true);
+        snapshotThread = writer;
+        writer.start();
+        return true;
+    }
+
+    private void runSnapshot(File targetFile, Map<String, Object> root, int level, long version,
+                             StorageEngine.Compaction compaction) {
+        long start = System.nanoTime();
+        File temp = null;
+        try {
+            temp = SnapshotFile.writeTemp(targetFile, mapper, root, level);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Background snapshot of {} failed", targetFile.getAbsolutePath(), e);
+        }
+        File written = temp;
+        engineLock.lock();
+        try {
+            snapshotThread = null;
+            boolean published = false;
+            try {
+                if (written != null && snapshotVersion == version) {
+                    compaction.beforePublish(written);
+                    SnapshotFile.publish(written, targetFile);
+                    published = true;
+                    snapshotVersion++;
+                    stamp = FileStamp.of(targetFile);
+                    compaction.published();
+                    metrics.repository("snapshot").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Publishing snapshot of {} failed", targetFile.getAbsolutePath(), e);
+            } finally {
+                if (!published) {
+                    compaction.abandoned();
+                    if (written != null) written.delete();
+                }
+            }
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    private static Map<String, Object> sections(List<Person> persons, List<Firestation> firestations,
+                                                List<MedicalRecord> medicalrecords) {
         Map<String, Object> root = new LinkedHashMap<>();
         root.put("persons", persons);
         root.put("firestations", firestations);
         root.put("medicalrecords", medicalrecords);
+        return root;
+    }
 
-        File targetFile = resolveWritableDataFile();
-        File parent = targetFile.getParentFile();
-        if (parent != null) parent.mkdirs();
-
-        mapper.writerWithDefaultPrettyPrinter().writeValue(targetFile, root);
+    /**
+     * Counter that moves on after every load, reload and change, once the new
+     * data is visible to reads. A result computed from reads that started
+     * after {@code generation()} returned {@code g} reflects every write that
+     * completed before; callers can key cached or shared results by it.
+     */
+    public long generation() {
+        return generation.get();
     }
 
     // -------------- Queries --------------
 
     public List<Person> getPersons() {
-        return persons;
+        return data.persons();
     }
 
     public List<Firestation> getFirestations() {
-        return firestations;
+        return data.firestations();
     }
 
     public List<MedicalRecord> getMedicalrecords() {
-        return medicalrecords;
+        return data.medicalrecords();
+    }
+
+    /** First person with the given name, case-insensitive. */
+    public Optional<Person> findPerson(String f, String l) {
+        return timed("findPerson", () -> Optional.ofNullable(personNamed(data, f, l)));
     }
 
     public Optional<MedicalRecord> findMedical(String f, String l) {
-        return medicalrecords.stream()
-                .filter(m -> m.getFirstName().equalsIgnoreCase(f)
-                        && m.getLastName().equalsIgnoreCase(l))
-                .findFirst();
+        return timed("findMedical", () -> {
+            Dataset d = data;
+            String key = nameKey(f, l);
+            return d.store() != null ? d.store().medicalByName(key) : Optional.ofNullable(d.medicalIndex().get(key));
+        });
     }
 
     public Optional<Firestation> findStationByAddress(String a) {
-        String key = norm(a);
-        return firestations.stream()
-                .filter(f -> norm(f.getAddress()).equals(key))
-                .findFirst();
+        return timed("findStationByAddress", () -> {
+            Dataset d = data;
+            String key = norm(a);
+            return d.store() != null ? d.store().stationByAddress(key)
+                    : Optional.ofNullable(d.stationIndex().byAddress().get(key));
+        });
     }
 
     public List<Person> findPersonsByAddress(String a) {
-        String key = norm(a);
-        List<Person> res = new ArrayList<>();
-        for (Person p : persons) {
-            if (norm(p.getAddress()).equals(key)) {
-                res.add(p);
-            }
-        }
+        List<Person> res = timed("findPersonsByAddress",
+                () -> List.copyOf(personsAt(data, norm(a))));
+        metrics.repositoryResultSize("findPersonsByAddress", res.size());
         return res;
     }
 
     public List<Person> findPersonsByStation(int s) {
-        // Build normalized address set for this station (use two-step to avoid inference issues)
-        List<String> addrList = firestations.stream()
-                .filter(f -> f.getStation() == s) // primitive int in your model
-                .map(Firestation::getAddress)
-                .filter(Objects::nonNull)
-                .map(this::norm)
-                .collect(Collectors.toList());
-        Set<String> addrs = new LinkedHashSet<>(addrList);
-
-        // Match normalized person addresses against that set
+        List<Person> res = timed("findPersonsByStation", () -> collectPersonsByStation(s));
+        metrics.repositoryResultSize("findPersonsByStation", res.size());
+        return res;
+    }
+
+    private List<Person> collectPersonsByStation(int s) {
+        Dataset d = data;
         List<Person> res = new ArrayList<>();
-        for (Person p : persons) {
-            String addr = p.getAddress();
-            if (addr != null && addrs.contains(norm(addr))) {
-                res.add(p);
-            }
+        Set<String> addresses = d.store() != null ? d.store().addressesOfStation(s)
+                : d.stationIndex().addressesByStation().getOrDefault(s, Set.of());
+        for (String addr : addresses) {
+            res.addAll(personsAt(d, addr));
         }
         return res;
     }
 
+    /**
+     * Distinct emails of persons whose city matches {@code city}
+     * (case-insensitive), in dataset order.
+     */
+    public List<String> emailsInCity(String city) {
+        return timed("emailsInCity", () -> {
+            Dataset d = data;
+            if (d.store() != null) return d.store().emailsInCity(city);
+            Set<String> out = new LinkedHashSet<>();
+            for (Person p : d.persons()) {
+                if (p.getCity() != null && p.getCity().equalsIgnoreCase(city)) out.add(p.getEmail());
+            }
+            return new ArrayList<>(out);
+        });
+    }
+
+    /**
+     * Distinct, trimmed, non-blank phone numbers of persons living at any of the
+     * normalized {@code addresses}, in dataset order.
+     */
+    public List<String> phonesAt(Set<String> addresses) {
+        return timed("phonesAt", () -> {
+            Dataset d = data;
+            if (d.store() != null) return d.store().phonesAt(addresses);
+            Set<String> out = new LinkedHashSet<>();
+            for (Person p : d.persons()) {
+                if (p.getAddress() != null && addresses.contains(norm(p.getAddress()))) addPhone(out, p.getPhone());
+            }
+            return new ArrayList<>(out);
+        });
+    }
+
+    /**
+     * Birthdates of persons living at any of the normalized {@code addresses},
+     * one entry per person in dataset order; {@code null} when the person has no
+     * medical record or the birthdate cannot be parsed.
+     */
+    public List<LocalDate> birthdatesAt(Set<String> addresses) {
+        return timed("birthdatesAt", () -> {
+            Dataset d = data;
+            if (d.store() != null) return d.store().birthdatesAt(addresses);
+            List<LocalDate> out = new ArrayList<>();
+            for (Person p : d.persons()) {
+                if (p.getAddress() != null && addresses.contains(norm(p.getAddress()))) {
+                    MedicalRecord m = d.medicalIndex().get(nameKey(p.getFirstName(), p.getLastName()));
+                    out.add(m == null ? null : parseBirthdate(m.getBirthdate()));
+                }
+            }
+            return out;
+        });
+    }
+
+    /**
+     * Station and residents of {@code address} (normalized here) with their
+     * ages as of today, or empty if nobody lives there.
+     */
+    public Optional<Household> findHousehold(String address) {
+        return timed("findHousehold", () -> {
+            String key = norm(address);
+            Dataset d = data;
+            if (d.store() != null) return Optional.ofNullable(Households.build(today(), Set.of(key), d).at(key));
+            return Optional.ofNullable(households().at(key));
+        });
+    }
+
+    /** Children and adults living at any of the normalized {@code addresses}, as of today. */
+    public AgeCounts ageCountsAt(Set<String> addresses) {
+        return timed("ageCountsAt", () -> {
+            int children = 0, adults = 0;
+            Dataset d = data;
+            if (d.store() != null) {
+                // a birthdate scan, so that columnar storage never decodes a record
+                LocalDate today = today();
+                for (LocalDate dob : d.store().birthdatesAt(addresses)) {
+                    Household.AgeGroup group = Household.AgeGroup.of(dob, today);
+                    if (group == Household.AgeGroup.CHILD) children++;
+                    else if (group == Household.AgeGroup.ADULT) adults++;
+                }
+            } else {
+                Households h = households();
+                for (String address : addresses) {
+                    Household household = h.at(address);
+                    if (household == null) continue;
+                    children += household.children();
+                    adults += household.adults();
+                }
+            }
+            return new AgeCounts(children, adults);
+        });
+    }
+
+    /** Result of {@link #ageCountsAt(Set)}. */
+    public record AgeCounts(int children, int adults) {
+    }
+
+    /**
+     * Moves the ages of the households on to today. Only the households where
+     * somebody had a birthday since the last rollover are rebuilt, which the calendar of {@link Households} tells
+     * without looking at the others. Reads roll over by themselves on the
+     * first call of a new day; {@link AgeRolloverScheduler} does it just
+     * after midnight so that no request has to.
+     *
+     * @return number of households rebuilt
+     */
+    public int rollover() {
+        return rollover(today());
+    }
+
+    /**
+     * The rolled-over households are a function of the published dataset alone,
+     * so they are built without a lock; the engine lock is taken only to publish
+     * them, and the build is redone if a change was published meanwhile.
+     */
+    private int rollover(LocalDate day) {
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                Dataset d = data;
+                Households h = d.households();
+                if (h == null || h.today().equals(day)) return 0;
+                Set<String> due = h.dueBy(day);
+                Households next = h.refresh(due, d, day);
+                long requested = System.nanoTime();
+                engineLock.lock();
+                try {
+                    metrics.lockWait("rollover", System.nanoTime() - requested);
+                    if (!publish(d, next)) continue;
+                } finally {
+                    engineLock.unlock();
+                }
+                log.debug("Rolled households over to {}: {} rebuilt", day, due.size());
+                return due.size();
+            }
+        } finally {
+            metrics.repository("rollover").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Published households, rolled over first if the day changed since they were
+     * built. A read never waits for the engine lock: the rolled-over households
+     * are published only if the lock is free, and otherwise serve this read alone
+     * until the next read or the scheduler publishes them.
+     */
+    private Households households() {
+        Dataset d = data;
+        Households h = d.households();
+        LocalDate today = today();
+        if (h.today().equals(today)) return h;
+        Households next = h.refresh(h.dueBy(today), d, today);
+        if (engineLock.tryLock()) {
+            try {
+                publish(d, next);
+            } finally {
+                engineLock.unlock();
+            }
+        }
+        return next;
+    }
+
+    /** Publishes {@code households} unless a dataset other than {@code d} was published since. Holds the engine lock. */
+    private boolean publish(Dataset d, Households households) {
+        if (data != d) return false;
+        data = d.withHouseholds(households);
+        generation.incrementAndGet();
+        return true;
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /** {@code d} with its households built from its indexes. */
+    private Dataset housed(Dataset d) {
+        return d.withHouseholds(Households.build(today(), d.personIndex().byAddress().keySet(), d));
+    }
+
+    private static List<Person> personsAt(Dataset d, String normalizedAddress) {
+        if (d.store() != null) return d.store().personsByAddress(normalizedAddress);
+        return d.personIndex().byAddress().getOrDefault(normalizedAddress, List.of());
+    }
+
     // -------------- Admin mutations --------------
 
-    public synchronized void addPerson(Person p) throws IOException {
-        persons.add(p);
-        save();
-    }
-
-    public synchronized boolean updatePerson(Person p) throws IOException {
-        for (int i = 0; i < persons.size(); i++) {
-            Person cur = persons.get(i);
-            if (cur.getFirstName().equalsIgnoreCase(p.getFirstName())
-                    && cur.getLastName().equalsIgnoreCase(p.getLastName())) {
-                // preserve key fields
-                p.setFirstName(cur.getFirstName());
-                p.setLastName(cur.getLastName());
-                persons.set(i, p);
-                save();
-                return true;
+    // Adds are check-and-insert on the unique key of the entity (name, or normalized address
+    // for firestations) and throw IllegalStateException if the key is taken.
+
+    public void addPerson(Person p) throws IOException {
+        add(new Change(Change.Op.ADD_PERSON, p));
+    }
+
+    public boolean updatePerson(Person p) throws IOException {
+        return commit(new Change(Change.Op.UPDATE_PERSON, p)) > 0;
+    }
+
+    public boolean deletePerson(String f, String l) throws IOException {
+        return commit(new Change(Change.Op.DELETE_PERSON, List.of(f, l))) > 0;
+    }
+
+    public void addFirestation(Firestation fm) throws IOException {
+        add(new Change(Change.Op.ADD_FIRESTATION, fm));
+    }
+
+    public boolean updateFirestation(Firestation fm) throws IOException {
+        return commit(new Change(Change.Op.UPDATE_FIRESTATION, fm)) > 0;
+    }
+
+    public boolean deleteFirestation(String addressOrStation) throws IOException {
+        return commit(new Change(Change.Op.DELETE_FIRESTATION, addressOrStation)) > 0;
+    }
+
+    public int deleteFirestationByStation(int station) throws IOException {
+        return commit(new Change(Change.Op.DELETE_FIRESTATION_BY_STATION, station));
+    }
+
+    public void addMedicalRecord(MedicalRecord m) throws IOException {
+        add(new Change(Change.Op.ADD_MEDICAL_RECORD, m));
+    }
+
+    public boolean updateMedicalRecord(MedicalRecord m) throws IOException {
+        return commit(new Change(Change.Op.UPDATE_MEDICAL_RECORD, m)) > 0;
+    }
+
+    public boolean deleteMedicalRecord(String f, String l) throws IOException {
+        return commit(new Change(Change.Op.DELETE_MEDICAL_RECORD, List.of(f, l))) > 0;
+    }
+
+    // Conditional variants: applied only while the first record with the key is still at
+    // expectedVersion, else VersionConflictException; false when there is no such record.
+
+    public boolean updatePerson(Person p, long expectedVersion) throws IOException {
+        return commit(new Change(Change.Op.UPDATE_PERSON, p), expectedVersion) > 0;
+    }
+
+    public boolean deletePerson(String f, String l, long expectedVersion) throws IOException {
+        return commit(new Change(Change.Op.DELETE_PERSON, List.of(f, l)), expectedVersion) > 0;
+    }
+
+    public boolean updateFirestation(Firestation fm, long expectedVersion) throws IOException {
+        return commit(new Change(Change.Op.UPDATE_FIRESTATION, fm), expectedVersion) > 0;
+    }
+
+    public boolean deleteFirestation(String address, long expectedVersion) throws IOException {
+        return commit(new Change(Change.Op.DELETE_FIRESTATION, address), expectedVersion) > 0;
+    }
+
+    public boolean updateMedicalRecord(MedicalRecord m, long expectedVersion) throws IOException {
+        return commit(new Change(Change.Op.UPDATE_MEDICAL_RECORD, m), expectedVersion) > 0;
+    }
+
+    public boolean deleteMedicalRecord(String f, String l, long expectedVersion) throws IOException {
+        return commit(new Change(Change.Op.DELETE_MEDICAL_RECORD, List.of(f, l)), expectedVersion) > 0;
+    }
+
+    /**
+     * Applies {@code c} to a copy of the list it touches and patches copies of
+     * its indexes under the entity's lock, then publishes the result and hands the
+     * change to the storage engine under the engine lock; changes that matched
+     * nothing are not persisted. A data file rewrite the engine asks for runs
+     * after both locks are released. When a store holds the dataset, the change is
+     * applied to the store instead. The record the change writes gets a new
+     * version stamp.
+     *
+     * @return number of records added, updated or removed
+     */
+    private int commit(Change c) throws IOException {
+        return commit(c, d -> true);
+    }
+
+    /** Commits an add if no record has its key yet. */
+    private void add(Change c) throws IOException {
+        commit(c, d -> keyIsFree(d, c));
+    }
+
+    /** Like {@link #commit(Change)}, but only if the record the change targets is at {@code expectedVersion}. */
+    private int commit(Change c, long expectedVersion) throws IOException {
+        return commit(c, d -> atVersion(d, c, expectedVersion));
+    }
+
+    /**
+     * Like {@link #commit(Change)}, but {@code precondition} is checked first
+     * against the current version, under the entity lock that every writer of
+     * that entity holds as well; the change is skipped if it does not hold.
+     */
+    private int commit(Change c, Precondition precondition) throws IOException {
+        Change.Entity entity = c.op().entity();
+        CommitSnapshots snapshot = new CommitSnapshots();
+        int committed = write(c.op().label(), List.of(entityLocks.get(entity)), () -> {
+            Dataset base = data;
+            if (!precondition.holds(base)) return 0;
+            stamp(c, nextVersion());
+            Dataset next = null;
+            int n = 0;
+            if (base.store() == null) {
+                next = base.copyOf(entity);
+                Delta<?> delta = apply(c, next);
+                n = Math.max(delta.removed().size(), delta.added().size());
+                if (n == 0) return 0;
+                next = reindex(next, entity, delta);
+            }
+            long requested = System.nanoTime();
+            engineLock.lock();
+            try {
+                metrics.lockWait("engine", System.nanoTime() - requested);
+                if (next != null) {
+                    Dataset before = data;
+                    Dataset merged = before.with(next, entity);
+                    Households h = merged.households();
+                    data = merged.withHouseholds(h.refresh(h.touchedBy(c, before), merged, h.today()));
+                } else {
+                    n = base.store().apply(c);
+                    if (n == 0) return 0;
+                }
+                generation.incrementAndGet();
+                engine().commit(c, snapshot);
+            } finally {
+                engineLock.unlock();
+            }
+            return n;
+        });
+        snapshot.finish();
+        return committed;
+    }
+
+    /** Checked against the published version before a change is applied. */
+    @FunctionalInterface
+    private interface Precondition {
+        boolean holds(Dataset current);
+    }
+
+    /**
+     * @return {@code true}, as the key of the record {@code c} adds is not in {@code d}
+     * @throws IllegalStateException if it is
+     * @throws IllegalArgumentException if the record has no key
+     */
+    private static boolean keyIsFree(Dataset d, Change c) {
+        switch (c.op()) {
+            case ADD_PERSON -> {
+                Person p = (Person) c.value();
+                requireName(p.getFirstName(), p.getLastName());
+                if (personNamed(d, p.getFirstName(), p.getLastName()) != null) {
+                    throw new IllegalStateException("Person already exists with given firstName and lastName");
+                }
+            }
+            case ADD_FIRESTATION -> {
+                String address = ((Firestation) c.value()).getAddress();
+                if (address == null || address.isBlank()) {
+                    throw new IllegalArgumentException("address is required");
+                }
+                if (stationAt(d, address) != null) {
+                    throw new IllegalStateException("Mapping already exists for this address");
+                }
             }
+            case ADD_MEDICAL_RECORD -> {
+                MedicalRecord m = (MedicalRecord) c.value();
+                requireName(m.getFirstName(), m.getLastName());
+                if (medicalNamed(d, m.getFirstName(), m.getLastName()) != null) {
+                    throw new IllegalStateException("Medical record already exists for given firstName and lastName");
+                }
+            }
+            default -> throw new IllegalArgumentException("Not an add: " + c.op().label());
         }
-        return false;
+        return true;
     }
 
-    public synchronized boolean deletePerson(String f, String l) throws IOException {
-        boolean removed = persons.removeIf(x ->
-                x.getFirstName().equalsIgnoreCase(f)
-                        && x.getLastName().equalsIgnoreCase(l));
-        if (removed) save();
-        return removed;
+    private static void requireName(String first, String last) {
+        if (first == null || last == null || first.isBlank() || last.isBlank()) {
+            throw new IllegalArgumentException("firstName and lastName are required");
+        }
     }
 
-    public synchronized void addFirestation(Firestation fm) throws IOException {
-        firestations.add(fm);
-        save();
+    /**
+     * @return whether the record {@code c} targets exists in {@code d}
+     * @throws VersionConflictException if it is at another version than {@code expectedVersion}
+     */
+    private static boolean atVersion(Dataset d, Change c, long expectedVersion) {
+        Versioned current = target(d, c);
+        if (current == null) return false;
+        if (current.getVersion() != expectedVersion) {
+            throw new VersionConflictException(expectedVersion, current.getVersion());
+        }
+        return true;
     }
 
-    public synchronized boolean updateFirestation(Firestation fm) throws IOException {
-        for (int i = 0; i < firestations.size(); i++) {
-            Firestation cur = firestations.get(i);
-            if (cur.getAddress().equalsIgnoreCase(fm.getAddress())) {
-                firestations.set(i, fm);
-                save();
-                return true;
+    /**
+     * The record a conditional change targets in {@code d}: the first one with
+     * its key, which is the one {@link #apply} updates.
+     */
+    private static Versioned target(Dataset d, Change c) {
+        return switch (c.op()) {
+            case UPDATE_PERSON -> {
+                Person p = (Person) c.value();
+                yield personNamed(d, p.getFirstName(), p.getLastName());
+            }
+            case DELETE_PERSON -> personNamed(d, c.name().get(0), c.name().get(1));
+            case UPDATE_FIRESTATION -> stationAt(d, ((Firestation) c.value()).getAddress());
+            case DELETE_FIRESTATION -> stationAt(d, (String) c.value());
+            case UPDATE_MEDICAL_RECORD -> {
+                MedicalRecord m = (MedicalRecord) c.value();
+                yield medicalNamed(d, m.getFirstName(), m.getLastName());
+            }
+            case DELETE_MEDICAL_RECORD -> medicalNamed(d, c.name().get(0), c.name().get(1));
+            default -> throw new IllegalArgumentException("Change cannot be conditional: " + c.op().label());
+        };
+    }
+
+    private static Person personNamed(Dataset d, String f, String l) {
+        String key = nameKey(f, l);
+        return d.store() != null ? d.store().personByName(key).orElse(null) : d.personIndex().byName().get(key);
+    }
+
+    private static Firestation stationAt(Dataset d, String address) {
+        String key = norm(address);
+        return d.store() != null ? d.store().stationByAddress(key).orElse(null) : d.stationIndex().byAddress().get(key);
+    }
+
+    private static MedicalRecord medicalNamed(Dataset d, String f, String l) {
+        String key = nameKey(f, l);
+        return d.store() != null ? d.store().medicalByName(key).orElse(null) : d.medicalIndex().get(key);
+    }
+
+    /** Gives the record an add or update writes the stamp {@code version}. */
+    private static void stamp(Change c, long version) {
+        if (c.value() instanceof Versioned v) v.setVersion(version);
+    }
+
+    static long nextVersion() {
+        return VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Applies {@code c} to the lists of {@code d}, which must not be published
+     * yet, without touching the indexes. Records are matched on the normalized
+     * keys of the indexes, so a change applies to the record a precondition
+     * looked up.
+     *
+     * @return the records removed and added, an update being both
+     */
+    private static Delta<?> apply(Change c, Dataset d) {
+        return switch (c.op()) {
+            case ADD_PERSON -> added(d.persons(), (Person) c.value());
+            case UPDATE_PERSON -> {
+                Person p = (Person) c.value();
+                String key = nameKey(p.getFirstName(), p.getLastName());
+                for (int i = 0; i < d.persons().size(); i++) {
+                    Person cur = d.persons().get(i);
+                    if (nameKey(cur.getFirstName(), cur.getLastName()).equals(key)) {
+                        // preserve key fields
+                        p.setFirstName(cur.getFirstName());
+                        p.setLastName(cur.getLastName());
+                        yield replaced(d.persons(), i, p);
+                    }
+                }
+                yield unchanged(d.persons());
+            }
+            case DELETE_PERSON -> {
+                String key = nameKey(c.name().get(0), c.name().get(1));
+                yield removeAll(d.persons(), x -> nameKey(x.getFirstName(), x.getLastName()).equals(key));
+            }
+            case ADD_FIRESTATION -> added(d.firestations(), (Firestation) c.value());
+            case UPDATE_FIRESTATION -> {
+                Firestation fm = (Firestation) c.value();
+                String address = norm(fm.getAddress());
+                for (int i = 0; i < d.firestations().size(); i++) {
+                    if (norm(d.firestations().get(i).getAddress()).equals(address)) {
+                        // preserve key fields
+                        fm.setAddress(d.firestations().get(i).getAddress());
+                        yield replaced(d.firestations(), i, fm);
+                    }
+                }
+                yield unchanged(d.firestations());
+            }
+            case DELETE_FIRESTATION -> {
+                String addressOrStation = (String) c.value();
+                int s;
+                try {
+                    s = Integer.parseInt(addressOrStation);
+                } catch (NumberFormatException e) {
+                    String address = norm(addressOrStation);
+                    yield removeAll(d.firestations(), x -> norm(x.getAddress()).equals(address));
+                }
+                yield removeAll(d.firestations(), x -> x.getStation() == s);
+            }
+            case DELETE_FIRESTATION_BY_STATION -> {
+                int station = (Integer) c.value();
+                yield removeAll(d.firestations(), f -> f.getStation() == station);
+            }
+            case ADD_MEDICAL_RECORD -> added(d.medicalrecords(), (MedicalRecord) c.value());
+            case UPDATE_MEDICAL_RECORD -> {
+                MedicalRecord m = (MedicalRecord) c.value();
+                String key = nameKey(m.getFirstName(), m.getLastName());
+                for (int i = 0; i < d.medicalrecords().size(); i++) {
+                    MedicalRecord cur = d.medicalrecords().get(i);
+                    if (nameKey(cur.getFirstName(), cur.getLastName()).equals(key)) {
+                        // preserve key fields
+                        m.setFirstName(cur.getFirstName());
+                        m.setLastName(cur.getLastName());
+                        yield replaced(d.medicalrecords(), i, m);
+                    }
+                }
+                yield unchanged(d.medicalrecords());
+            }
+            case DELETE_MEDICAL_RECORD -> {
+                String key = nameKey(c.name().get(0), c.name().get(1));
+                yield removeAll(d.medicalrecords(), x -> nameKey(x.getFirstName(), x.getLastName()).equals(key));
+            }
+        };
+    }
+
+    private static <T> Delta<T> added(List<T> list, T record) {
+        list.add(record);
+        return new Delta<>(list, List.of(), List.of(record));
+    }
+
+    private static <T> Delta<T> replaced(List<T> list, int i, T record) {
+        return new Delta<>(list, List.of(list.set(i, record)), List.of(record));
+    }
+
+    private static <T> Delta<T> removeAll(List<T> list, Predicate<T> filter) {
+        List<T> removed = new ArrayList<>();
+        list.removeIf(x -> filter.test(x) && removed.add(x));
+        return new Delta<>(list, removed, List.of());
+    }
+
+    private static <T> Delta<T> unchanged(List<T> list) {
+        return new Delta<>(list, List.of(), List.of());
+    }
+
+    // -------------- Indexes --------------
+
+    /**
+     * One consistent version of the three lists and their indexes. When
+     * {@code store} is set it serves all lookups, the lists are its views,
+     * the in-memory indexes are empty and {@code households} is {@code null}.
+     * {@code households} is built from the indexes and carried along as is by
+     * the copies a change works on; it is brought up to date when the change
+     * is published.
+     */
+    private record Dataset(List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalrecords,
+                           PersonIndex personIndex, StationIndex stationIndex,
+                           Map<String, MedicalRecord> medicalIndex, CompactStore store,
+                           Households households) implements Households.Source {
+        static final Dataset EMPTY = new Dataset(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                PersonIndex.build(List.of()), StationIndex.build(List.of()), Map.of(), null,
+                Households.build(LocalDate.EPOCH, Set.of(), null));
+
+        /** This version with a private copy of the list of {@code entity}, to apply changes to. */
+        Dataset copyOf(Change.Entity entity) {
+            return switch (entity) {
+                case PERSONS -> new Dataset(new ArrayList<>(persons), firestations, medicalrecords,
+                        personIndex, stationIndex, medicalIndex, store, households);
+                case FIRESTATIONS -> new Dataset(persons, new ArrayList<>(firestations), medicalrecords,
+                        personIndex, stationIndex, medicalIndex, store, households);
+                case MEDICAL_RECORDS -> new Dataset(persons, firestations, new ArrayList<>(medicalrecords),
+                        personIndex, stationIndex, medicalIndex, store, households);
+            };
+        }
+
+        Dataset withHouseholds(Households h) {
+            return new Dataset(persons, firestations, medicalrecords, personIndex, stationIndex, medicalIndex, store, h);
+        }
+
+        @Override
+        public List<Person> personsAt(String address) {
+            return DataRepository.personsAt(this, address);
+        }
+
+        @Override
+        public MedicalRecord medicalNamed(String nameKey) {
+            return store != null ? store.medicalByName(nameKey).orElse(null) : medicalIndex.get(nameKey);
+        }
+
+        @Override
+        public Firestation stationAt(String address) {
+            return DataRepository.stationAt(this, address);
+        }
+
+        @Override
+        public Set<String> addressesOfStation(int station) {
+            return store != null ? store.addressesOfStation(station)
+                    : stationIndex.addressesByStation().getOrDefault(station, Set.of());
+        }
+
+        /** This version with the list and index of {@code entity} taken from {@code other}. */
+        Dataset with(Dataset other, Change.Entity entity) {
+            return switch (entity) {
+                case PERSONS -> new Dataset(other.persons, firestations, medicalrecords,
+                        other.personIndex, stationIndex, medicalIndex, store, households);
+                case FIRESTATIONS -> new Dataset(persons, other.firestations, medicalrecords,
+                        personIndex, other.stationIndex, medicalIndex, store, households);
+                case MEDICAL_RECORDS -> new Dataset(persons, firestations, other.medicalrecords,
+                        personIndex, stationIndex, other.medicalIndex, store, households);
+            };
+        }
+    }
+
+    /** Identifies one version of the data file on disk. */
+    private record FileStamp(long size, long modified) {
+        static FileStamp of(File f) {
+            return f.exists() ? new FileStamp(f.length(), f.lastModified()) : null;
+        }
+    }
+
+    /** One section with its index and, if it was diffed rather than built in full, the delta. */
+    private record Section<T, I>(List<T> items, I index, Delta<T> delta) {
+    }
+
+    /** Binds one top-level section and builds its index on the common pool. */
+    private <T extends Versioned, I> CompletableFuture<Section<T, I>> loadSection(JsonNode root, String name,
+            TypeReference<List<T>> type, Function<List<T>, I> indexer) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<T> items = convertList(root.get(name), type);
+            if (items == null) items = new ArrayList<>();
+            return new Section<>(items, indexer.apply(items), null);
+        });
+    }
+
+    /**
+     * Binds one section and diffs it against {@code base}. An unchanged section
+     * is returned as is; a small delta is applied with {@code patcher}; keys that
+     * are not unique or a large delta fall back to a full {@code indexer} build.
+     */
+    private <T extends Versioned, I> CompletableFuture<Section<T, I>> diffSection(JsonNode root, String name,
+            TypeReference<List<T>> type, Section<T, I> base, Function<T, String> key,
+            Function<List<T>, I> indexer, BiFunction<I, Delta<T>, I> patcher) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<T> items = convertList(root.get(name), type);
+            if (items == null) items = new ArrayList<>();
+            Delta<T> delta = Delta.of(base.items(), items, key);
+            if (delta == null || delta.size() > Math.max(16, items.size() / 4)) {
+                log.debug("Reload {}: full rebuild ({} items)", name, items.size());
+                return new Section<>(items, indexer.apply(items), null);
+            }
+            log.debug("Reload {}: +{} -{}", name, delta.added().size(), delta.removed().size());
+            if (delta.size() == 0) return new Section<>(base.items(), base.index(), delta);
+            return new Section<>(delta.items(), patcher.apply(base.index(), delta), delta);
+        });
+    }
+
+    /**
+     * Key-based difference between two versions of a section. An update shows
+     * up as the old record in {@code removed} and the new one in {@code added};
+     * {@code items} is the new version with unchanged records kept as the
+     * current instances.
+     */
+    private record Delta<T>(List<T> items, List<T> removed, List<T> added) {
+
+        int size() {
+            return removed.size() + added.size();
+        }
+
+        /** Removed and added records, the old and new version of an update both. */
+        List<T> changed() {
+            List<T> out = new ArrayList<>(removed);
+            out.addAll(added);
+            return out;
+        }
+
+        /** @return the delta, or {@code null} when a key occurs twice in either version */
+        static <T> Delta<T> of(List<T> current, List<T> incoming, Function<T, String> key) {
+            Map<String, T> byKey = new HashMap<>();
+            for (T t : current) {
+                if (byKey.put(key.apply(t), t) != null) return null;
+            }
+            Set<String> seen = new HashSet<>();
+            List<T> items = new ArrayList<>(incoming.size());
+            List<T> removed = new ArrayList<>();
+            List<T> added = new ArrayList<>();
+            for (T t : incoming) {
+                String k = key.apply(t);
+                if (!seen.add(k)) return null;
+                T old = byKey.remove(k);
+                if (t.equals(old)) {
+                    items.add(old);
+                } else {
+                    items.add(t);
+                    added.add(t);
+                    if (old != null) removed.add(old);
+                }
             }
+            removed.addAll(byKey.values());
+            return new Delta<>(items, removed, added);
         }
-        return false;
     }
 
-    public synchronized boolean deleteFirestation(String addressOrStation) throws IOException {
-        boolean changed;
+    /**
+     * Persons grouped by normalized address, in dataset order, and the first
+     * person per {@link #nameKey name key}.
+     */
+    private record PersonIndex(Map<String, List<Person>> byAddress, Map<String, Person> byName) {
+        static PersonIndex build(List<Person> persons) {
+            Map<String, List<Person>> byAddress = new HashMap<>();
+            Map<String, Person> byName = new HashMap<>();
+            for (Person p : persons) {
+                byName.putIfAbsent(nameKey(p.getFirstName(), p.getLastName()), p);
+                if (p.getAddress() == null) continue;
+                byAddress.computeIfAbsent(norm(p.getAddress()), k -> new ArrayList<>()).add(p);
+            }
+            return new PersonIndex(byAddress, byName);
+        }
+
+        /**
+         * Copies only the buckets of addresses the delta touches. An updated person
+         * who stays at the same address keeps their place in the bucket. A single
+         * other added person (an admin change) takes its place in list order;
+         * the many of a reload go last. Names are unique here (the delta
+         * guarantees it).
+         */
+        PersonIndex apply(Delta<Person> delta) {
+            Map<String, List<Person>> copy = new HashMap<>(byAddress);
+            Map<String, Person> names = new HashMap<>(byName);
+            Set<String> copied = new HashSet<>();
+            Map<String, Person> incoming = new HashMap<>();
+            for (Person p : delta.added()) incoming.put(nameKey(p.getFirstName(), p.getLastName()), p);
+            Set<Person> placed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Person p : delta.removed()) {
+                String name = nameKey(p.getFirstName(), p.getLastName());
+                names.remove(name);
+                if (p.getAddress() == null) continue;
+                String k = norm(p.getAddress());
+                List<Person> bucket = bucket(copy, copied, k);
+                Person next = incoming.get(name);
+                if (next != null && next.getAddress() != null && norm(next.getAddress()).equals(k)) {
+                    bucket.replaceAll(x -> x == p ? next : x);
+                    placed.add(next);
+                    continue;
+                }
+                bucket.removeIf(x -> x == p);
+                if (bucket.isEmpty()) copy.remove(k);
+            }
+            for (Person p : delta.added()) {
+                names.put(nameKey(p.getFirstName(), p.getLastName()), p);
+                if (p.getAddress() == null || placed.contains(p)) continue;
+                List<Person> bucket = bucket(copy, copied, norm(p.getAddress()));
+                if (delta.added().size() == 1) bucket.add(placeOf(delta.items(), x -> containsSame(bucket, x), bucket.size(), p), p);
+                else bucket.add(p);
+            }
+            return new PersonIndex(copy, names);
+        }
+
+        private static boolean containsSame(List<Person> bucket, Person p) {
+            for (Person x : bucket) {
+                if (x == p) return true;
+            }
+            return false;
+        }
+
+        private static List<Person> bucket(Map<String, List<Person>> map, Set<String> copied, String key) {
+            if (copied.add(key)) {
+                map.put(key, new ArrayList<>(map.getOrDefault(key, List.of())));
+            }
+            return map.get(key);
+        }
+    }
+
+    /**
+     * First mapping per normalized address, and the normalized addresses of
+     * each station (in mapping order).
+     */
+    record StationIndex(Map<String, Firestation> byAddress, Map<Integer, Set<String>> addressesByStation) {
+        static StationIndex build(List<Firestation> firestations) {
+            Map<String, Firestation> byAddress = new HashMap<>();
+            Map<Integer, Set<String>> byStation = new HashMap<>();
+            for (Firestation f : firestations) {
+                if (f == null || f.getAddress() == null) continue;
+                String key = norm(f.getAddress());
+                byAddress.putIfAbsent(key, f);
+                byStation.computeIfAbsent(f.getStation(), k -> new LinkedHashSet<>()).add(key);
+            }
+            return new StationIndex(byAddress, byStation);
+        }
+
+        /**
+         * Addresses are unique here (the delta guarantees it), so each maps to one
+         * station. A mapping updated to the same station keeps its place in it;
+         * otherwise a single added mapping takes its place in list order, and the
+         * many of a reload go last.
+         */
+        StationIndex apply(Delta<Firestation> delta) {
+            Map<String, Firestation> addresses = new HashMap<>(byAddress);
+            Map<Integer, Set<String>> stations = new HashMap<>(addressesByStation);
+            Set<Integer> copied = new HashSet<>();
+            Map<String, Firestation> incoming = new HashMap<>();
+            for (Firestation f : delta.added()) incoming.put(norm(f.getAddress()), f);
+            for (Firestation f : delta.removed()) {
+                String k = norm(f.getAddress());
+                addresses.remove(k);
+                Firestation next = incoming.get(k);
+                if (next != null && next.getStation() == f.getStation()) continue;
+                Set<String> set = stationSet(stations, copied, f.getStation());
+                set.remove(k);
+                if (set.isEmpty()) stations.remove(f.getStation());
+            }
+            for (Firestation f : delta.added()) {
+                String k = norm(f.getAddress());
+                addresses.put(k, f);
+                if (stations.getOrDefault(f.getStation(), Set.of()).contains(k)) continue;
+                Set<String> set = stationSet(stations, copied, f.getStation());
+                if (delta.added().size() == 1 && !set.isEmpty()) {
+                    List<String> ordered = new ArrayList<>(set);
+                    ordered.add(placeOf(delta.items(), x -> x.getStation() == f.getStation()
+                            && set.contains(norm(x.getAddress())), set.size(), f), k);
+                    set.clear();
+                    set.addAll(ordered);
+                } else {
+                    set.add(k);
+                }
+            }
+            return new StationIndex(addresses, stations);
+        }
+
+        private static Set<String> stationSet(Map<Integer, Set<String>> map, Set<Integer> copied, int station) {
+            if (copied.add(station)) {
+                map.put(station, new LinkedHashSet<>(map.getOrDefault(station, Set.of())));
+            }
+            return map.get(station);
+        }
+    }
+
+    /**
+     * Position at which {@code record} goes among the {@code members} records of
+     * {@code items} that {@code member} accepts, so that those stay in list order:
+     * one scan, skipped for a record appended to the list (the usual add).
+     */
+    private static <T> int placeOf(List<T> items, Predicate<T> member, int members, T record) {
+        if (items.get(items.size() - 1) == record) return members;
+        int before = 0;
+        for (T x : items) {
+            if (x == record) return before;
+            if (member.test(x)) before++;
+        }
+        return before;
+    }
+
+    /** First medical record per (first, last) name, case-insensitive. */
+    private static Map<String, MedicalRecord> indexMedical(List<MedicalRecord> records) {
+        Map<String, MedicalRecord> byName = new HashMap<>();
+        for (MedicalRecord m : records) {
+            byName.putIfAbsent(nameKey(m.getFirstName(), m.getLastName()), m);
+        }
+        return byName;
+    }
+
+    private static Map<String, MedicalRecord> applyMedical(Map<String, MedicalRecord> index, Delta<MedicalRecord> delta) {
+        Map<String, MedicalRecord> copy = new HashMap<>(index);
+        for (MedicalRecord m : delta.removed()) copy.remove(nameKey(m.getFirstName(), m.getLastName()));
+        for (MedicalRecord m : delta.added()) copy.put(nameKey(m.getFirstName(), m.getLastName()), m);
+        return copy;
+    }
+
+    /**
+     * {@code d} with the indexes of {@code entity} patched with {@code delta},
+     * the records a change removed from and added to its list. A patch keeps
+     * one entry per key, so while the list holds a key twice (which only a
+     * data file can bring in: adds check their key) the indexes are rebuilt;
+     * the index holding fewer entries than the list had records tells.
+     */
+    @SuppressWarnings("unchecked")
+    private static Dataset reindex(Dataset d, Change.Entity entity, Delta<?> delta) {
+        int before = delta.items().size() - delta.added().size() + delta.removed().size();
+        return switch (entity) {
+            case PERSONS -> d.personIndex().byName().size() != before ? reindex(d, entity)
+                    : new Dataset(d.persons(), d.firestations(), d.medicalrecords(),
+                    d.personIndex().apply((Delta<Person>) delta), d.stationIndex(),
+                    d.medicalIndex(), d.store(), d.households());
+            case FIRESTATIONS -> d.stationIndex().byAddress().size() != before ? reindex(d, entity)
+                    : new Dataset(d.persons(), d.firestations(), d.medicalrecords(), d.personIndex(),
+                    d.stationIndex().apply((Delta<Firestation>) delta),
+                    d.medicalIndex(), d.store(), d.households());
+            case MEDICAL_RECORDS -> d.medicalIndex().size() != before ? reindex(d, entity)
+                    : new Dataset(d.persons(), d.firestations(), d.medicalrecords(),
+                    d.personIndex(), d.stationIndex(),
+                    applyMedical(d.medicalIndex(), (Delta<MedicalRecord>) delta), d.store(),
+                    d.households());
+        };
+    }
+
+    /** {@code d} with the index of {@code entity} rebuilt from its list. */
+    private static Dataset reindex(Dataset d, Change.Entity entity) {
+        return switch (entity) {
+            case PERSONS -> new Dataset(d.persons(), d.firestations(), d.medicalrecords(),
+                    PersonIndex.build(d.persons()), d.stationIndex(), d.medicalIndex(), d.store(),
+                    d.households());
+            case FIRESTATIONS -> new Dataset(d.persons(), d.firestations(), d.medicalrecords(),
+                    d.personIndex(), StationIndex.build(d.firestations()), d.medicalIndex(), d.store(),
+                    d.households());
+            case MEDICAL_RECORDS -> new Dataset(d.persons(), d.firestations(), d.medicalrecords(),
+                    d.personIndex(), d.stationIndex(), indexMedical(d.medicalrecords()), d.store(),
+                    d.households());
+        };
+    }
+
+    /** Birthdate format of medical records ({@code MM/dd/yyyy}). */
+    static final DateTimeFormatter BIRTHDATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    static LocalDate parseBirthdate(String s) {
+        if (s == null) return null;
         try {
-            int s = Integer.parseInt(addressOrStation);
-            changed = firestations.removeIf(x -> x.getStation() == s);
-        } catch (NumberFormatException e) {
-            changed = firestations.removeIf(x -> x.getAddress().equalsIgnoreCase(addressOrStation));
+            return LocalDate.parse(s, BIRTHDATE);
+        } catch (DateTimeParseException e) {
+            return null;
         }
-        if (changed) save();
-        return changed;
     }
 
-    public synchronized int deleteFirestationByStation(int station) throws IOException {
-        int before = firestations.size();
-        boolean removed = firestations.removeIf(f -> f.getStation() == station);
-        int deletedCount = before - firestations.size();
-        if (removed) save();
-        return deletedCount;
+    static void addPhone(Set<String> out, String phone) {
+        if (phone == null) return;
+        String p = phone.trim();
+        if (!p.isEmpty()) out.add(p);
     }
 
-    public synchronized void addMedicalRecord(MedicalRecord m) throws IOException {
-        medicalrecords.add(m);
-        save();
+    static String nameKey(String first, String last) {
+        return norm(first) + '\n' + norm(last);
     }
 
-    public synchronized boolean updateMedicalRecord(MedicalRecord m) throws IOException {
-        for (int i = 0; i < medicalrecords.size(); i++) {
-            MedicalRecord cur = medicalrecords.get(i);
-            if (cur.getFirstName().equalsIgnoreCase(m.getFirstName())
-                    && cur.getLastName().equalsIgnoreCase(m.getLastName())) {
-                medicalrecords.set(i, m);
-                save();
-                return true;
-            }
+    // -------------- Instrumentation --------------
+
+    @FunctionalInterface
+    private interface Guarded<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Runs {@code body} while holding {@code locks}, taken in the given order,
+     * recording how long the caller waited to acquire them.
+     */
+    private <T> T withLocks(String op, List<ReentrantLock> locks, Guarded<T> body) throws IOException {
+        long requested = System.nanoTime();
+        for (ReentrantLock lock : locks) lock.lock();
+        try {
+            metrics.lockWait(op, System.nanoTime() - requested);
+            return body.run();
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) locks.get(i).unlock();
+        }
+    }
+
+    /** Every entity lock, then the engine lock: excludes all writers. */
+    private List<ReentrantLock> allLocks() {
+        List<ReentrantLock> locks = new ArrayList<>(entityLocks.values());
+        locks.add(engineLock);
+        return locks;
+    }
+
+    /** {@link #mutate} for admin changes; rejected when the dataset is read-only. */
+    private <T> T write(String op, List<ReentrantLock> locks, Guarded<T> body) throws IOException {
+        requireWritable();
+        return mutate(op, locks, body);
+    }
+
+    private void requireWritable() {
+        if (isCompact()) {
+            throw new UnsupportedOperationException("Dataset is read-only in " + storageMode + " storage mode");
+        }
+    }
+
+    /**
+     * Same as {@link #withLocks} but also times the whole operation (wait + work).
+     */
+    private <T> T mutate(String op, List<ReentrantLock> locks, Guarded<T> body) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return withLocks(op, locks, body);
+        } finally {
+            metrics.repository(op).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-        return false;
     }
 
-    public synchronized boolean deleteMedicalRecord(String f, String l) throws IOException {
-        boolean removed = medicalrecords.removeIf(x ->
-                x.getFirstName().equalsIgnoreCase(f)
-                        && x.getLastName().equalsIgnoreCase(l));
-        if (removed) save();
-        return removed;
+    private <T> T timed(String op, Supplier<T> query) {
+        return metrics.repository(op).record(query);
     }
 
     // -------------- Helpers --------------
 
-    private String norm(String s) {
+    static String norm(String s) {
         return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
     }
 
-    private <T> List<T> convertList(Object value, TypeReference<List<T>> type) {
+    /** Binds a section; its records share one new version stamp. */
+    private <T extends Versioned> List<T> convertList(Object value, TypeReference<List<T>> type) {
         if (value == null) return new ArrayList<>();
-        return mapper.convertValue(value, type);
+        List<T> items = mapper.convertValue(value, type);
+        if (items == null) return null;
+        long version = nextVersion();
+        for (T t : items) {
+            if (t != null) t.setVersion(version);
+        }
+        return items;
     }
 
     /**
@@ -0,0 +1,60 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Streams the sections of a {@code data.json} file record by record, so the
+ * compact stores can be built without holding the dataset as a tree or lists.
+ * Compressed data files are read through {@link SnapshotFile#open}.
+ */
+final class DatasetStream {
+
+    /** Receives one record at a time; may throw to abort the read. */
+    interface Sink {
+        void person(Person p) throws IOException;
+
+        void medicalRecord(MedicalRecord m) throws IOException;
+
+        void firestation(Firestation f) throws IOException;
+    }
+
+    private DatasetStream() {
+    }
+
+    static void read(File json, ObjectMapper mapper, Sink sink) throws IOException {
+        try (JsonParser p = mapper.getFactory().createParser(SnapshotFile.open(json))) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object in " + json);
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String section = p.currentName();
+                if (p.nextToken() != JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                switch (section) {
+                    case "persons" -> {
+                        while (p.nextToken() == JsonToken.START_OBJECT) sink.person(mapper.readValue(p, Person.class));
+                    }
+                    case "medicalrecords" -> {
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            sink.medicalRecord(mapper.readValue(p, MedicalRecord.class));
+                        }
+                    }
+                    case "firestations" -> {
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            sink.firestation(mapper.readValue(p, Firestation.class));
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Person;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+/**
+ * Everything the alert endpoints show about one address, as of the current
+ * day: its station and its residents with their ages, age groups and
+ * medical details. Returned by {@link DataRepository#findHousehold(String)}
+ * and kept up to date as persons, firestations and medical records change
+ * and as residents have birthdays; never modified.
+ *
+ * @param station   number of the station covering the address, {@code -1} if none does
+ * @param residents persons living at the address, in dataset order
+ * @param children  residents in {@link AgeGroup#CHILD}
+ * @param adults    residents in {@link AgeGroup#ADULT}
+ */
+public record Household(int station, List<Resident> residents, int children, int adults) {
+
+    /** Age groups of the alert endpoints: children are 0 to 18 years old. */
+    public enum AgeGroup {
+        CHILD, ADULT,
+        /** No medical record, a birthdate that cannot be parsed, or one more than a year ahead. */
+        UNKNOWN;
+
+        /** Group of someone born on {@code birthdate} (may be {@code null}) on {@code day}. */
+        static AgeGroup of(LocalDate birthdate, LocalDate day) {
+            if (birthdate == null) return UNKNOWN;
+            int age = age(birthdate, day);
+            if (age < 0) return UNKNOWN;
+            return age <= 18 ? CHILD : ADULT;
+        }
+    }
+
+    /**
+     * @param birthdate      from the medical record of the person; {@code null}
+     *                       if there is none or it cannot be parsed
+     * @param age            in whole years, {@code -1} without a birthdate
+     * @param name           first and last name, as displayed
+     * @param medications    from the medical record, empty without one
+     * @param allergies      from the medical record, empty without one
+     * @param otherResidents for a child, the names of the other residents; empty for everyone else
+     */
+    public record Resident(Person person, LocalDate birthdate, AgeGroup group, int age, String name,
+                           List<String> medications, List<String> allergies, List<String> otherResidents) {
+    }
+
+    static int age(LocalDate birthdate, LocalDate day) {
+        return Period.between(birthdate, day).getYears();
+    }
+}
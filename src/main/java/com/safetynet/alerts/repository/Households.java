@@ -0,0 +1,271 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.Household.AgeGroup;
+import com.safetynet.alerts.repository.Household.Resident;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.safetynet.alerts.repository.DataRepository.nameKey;
+import static com.safetynet.alerts.repository.DataRepository.norm;
+
+/**
+ * {@link Household}s by normalized address, with ages and age groups as of
+ * {@link #today()}.
+ * <p>
+ * Ages only change on birthdays. Each household is filed in a calendar under
+ * the next birthday of any of its residents, so moving on to a later day
+ * rebuilds only the households filed up to it; all others are still right.
+ * Changes rebuild only the households of the addresses, names and stations
+ * they touch.
+ * </p>
+ * <p>
+ * Instances are never modified once published: {@link #refresh} returns a
+ * copy that shares every household it does not rebuild.
+ * </p>
+ */
+final class Households {
+
+    /** The dataset version households are built from. */
+    interface Source {
+        /** Persons living at the normalized {@code address}, in dataset order. */
+        List<Person> personsAt(String address);
+
+        /** Medical record of the person with {@code nameKey}, or {@code null}. */
+        MedicalRecord medicalNamed(String nameKey);
+
+        /** Mapping of the normalized {@code address}, or {@code null}. */
+        Firestation stationAt(String address);
+
+        /** Normalized addresses mapped to {@code station}. */
+        Set<String> addressesOfStation(int station);
+    }
+
+    private final LocalDate today;
+    private final Map<String, Household> byAddress;
+    private final Map<String, Set<String>> addressesByName;
+    // next birthday of any resident, per address, and the reverse
+    private final Map<String, LocalDate> due;
+    private final NavigableMap<LocalDate, Set<String>> calendar;
+    // sets this copy created, which it modifies in place until it is returned; then null
+    private Set<Set<String>> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Households(LocalDate today, Map<String, Household> byAddress, Map<String, Set<String>> addressesByName,
+                       Map<String, LocalDate> due, NavigableMap<LocalDate, Set<String>> calendar) {
+        this.today = today;
+        this.byAddress = byAddress;
+        this.addressesByName = addressesByName;
+        this.due = due;
+        this.calendar = calendar;
+    }
+
+    /** The households at {@code addresses}, as of {@code day}. */
+    static Households build(LocalDate day, Set<String> addresses, Source source) {
+        Households h = new Households(day, new HashMap<>(), new HashMap<>(), new HashMap<>(), new TreeMap<>());
+        for (String address : addresses) h.put(address, source);
+        h.owned = null;
+        return h;
+    }
+
+    LocalDate today() {
+        return today;
+    }
+
+    /** Household at the normalized {@code address}, or {@code null} if nobody lives there. */
+    Household at(String address) {
+        return byAddress.get(address);
+    }
+
+    /** Addresses whose households must be rebuilt once {@code day} has come. */
+    Set<String> dueBy(LocalDate day) {
+        if (day.isBefore(today)) return new HashSet<>(byAddress.keySet());
+        Set<String> out = new HashSet<>();
+        for (Set<String> addresses : calendar.headMap(day, true).values()) out.addAll(addresses);
+        return out;
+    }
+
+    /**
+     * Addresses whose households {@code c} may change: the old and new
+     * address of a person, the addresses of everyone with the name of a
+     * medical record, and the addresses of a mapping or, in {@code before}
+     * the change, of a station.
+     */
+    Set<String> touchedBy(Change c, Source before) {
+        Set<String> out = new HashSet<>();
+        switch (c.op()) {
+            case ADD_PERSON, UPDATE_PERSON -> {
+                Person p = (Person) c.value();
+                out.addAll(addressesOf(nameKey(p.getFirstName(), p.getLastName())));
+                if (p.getAddress() != null) out.add(norm(p.getAddress()));
+            }
+            case ADD_MEDICAL_RECORD, UPDATE_MEDICAL_RECORD -> {
+                MedicalRecord m = (MedicalRecord) c.value();
+                out.addAll(addressesOf(nameKey(m.getFirstName(), m.getLastName())));
+            }
+            case DELETE_PERSON, DELETE_MEDICAL_RECORD -> out.addAll(addressesOf(nameKey(c.name().get(0), c.name().get(1))));
+            case ADD_FIRESTATION, UPDATE_FIRESTATION -> out.add(norm(((Firestation) c.value()).getAddress()));
+            case DELETE_FIRESTATION -> {
+                String addressOrStation = (String) c.value();
+                try {
+                    out.addAll(before.addressesOfStation(Integer.parseInt(addressOrStation)));
+                } catch (NumberFormatException e) {
+                    out.add(norm(addressOrStation));
+                }
+            }
+            case DELETE_FIRESTATION_BY_STATION -> out.addAll(before.addressesOfStation((Integer) c.value()));
+        }
+        return out;
+    }
+
+    /**
+     * Addresses whose households a reload may change that removed, added or
+     * replaced the given records: as for {@link #touchedBy(Change, Source)},
+     * with a replaced mapping showing up as the old and the new record both.
+     */
+    Set<String> touchedBy(Collection<Person> persons, Collection<Firestation> stations,
+                          Collection<MedicalRecord> records) {
+        Set<String> out = new HashSet<>();
+        for (Person p : persons) {
+            out.addAll(addressesOf(nameKey(p.getFirstName(), p.getLastName())));
+            if (p.getAddress() != null) out.add(norm(p.getAddress()));
+        }
+        for (Firestation f : stations) out.add(norm(f.getAddress()));
+        for (MedicalRecord m : records) out.addAll(addressesOf(nameKey(m.getFirstName(), m.getLastName())));
+        return out;
+    }
+
+    /**
+     * A copy as of {@code day} with the households at {@code addresses}
+     * rebuilt from {@code source}; every other household is kept as is, so
+     * {@code addresses} must include {@link #dueBy(LocalDate) dueBy(day)}.
+     */
+    Households refresh(Set<String> addresses, Source source, LocalDate day) {
+        if (addresses.isEmpty() && day.equals(today)) return this;
+        if (day.isBefore(today)) return build(day, byAddress.keySet(), source);
+        Households next = new Households(day, new HashMap<>(byAddress), new HashMap<>(addressesByName),
+                new HashMap<>(due), new TreeMap<>(calendar));
+        for (String address : addresses) {
+            next.remove(address);
+            next.put(address, source);
+        }
+        next.owned = null;
+        return next;
+    }
+
+    private Set<String> addressesOf(String nameKey) {
+        return addressesByName.getOrDefault(nameKey, Set.of());
+    }
+
+    // The two methods below only run on a copy that is not published yet. The sets
+    // inside the maps that are shared with earlier versions are replaced, never modified;
+    // a set is copied once per copy of the households, not once per address.
+
+    private void put(String address, Source source) {
+        List<Person> persons = source.personsAt(address);
+        if (persons.isEmpty()) return;
+        List<String> names = new ArrayList<>(persons.size());
+        for (Person p : persons) names.add(p.getFirstName() + " " + p.getLastName());
+        List<Resident> residents = new ArrayList<>(persons.size());
+        int children = 0, adults = 0;
+        LocalDate next = null;
+        for (int i = 0; i < persons.size(); i++) {
+            Person p = persons.get(i);
+            String key = nameKey(p.getFirstName(), p.getLastName());
+            MedicalRecord m = source.medicalNamed(key);
+            LocalDate birthdate = m == null ? null : DataRepository.parseBirthdate(m.getBirthdate());
+            AgeGroup group = AgeGroup.of(birthdate, today);
+            List<String> others = List.of();
+            if (group == AgeGroup.CHILD) {
+                children++;
+                others = othersThan(names, names.get(i));
+            } else if (group == AgeGroup.ADULT) {
+                adults++;
+            }
+            int age = birthdate == null ? -1 : Household.age(birthdate, today);
+            residents.add(new Resident(p, birthdate, group, age, names.get(i),
+                    m == null || m.getMedications() == null ? List.of() : m.getMedications(),
+                    m == null || m.getAllergies() == null ? List.of() : m.getAllergies(), others));
+            addressesByName.put(key, with(addressesByName.get(key), address));
+            LocalDate birthday = birthdate == null ? null : firstDayAged(birthdate, age + 1);
+            if (birthday != null && (next == null || birthday.isBefore(next))) next = birthday;
+        }
+        Firestation station = source.stationAt(address);
+        byAddress.put(address, new Household(station == null ? -1 : station.getStation(), List.copyOf(residents),
+                children, adults));
+        if (next != null) {
+            due.put(address, next);
+            calendar.put(next, with(calendar.get(next), address));
+        }
+    }
+
+    private void remove(String address) {
+        Household old = byAddress.remove(address);
+        if (old != null) {
+            for (Resident r : old.residents()) {
+                String name = nameKey(r.person().getFirstName(), r.person().getLastName());
+                replace(addressesByName, name, without(addressesByName.get(name), address));
+            }
+        }
+        LocalDate day = due.remove(address);
+        if (day != null) replace(calendar, day, without(calendar.get(day), address));
+    }
+
+    /** {@code names} without {@code name}, whichever resident has it. */
+    private static List<String> othersThan(List<String> names, String name) {
+        List<String> others = new ArrayList<>(names.size() - 1);
+        for (String n : names) {
+            if (!n.equals(name)) others.add(n);
+        }
+        return List.copyOf(others);
+    }
+
+    /** First day on which someone born on {@code birthdate} is {@code years} old (March 1 for February 29). */
+    static LocalDate firstDayAged(LocalDate birthdate, int years) {
+        // Period counts a birthdate less than a year ahead as age 0
+        LocalDate day = years <= 0 ? birthdate.plusYears(years - 1) : birthdate.plusYears(years);
+        while (Household.age(birthdate, day.minusDays(1)) >= years) day = day.minusDays(1);
+        while (Household.age(birthdate, day) < years) day = day.plusDays(1);
+        return day;
+    }
+
+    private Set<String> with(Set<String> set, String value) {
+        if (set == null) return Set.of(value);
+        if (set.contains(value)) return set;
+        Set<String> target = writable(set);
+        target.add(value);
+        return target;
+    }
+
+    private Set<String> without(Set<String> set, String value) {
+        if (set == null || !set.contains(value)) return set;
+        Set<String> target = writable(set);
+        target.remove(value);
+        return target;
+    }
+
+    /** {@code set} itself if this copy created it, else a copy that this copy owns. */
+    private Set<String> writable(Set<String> set) {
+        if (owned.contains(set)) return set;
+        Set<String> copy = new HashSet<>(set);
+        owned.add(copy);
+        return copy;
+    }
+
+    private static <K> void replace(Map<K, Set<String>> map, K key, Set<String> set) {
+        if (set == null || set.isEmpty()) map.remove(key);
+        else map.put(key, set);
+    }
+}
@@ -0,0 +1,244 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code journal} engine: the data file is a snapshot and each change is
+ * appended as one JSON line to {@code <data-file>.journal}, so an admin write
+ * costs one small append instead of a full rewrite.
+ * <p>
+ * The first journal line records the size and modification time of the
+ * snapshot it applies to. A journal whose snapshot no longer matches (the
+ * data file was compacted after the journal was written, or replaced from
+ * outside) is stale and discarded on {@link #open}. A torn last line from a
+ * crash mid-append is dropped.
+ * </p>
+ * <p>
+ * Compaction runs in the background: appends continue to the current journal
+ * while the snapshot is written, and the entries that arrive meanwhile are
+ * also kept aside. Before the new snapshot replaces the data file they are
+ * written, under a header for that snapshot, to {@code <data-file>.journal.next},
+ * which then replaces the journal. A crash between the two renames leaves a
+ * {@code .next} journal that matches the data file and is taken on
+ * {@link #open}; one that does not match is discarded with the snapshot it was
+ * written for.
+ * </p>
+ */
+final class JournalEngine implements StorageEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalEngine.class);
+
+    private final ObjectMapper mapper;
+    private final int compactAfter;
+    private final boolean fsync;
+
+    private File dataFile;
+    private File journalFile;
+    private FileChannel channel;
+    private int entries;
+
+    // Lines appended since the running background compaction captured the dataset; null when none runs.
+    private List<String> tail;
+
+    /**
+     * @param compactAfter changes appended before the snapshot is rewritten
+     * @param fsync        force each append to disk before the write returns
+     */
+    JournalEngine(ObjectMapper mapper, int compactAfter, boolean fsync) {
+        this.mapper = mapper;
+        this.compactAfter = Math.max(1, compactAfter);
+        this.fsync = fsync;
+    }
+
+    @Override
+    public List<Change> open(File dataFile) throws IOException {
+        close();
+        this.dataFile = dataFile;
+        this.journalFile = new File(dataFile.getPath() + ".journal");
+        takeNext();
+        List<Change> changes = read();
+        if (changes == null) {
+            startJournal();
+            return List.of();
+        }
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        entries = changes.size();
+        return changes;
+    }
+
+    @Override
+    public void commit(Change change, SnapshotWriter snapshot) throws IOException {
+        ObjectNode line = mapper.createObjectNode();
+        line.put("op", change.op().label());
+        line.set("value", mapper.valueToTree(change.value()));
+        append(line);
+        if (++entries >= compactAfter && tail == null) {
+            tail = new ArrayList<>();
+            if (!snapshot.writeInBackground(new Compactor())) tail = null;
+        }
+    }
+
+    @Override
+    public void flush(SnapshotWriter snapshot) throws IOException {
+        snapshot.write();
+        startJournal();
+    }
+
+    @Override
+    public void replaced(File dataFile) throws IOException {
+        close();
+        this.dataFile = dataFile;
+        this.journalFile = new File(dataFile.getPath() + ".journal");
+        startJournal();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /** @return the journaled changes, or {@code null} if there is no journal for the current snapshot */
+    private List<Change> read() throws IOException {
+        if (!journalFile.exists()) return null;
+        List<Change> changes = new ArrayList<>();
+        long valid = 0;
+        try (BufferedReader in = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String header = in.readLine();
+            if (header == null || !header.equals(header())) {
+                log.info("Discarding stale journal {}", journalFile.getAbsolutePath());
+                return null;
+            }
+            valid = header.getBytes(StandardCharsets.UTF_8).length + 1;
+            for (String line; (line = in.readLine()) != null; ) {
+                Change c;
+                try {
+                    JsonNode node = mapper.readTree(line);
+                    Change.Op op = Change.Op.of(node.get("op").asText());
+                    c = new Change(op, mapper.treeToValue(node.get("value"), op.type()));
+                } catch (JsonProcessingException | RuntimeException e) {
+                    log.warn("Dropping unreadable journal entry {} in {}", changes.size() + 1, journalFile.getAbsolutePath());
+                    break;
+                }
+                changes.add(c);
+                valid += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+        long length = journalFile.length();
+        if (valid != length) {
+            try (FileChannel ch = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+                if (valid < length) {
+                    ch.truncate(valid);
+                } else {
+                    // last entry is complete but its newline was not written
+                    ch.write(ByteBuffer.wrap(new byte[] {'\n'}), length);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /** Atomically replaces the journal with an empty one for the current snapshot. */
+    private void startJournal() throws IOException {
+        close();
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        Files.writeString(tmp.toPath(), header() + "\n", StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), journalFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        entries = 0;
+    }
+
+    private void append(JsonNode line) throws IOException {
+        String text = mapper.writeValueAsString(line) + "\n";
+        ByteBuffer buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) channel.write(buf);
+        if (fsync) channel.force(false);
+        if (tail != null) tail.add(text);
+    }
+
+    private String header() {
+        return header(dataFile);
+    }
+
+    private static String header(File snapshot) {
+        return "{\"snapshot\":{\"size\":" + snapshot.length() + ",\"modified\":" + snapshot.lastModified() + "}}";
+    }
+
+    private File nextFile() {
+        return new File(journalFile.getPath() + ".next");
+    }
+
+    /** Completes a compaction that crashed after its snapshot replaced the data file. */
+    private void takeNext() throws IOException {
+        File next = nextFile();
+        if (!next.exists()) return;
+        String header;
+        try (BufferedReader in = Files.newBufferedReader(next.toPath(), StandardCharsets.UTF_8)) {
+            header = in.readLine();
+        }
+        if (header().equals(header)) {
+            log.info("Completing interrupted compaction of {}", journalFile.getAbsolutePath());
+            Files.move(next.toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.delete(next.toPath());
+        }
+    }
+
+    /** Swaps in the journal of a background snapshot; see the class comment. */
+    private final class Compactor implements Compaction {
+
+        @Override
+        public void beforePublish(File temp) throws IOException {
+            StringBuilder text = new StringBuilder(header(temp)).append('\n');
+            for (String line : tail) text.append(line);
+            try (FileChannel ch = FileChannel.open(nextFile().toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(false);
+            }
+        }
+
+        @Override
+        public void published() throws IOException {
+            int kept = tail.size();
+            tail = null;
+            close();
+            Files.move(nextFile().toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            entries = kept;
+        }
+
+        @Override
+        public void abandoned() {
+            tail = null;
+            try {
+                Files.deleteIfExists(nextFile().toPath());
+            } catch (IOException e) {
+                log.warn("Could not remove {}", nextFile().getAbsolutePath(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Read-only, memory-mapped form of a dataset, for regions too large to keep as
+ * model objects on the heap.
+ * <p>
+ * {@link #build} compiles {@code data.json} in one streaming pass into a binary
+ * file: fixed-size rows of string-heap offsets for persons (7 ints), medical
+ * records (5 ints) and firestations (2 ints), a string heap of length-prefixed
+ * UTF-8 values (medication/allergy lists are a count plus offsets), and two
+ * lookup indexes, persons by normalized address and medical records by name.
+ * Each index entry is {@code hash(key) << 32 | row}, sorted, so a lookup is a
+ * binary search over a mapped {@link LongBuffer} followed by a key check.
+ * </p>
+ * <p>
+ * {@link #persons()} and {@link #medicalRecords()} are list views whose
+ * elements are flyweights decoding their fields from the mapping on each
+ * getter call; nothing per row is kept on the heap. Firestations are small and
+ * are materialized. Each section must stay below 2 GB.
+ * </p>
+ */
+final class MappedDataset implements CompactStore {
+
+    private static final long MAGIC = 0x534e4d4150303031L; // "SNMAP001"
+    private static final int HEADER = 8 + 3 * 4 + 6 * 8;
+    private static final int PERSON_ROW = 7 * 4;
+    private static final int MEDICAL_ROW = 5 * 4;
+    private static final int STATION_ROW = 2 * 4;
+
+    // Person columns
+    private static final int FIRST = 0, LAST = 1, ADDRESS = 2, CITY = 3, ZIP = 4, PHONE = 5, EMAIL = 6;
+    // Medical record columns
+    private static final int BIRTHDATE = 2, MEDICATIONS = 3, ALLERGIES = 4;
+
+    private final int personCount;
+    private final int medicalCount;
+    private final ByteBuffer persons;
+    private final ByteBuffer medical;
+    private final LongBuffer personsByAddress;
+    private final LongBuffer medicalByName;
+    private final ByteBuffer strings;
+    private final List<Firestation> firestations;
+    private final DataRepository.StationIndex stationIndex;
+
+    private MappedDataset(int personCount, int medicalCount, ByteBuffer persons, ByteBuffer medical,
+                          LongBuffer personsByAddress, LongBuffer medicalByName, ByteBuffer strings,
+                          List<Firestation> firestations) {
+        this.personCount = personCount;
+        this.medicalCount = medicalCount;
+        this.persons = persons;
+        this.medical = medical;
+        this.personsByAddress = personsByAddress;
+        this.medicalByName = medicalByName;
+        this.strings = strings;
+        this.firestations = firestations;
+        this.stationIndex = DataRepository.StationIndex.build(firestations);
+    }
+
+    // -------------- Open --------------
+
+    /**
+     * Maps {@code bin}, rebuilding it from {@code json} first when it is missing
+     * or older than the JSON file.
+     */
+    static MappedDataset openOrBuild(File json, File bin, ObjectMapper mapper) throws IOException {
+        if (!bin.exists() || bin.lastModified() < json.lastModified()) {
+            build(json, bin, mapper);
+        }
+        return open(bin);
+    }
+
+    static MappedDataset open(File bin) throws IOException {
+        try (FileChannel ch = FileChannel.open(bin.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer h = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (h.getLong() != MAGIC) throw new IOException("Not a mapped dataset: " + bin);
+            int personCount = h.getInt();
+            int medicalCount = h.getInt();
+            int stationCount = h.getInt();
+            long personsAt = h.getLong();
+            long medicalAt = h.getLong();
+            long stationsAt = h.getLong();
+            long personIndexAt = h.getLong();
+            long medicalIndexAt = h.getLong();
+            long stringsAt = h.getLong();
+
+            ByteBuffer strings = map(ch, stringsAt, ch.size() - stringsAt);
+            ByteBuffer stations = map(ch, stationsAt, (long) stationCount * STATION_ROW);
+            List<Firestation> firestations = new ArrayList<>(stationCount);
+            for (int i = 0; i < stationCount; i++) {
+                firestations.add(new Firestation(string(strings, stations.getInt(i * STATION_ROW)),
+                        stations.getInt(i * STATION_ROW + 4)));
+            }
+            return new MappedDataset(personCount, medicalCount,
+                    map(ch, personsAt, (long) personCount * PERSON_ROW),
+                    map(ch, medicalAt, (long) medicalCount * MEDICAL_ROW),
+                    map(ch, personIndexAt, (long) personCount * 8).asLongBuffer(),
+                    map(ch, medicalIndexAt, (long) medicalCount * 8).asLongBuffer(),
+                    strings, firestations);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel ch, long at, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("Mapped section exceeds 2 GB");
+        return ch.map(FileChannel.MapMode.READ_ONLY, at, length);
+    }
+
+    // -------------- Views and lookups --------------
+
+    @Override
+    public List<Person> persons() {
+        return new RowList<>(personCount) {
+            @Override
+            public Person get(int i) {
+                return new MappedPerson(MappedDataset.this, checkRow(i, personCount));
+            }
+        };
+    }
+
+    @Override
+    public List<MedicalRecord> medicalRecords() {
+        return new RowList<>(medicalCount) {
+            @Override
+            public MedicalRecord get(int i) {
+                return new MappedMedicalRecord(MappedDataset.this, checkRow(i, medicalCount));
+            }
+        };
+    }
+
+    @Override
+    public List<Firestation> firestations() {
+        return firestations;
+    }
+
+    @Override
+    public Optional<Firestation> stationByAddress(String key) {
+        return Optional.ofNullable(stationIndex.byAddress().get(key));
+    }
+
+    @Override
+    public Set<String> addressesOfStation(int station) {
+        return stationIndex.addressesByStation().getOrDefault(station, Set.of());
+    }
+
+    @Override
+    public List<Person> personsByAddress(String key) {
+        List<Person> res = new ArrayList<>();
+        int hash = key.hashCode();
+        for (int i = lowerBound(personsByAddress, hash); i < personCount; i++) {
+            long e = personsByAddress.get(i);
+            if ((int) (e >> 32) != hash) break;
+            int row = (int) e;
+            if (key.equals(DataRepository.norm(personField(row, ADDRESS)))) {
+                res.add(new MappedPerson(this, row));
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public Optional<MedicalRecord> medicalByName(String key) {
+        int hash = key.hashCode();
+        for (int i = lowerBound(medicalByName, hash); i < medicalCount; i++) {
+            long e = medicalByName.get(i);
+            if ((int) (e >> 32) != hash) break;
+            int row = (int) e;
+            if (key.equals(DataRepository.nameKey(medicalField(row, FIRST), medicalField(row, LAST)))) {
+                return Optional.of(new MappedMedicalRecord(this, row));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static int lowerBound(LongBuffer index, int hash) {
+        long target = (long) hash << 32;
+        int lo = 0, hi = index.limit();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.get(mid) < target) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int checkRow(int i, int count) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException("row " + i + " of " + count);
+        return i;
+    }
+
+    String personField(int row, int column) {
+        return string(strings, persons.getInt(row * PERSON_ROW + column * 4));
+    }
+
+    String medicalField(int row, int column) {
+        return string(strings, medical.getInt(row * MEDICAL_ROW + column * 4));
+    }
+
+    List<String> medicalList(int row, int column) {
+        int at = medical.getInt(row * MEDICAL_ROW + column * 4);
+        if (at < 0) return null;
+        int n = strings.getInt(at);
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(string(strings, strings.getInt(at + 4 + 4 * i)));
+        return out;
+    }
+
+    // Absolute reads only, so the shared buffers are safe for concurrent readers.
+    private static String string(ByteBuffer heap, int at) {
+        if (at < 0) return null;
+        byte[] b = new byte[heap.getInt(at)];
+        heap.get(at + 4, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private abstract static class RowList<T> extends AbstractList<T> implements RandomAccess {
+        private final int size;
+
+        RowList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /** Person decoded from the mapping on each getter call. */
+    static final class MappedPerson extends Person {
+        private final MappedDataset ds;
+        private final int row;
+
+        MappedPerson(MappedDataset ds, int row) {
+            this.ds = ds;
+            this.row = row;
+        }
+
+        @Override public String getFirstName() { return ds.personField(row, FIRST); }
+        @Override public String getLastName() { return ds.personField(row, LAST); }
+        @Override public String getAddress() { return ds.personField(row, ADDRESS); }
+        @Override public String getCity() { return ds.personField(row, CITY); }
+        @Override public String getZip() { return ds.personField(row, ZIP); }
+        @Override public String getPhone() { return ds.personField(row, PHONE); }
+        @Override public String getEmail() { return ds.personField(row, EMAIL); }
+
+        @Override public void setFirstName(String v) { throw readOnly(); }
+        @Override public void setLastName(String v) { throw readOnly(); }
+        @Override public void setAddress(String v) { throw readOnly(); }
+        @Override public void setCity(String v) { throw readOnly(); }
+        @Override public void setZip(String v) { throw readOnly(); }
+        @Override public void setPhone(String v) { throw readOnly(); }
+        @Override public void setEmail(String v) { throw readOnly(); }
+    }
+
+    /** Medical record decoded from the mapping on each getter call. */
+    static final class MappedMedicalRecord extends MedicalRecord {
+        private final MappedDataset ds;
+        private final int row;
+
+        MappedMedicalRecord(MappedDataset ds, int row) {
+            this.ds = ds;
+            this.row = row;
+        }
+
+        @Override public String getFirstName() { return ds.medicalField(row, FIRST); }
+        @Override public String getLastName() { return ds.medicalField(row, LAST); }
+        @Override public String getBirthdate() { return ds.medicalField(row, BIRTHDATE); }
+        @Override public List<String> getMedications() { return ds.medicalList(row, MEDICATIONS); }
+        @Override public List<String> getAllergies() { return ds.medicalList(row, ALLERGIES); }
+
+        @Override public void setFirstName(String v) { throw readOnly(); }
+        @Override public void setLastName(String v) { throw readOnly(); }
+        @Override public void setBirthdate(String v) { throw readOnly(); }
+        @Override public void setMedications(List<String> v) { throw readOnly(); }
+        @Override public void setAllergies(List<String> v) { throw readOnly(); }
+    }
+
+    static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Dataset is read-only in mapped storage mode");
+    }
+
+    // -------------- Build --------------
+
+    /**
+     * Compiles {@code json} into {@code bin} in one streaming pass. The file is
+     * written next to {@code bin} and renamed over it, so an existing mapping of
+     * the previous version stays valid.
+     */
+    static void build(File json, File bin, ObjectMapper mapper) throws IOException {
+        File dir = bin.getAbsoluteFile().getParentFile();
+        File personsTmp = File.createTempFile("persons", ".rows", dir);
+        File medicalTmp = File.createTempFile("medical", ".rows", dir);
+        File stationsTmp = File.createTempFile("stations", ".rows", dir);
+        File stringsTmp = File.createTempFile("strings", ".heap", dir);
+        File out = File.createTempFile(bin.getName(), ".tmp", dir);
+        try {
+            LongArray personIndex = new LongArray();
+            LongArray medicalIndex = new LongArray();
+            int[] counts = new int[3];
+            try (DataOutputStream pr = data(personsTmp);
+                 DataOutputStream mr = data(medicalTmp);
+                 DataOutputStream sr = data(stationsTmp);
+                 StringHeap heap = new StringHeap(data(stringsTmp))) {
+                DatasetStream.read(json, mapper, new DatasetStream.Sink() {
+                    @Override
+                    public void person(Person x) throws IOException {
+                        for (String v : new String[] { x.getFirstName(), x.getLastName(), x.getAddress(),
+                                x.getCity(), x.getZip(), x.getPhone(), x.getEmail() }) {
+                            pr.writeInt(heap.add(v));
+                        }
+                        personIndex.add(entry(DataRepository.norm(x.getAddress()).hashCode(), counts[0]++));
+                    }
+
+                    @Override
+                    public void medicalRecord(MedicalRecord x) throws IOException {
+                        mr.writeInt(heap.add(x.getFirstName()));
+                        mr.writeInt(heap.add(x.getLastName()));
+                        mr.writeInt(heap.add(x.getBirthdate()));
+                        mr.writeInt(heap.addList(x.getMedications()));
+                        mr.writeInt(heap.addList(x.getAllergies()));
+                        String key = DataRepository.nameKey(x.getFirstName(), x.getLastName());
+                        medicalIndex.add(entry(key.hashCode(), counts[1]++));
+                    }
+
+                    @Override
+                    public void firestation(Firestation x) throws IOException {
+                        sr.writeInt(heap.add(x.getAddress()));
+                        sr.writeInt(x.getStation());
+                        counts[2]++;
+                    }
+                });
+            }
+            int personCount = counts[0], medicalCount = counts[1], stationCount = counts[2];
+
+            long personsAt = HEADER;
+            long medicalAt = personsAt + personsTmp.length();
+            long stationsAt = medicalAt + medicalTmp.length();
+            long personIndexAt = stationsAt + stationsTmp.length();
+            long medicalIndexAt = personIndexAt + (long) personCount * 8;
+            long stringsAt = medicalIndexAt + (long) medicalCount * 8;
+            try (FileChannel ch = FileChannel.open(out.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer h = ByteBuffer.allocate(HEADER);
+                h.putLong(MAGIC).putInt(personCount).putInt(medicalCount).putInt(stationCount)
+                        .putLong(personsAt).putLong(medicalAt).putLong(stationsAt)
+                        .putLong(personIndexAt).putLong(medicalIndexAt).putLong(stringsAt).flip();
+                writeFully(ch, h);
+                append(ch, personsTmp);
+                append(ch, medicalTmp);
+                append(ch, stationsTmp);
+                writeIndex(ch, personIndex.sorted());
+                writeIndex(ch, medicalIndex.sorted());
+                append(ch, stringsTmp);
+            }
+            Files.move(out.toPath(), bin.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            for (File f : new File[] { personsTmp, medicalTmp, stationsTmp, stringsTmp, out }) {
+                Files.deleteIfExists(f.toPath());
+            }
+        }
+    }
+
+    private static long entry(int hash, int row) {
+        return (long) hash << 32 | (row & 0xffffffffL);
+    }
+
+    private static DataOutputStream data(File f) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16));
+    }
+
+    private static void append(FileChannel out, File f) throws IOException {
+        try (FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long pos = 0, size = in.size();
+            while (pos < size) pos += in.transferTo(pos, size - pos, out);
+        }
+    }
+
+    private static void writeIndex(FileChannel ch, long[] index) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        for (long e : index) {
+            if (!buf.hasRemaining()) {
+                buf.flip();
+                writeFully(ch, buf);
+                buf.clear();
+            }
+            buf.putLong(e);
+        }
+        buf.flip();
+        writeFully(ch, buf);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    /** Growable primitive array for index entries. */
+    private static final class LongArray {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        long[] sorted() {
+            long[] out = Arrays.copyOf(values, size);
+            Arrays.sort(out);
+            return out;
+        }
+    }
+
+    /**
+     * Appends length-prefixed UTF-8 strings and returns their offsets. Recently
+     * written values are reused, which collapses repeated cities, zips,
+     * addresses and medications without an unbounded dictionary.
+     */
+    private static final class StringHeap implements AutoCloseable {
+        private static final int RECENT = 1 << 16;
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> recent = new LinkedHashMap<>(RECENT, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > RECENT;
+            }
+        };
+        private long size;
+
+        StringHeap(DataOutputStream out) {
+            this.out = out;
+        }
+
+        int add(String s) throws IOException {
+            if (s == null) return -1;
+            Integer known = recent.get(s);
+            if (known != null) return known;
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            int at = reserve(4 + b.length);
+            out.writeInt(b.length);
+            out.write(b);
+            recent.put(s, at);
+            return at;
+        }
+
+        int addList(List<String> values) throws IOException {
+            if (values == null) return -1;
+            int[] offsets = new int[values.size()];
+            for (int i = 0; i < offsets.length; i++) offsets[i] = add(values.get(i));
+            int at = reserve(4 + 4 * offsets.length);
+            out.writeInt(offsets.length);
+            for (int o : offsets) out.writeInt(o);
+            return at;
+        }
+
+        private int reserve(int bytes) throws IOException {
+            if (size + bytes > Integer.MAX_VALUE) throw new IOException("String heap exceeds 2 GB");
+            int at = (int) size;
+            size += bytes;
+            return at;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
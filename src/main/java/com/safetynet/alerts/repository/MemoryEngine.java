@@ -0,0 +1,24 @@
+package com.safetynet.alerts.repository;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * {@code memory} engine: the data file is read at startup and never written,
+ * so changes live until the process exits. Meant for tests and benchmarks.
+ */
+final class MemoryEngine implements StorageEngine {
+
+    @Override
+    public List<Change> open(File dataFile) {
+        return List.of();
+    }
+
+    @Override
+    public void commit(Change change, SnapshotWriter snapshot) {
+    }
+
+    @Override
+    public void flush(SnapshotWriter snapshot) {
+    }
+}
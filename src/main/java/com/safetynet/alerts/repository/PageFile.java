@@ -0,0 +1,270 @@
+package com.safetynet.alerts.repository;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size pages of one file behind an LRU buffer pool.
+ * <p>
+ * Page 0 is the meta page: a magic number, the page count and
+ * {@value #META_SLOTS} long slots for the client. Writes go to the pool and
+ * reach the file on {@link #flush()}, which first logs the dirty pages to
+ * {@code <file>.wal}, forces it, writes the pages in place and forces the
+ * file. The log always holds at most the last flush, so replaying it on open
+ * after a crash is idempotent, and a log torn by a crash fails its checksum
+ * and is ignored (the pages in place were not touched yet).
+ * </p>
+ * <p>
+ * Clean pages are evicted least-recently-used once the pool exceeds its
+ * capacity; dirty pages stay until the next flush. Not thread-safe.
+ * </p>
+ */
+final class PageFile implements Closeable {
+
+    static final int PAGE_SIZE = 8192;
+    static final int META_SLOTS = 32;
+
+    private static final int MAGIC = 0x534E4254; // "SNBT"
+    private static final int WAL_MAGIC = 0x534E574C; // "SNWL"
+
+    private final FileChannel channel;
+    private File file;
+    private File wal;
+    private final Map<Integer, Page> pool;
+    private int pageCount;
+
+    private static final class Page {
+        final byte[] data;
+        boolean dirty;
+
+        Page(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    private PageFile(File file, int cachePages) throws IOException {
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.file = file;
+        this.wal = new File(file.getPath() + ".wal");
+        int capacity = Math.max(16, cachePages);
+        this.pool = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                return size() > capacity && !eldest.getValue().dirty && eldest.getKey() != 0;
+            }
+        };
+    }
+
+    /** Creates an empty file with only the meta page, replacing any existing one. */
+    static PageFile create(File file, int cachePages) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(new File(file.getPath() + ".wal").toPath());
+        PageFile f = new PageFile(file, cachePages);
+        f.pageCount = 1;
+        Page meta = new Page(new byte[PAGE_SIZE]);
+        ByteBuffer.wrap(meta.data).putInt(0, MAGIC).putInt(4, 1);
+        meta.dirty = true;
+        f.pool.put(0, meta);
+        return f;
+    }
+
+    /**
+     * Opens an existing file, first replaying a complete write-ahead log.
+     *
+     * @throws IOException if the file is not a page file
+     */
+    static PageFile open(File file, int cachePages) throws IOException {
+        PageFile f = new PageFile(file, cachePages);
+        try {
+            f.recover();
+            ByteBuffer meta = ByteBuffer.wrap(f.page(0).data);
+            if (f.channel.size() < PAGE_SIZE || meta.getInt(0) != MAGIC) {
+                throw new IOException("Not a page file: " + file.getAbsolutePath());
+            }
+            f.pageCount = meta.getInt(4);
+        } catch (IOException | RuntimeException e) {
+            f.close();
+            throw e;
+        }
+        return f;
+    }
+
+    int pageCount() {
+        return pageCount;
+    }
+
+    /** Page contents; callers must not modify the array, use {@link #write}. */
+    byte[] read(int id) throws IOException {
+        return page(id).data;
+    }
+
+    void write(int id, byte[] data) {
+        if (data.length != PAGE_SIZE) throw new IllegalArgumentException("page size " + data.length);
+        Page p = new Page(data);
+        p.dirty = true;
+        pool.put(id, p);
+    }
+
+    /** @return the id of a new, zeroed page */
+    int allocate() {
+        int id = pageCount++;
+        write(id, new byte[PAGE_SIZE]);
+        setPageCount();
+        return id;
+    }
+
+    long meta(int slot) throws IOException {
+        return ByteBuffer.wrap(page(0).data).getLong(metaOffset(slot));
+    }
+
+    void setMeta(int slot, long value) throws IOException {
+        Page meta = page(0);
+        ByteBuffer.wrap(meta.data).putLong(metaOffset(slot), value);
+        meta.dirty = true;
+    }
+
+    /** Writes dirty pages through the log and forces them to disk. */
+    void flush() throws IOException {
+        List<Map.Entry<Integer, Page>> dirty = dirtyPages();
+        if (dirty.isEmpty()) return;
+        writeLog(dirty);
+        writePages(dirty);
+        channel.force(false);
+        try (FileChannel log = FileChannel.open(wal.toPath(), StandardOpenOption.WRITE)) {
+            log.truncate(0);
+        }
+    }
+
+    /** Writes dirty pages in place without the log or a force, for files that are rebuilt after a crash anyway. */
+    void flushUnlogged() throws IOException {
+        writePages(dirtyPages());
+    }
+
+    /**
+     * Renames this file, which must have no unflushed pages, over {@code target}
+     * and deletes the log of the file it replaces; later flushes log to
+     * {@code <target>.wal}. The open channel follows the rename.
+     */
+    void moveTo(File target) throws IOException {
+        if (!dirtyPages().isEmpty()) throw new IllegalStateException("unflushed pages");
+        File targetWal = new File(target.getPath() + ".wal");
+        Files.deleteIfExists(targetWal.toPath());
+        Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(wal.toPath());
+        file = target;
+        wal = targetWal;
+    }
+
+    /** Closes this file and deletes it with its log. */
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(wal.toPath());
+    }
+
+    /** Forgets unflushed changes. */
+    void rollback() throws IOException {
+        pool.values().removeIf(p -> p.dirty);
+        pageCount = ByteBuffer.wrap(page(0).data).getInt(4);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // -------------- Internals --------------
+
+    private static int metaOffset(int slot) {
+        if (slot < 0 || slot >= META_SLOTS) throw new IllegalArgumentException("meta slot " + slot);
+        return 16 + slot * 8;
+    }
+
+    private void setPageCount() {
+        Page meta = pool.get(0);
+        ByteBuffer.wrap(meta.data).putInt(4, pageCount);
+        meta.dirty = true;
+    }
+
+    private Page page(int id) throws IOException {
+        Page p = pool.get(id);
+        if (p != null) return p;
+        if (id < 0 || (id >= pageCount && id != 0)) throw new IOException("page " + id + " out of range");
+        byte[] data = new byte[PAGE_SIZE];
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        long pos = (long) id * PAGE_SIZE;
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos + buf.position());
+            if (n < 0) break;
+        }
+        p = new Page(data);
+        pool.put(id, p);
+        return p;
+    }
+
+    private List<Map.Entry<Integer, Page>> dirtyPages() {
+        List<Map.Entry<Integer, Page>> dirty = new ArrayList<>();
+        for (Map.Entry<Integer, Page> e : pool.entrySet()) {
+            if (e.getValue().dirty) dirty.add(e);
+        }
+        return dirty;
+    }
+
+    private void writePages(List<Map.Entry<Integer, Page>> pages) throws IOException {
+        for (Map.Entry<Integer, Page> e : pages) {
+            ByteBuffer buf = ByteBuffer.wrap(e.getValue().data);
+            long pos = (long) e.getKey() * PAGE_SIZE;
+            while (buf.hasRemaining()) channel.write(buf, pos + buf.position());
+            e.getValue().dirty = false;
+        }
+    }
+
+    /** Log layout: magic, count, count x (id, page), CRC32 of all preceding bytes. */
+    private void writeLog(List<Map.Entry<Integer, Page>> pages) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8 + pages.size() * (4 + PAGE_SIZE) + 8);
+        buf.putInt(WAL_MAGIC).putInt(pages.size());
+        for (Map.Entry<Integer, Page> e : pages) buf.putInt(e.getKey()).put(e.getValue().data);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putLong(crc.getValue()).flip();
+        try (FileChannel log = FileChannel.open(wal.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) log.write(buf);
+            log.force(true);
+        }
+    }
+
+    private void recover() throws IOException {
+        if (!wal.exists() || wal.length() == 0) return;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(wal.toPath()));
+        if (buf.remaining() < 16 || buf.getInt(0) != WAL_MAGIC) return;
+        int count = buf.getInt(4);
+        int end = 8 + count * (4 + PAGE_SIZE);
+        if (count < 0 || end + 8 != buf.limit()) return;
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, end);
+        if (crc.getValue() != buf.getLong(end)) return;
+        for (int i = 0; i < count; i++) {
+            int off = 8 + i * (4 + PAGE_SIZE);
+            ByteBuffer page = ByteBuffer.wrap(buf.array(), off + 4, PAGE_SIZE);
+            long pos = (long) buf.getInt(off) * PAGE_SIZE;
+            while (page.hasRemaining()) channel.write(page, pos + page.position() - off - 4);
+        }
+        channel.force(false);
+        try (FileChannel log = FileChannel.open(wal.toPath(), StandardOpenOption.WRITE)) {
+            log.truncate(0);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Crash-safe writes of the data file.
+ * <p>
+ * A snapshot is streamed to a temporary file in the same directory, forced to
+ * disk and then renamed over the data file, so readers and a crash only ever
+ * see the previous or the new version. The last member of the written object
+ * is {@code "checksum" : "crc32:<hex>:<length>"}: the CRC32 of the first
+ * {@code length} bytes, everything before that member. {@link #verify} checks
+ * it before the file is read. A file rewritten by another tool no longer ends
+ * where the checksum says, and is read without verification.
+ * </p>
+ * <p>
+ * With a compression level above 0 the snapshot is written GZIP-compressed.
+ * {@link #open} recognizes the GZIP header, so readers get the JSON either
+ * way; such a file is verified by the CRC of the GZIP trailer, which
+ * {@link #open} checks when the stream is closed, instead of by {@link #verify}.
+ * </p>
+ */
+final class SnapshotFile {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotFile.class);
+
+    static final String CHECKSUM_FIELD = "checksum";
+
+    private static final String TRAILER = ",\n  \"" + CHECKSUM_FIELD + "\" : \"crc32:%08x:%d\"\n}";
+    private static final Pattern CHECKSUM = Pattern.compile(
+            "\"" + CHECKSUM_FIELD + "\" : \"crc32:([0-9a-f]{8}):(\\d+)\"\\n}$");
+    private static final int TAIL = 128;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes {@code sections} to {@code target} through a temporary file.
+     *
+     * @param level 0 for plain JSON, 1-9 for GZIP at that {@link Deflater} level
+     */
+    static void write(File target, ObjectMapper mapper, Map<String, ?> sections, int level) throws IOException {
+        publish(writeTemp(target, mapper, sections, level), target);
+    }
+
+    /**
+     * Writes {@code sections} as a pretty-printed JSON object with a checksum
+     * to a new temporary file next to {@code target} and forces it to disk.
+     *
+     * @param level 0 for plain JSON, 1-9 for GZIP at that {@link Deflater} level
+     * @return the temporary file; the caller {@linkplain #publish publishes} or deletes it
+     */
+    static File writeTemp(File target, ObjectMapper mapper, Map<String, ?> sections, int level) throws IOException {
+        if (level < 0 || level > 9) throw new IllegalArgumentException("Compression level must be 0-9: " + level);
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null) dir.mkdirs();
+        File temp = File.createTempFile(target.getName() + ".", ".tmp", dir);
+        try (FileOutputStream fos = new FileOutputStream(temp)) {
+            OutputStream sink = new BufferedOutputStream(fos, 1 << 16);
+            DeflaterOutputStream gzip = level > 0 ? new LeveledGzip(sink, level) : null;
+            CheckedStream out = new CheckedStream(gzip != null ? gzip : sink);
+            try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.useDefaultPrettyPrinter();
+                gen.writeStartObject();
+                for (Map.Entry<String, ?> e : sections.entrySet()) {
+                    gen.writeFieldName(e.getKey());
+                    mapper.writeValue(gen, e.getValue());
+                }
+            }
+            long length = out.length;
+            long crc = out.crc.getValue();
+            out.write(String.format(TRAILER, crc, length).getBytes(StandardCharsets.UTF_8));
+            if (gzip != null) gzip.finish();
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        return temp;
+    }
+
+    /** Atomically replaces {@code target} with {@code temp} and forces the directory entry. */
+    static void publish(File temp, File target) throws IOException {
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        syncDirectory(target);
+    }
+
+    /**
+     * Opens {@code file} for reading, decompressing it if it was written with
+     * GZIP. Closing a compressed stream reads it to the end, so a damaged file
+     * fails the GZIP CRC check even if the JSON parser stopped early.
+     */
+    static InputStream open(File file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+        try {
+            if (!isGzip(in)) return in;
+            return new FilterInputStream(new GZIPInputStream(in, 1 << 16)) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) return;
+                    closed = true;
+                    try {
+                        byte[] rest = new byte[8192];
+                        while (read(rest) >= 0) {
+                            // drain up to the trailer so its CRC is checked
+                        }
+                    } finally {
+                        super.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** @return whether {@code file} starts with the GZIP magic number */
+    static boolean isCompressed(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 2)) {
+            return isGzip(in);
+        }
+    }
+
+    private static boolean isGzip(InputStream in) throws IOException {
+        in.mark(2);
+        int b0 = in.read();
+        int b1 = in.read();
+        in.reset();
+        return b0 == (GZIPInputStream.GZIP_MAGIC & 0xFF) && b1 == (GZIPInputStream.GZIP_MAGIC >>> 8);
+    }
+
+    /**
+     * Checks the embedded checksum of {@code file}, if it has one that still
+     * applies. Compressed files are left to the GZIP CRC ({@link #open}).
+     *
+     * @throws IOException if the checksum does not match the content
+     */
+    static void verify(File file) throws IOException {
+        long size = file.length();
+        if (size < TAIL / 4 || isCompressed(file)) return;
+        Matcher m;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            int n = (int) Math.min(TAIL, size);
+            byte[] tail = new byte[n];
+            raf.seek(size - n);
+            raf.readFully(tail);
+            m = CHECKSUM.matcher(new String(tail, StandardCharsets.UTF_8));
+        }
+        if (!m.find()) return;
+        long crc = Long.parseLong(m.group(1), 16);
+        long length = Long.parseLong(m.group(2));
+        if (length + String.format(TRAILER, crc, length).length() != size) return;
+
+        CRC32 actual = new CRC32();
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            long left = length;
+            while (left > 0) {
+                int r = in.read(buf, 0, (int) Math.min(buf.length, left));
+                if (r < 0) break;
+                actual.update(buf, 0, r);
+                left -= r;
+            }
+        }
+        if (actual.getValue() != crc) {
+            throw new IOException("Checksum mismatch in " + file.getAbsolutePath()
+                    + String.format(": expected crc32 %08x, found %08x", crc, actual.getValue()));
+        }
+    }
+
+    /** Removes temporary files left next to {@code target} by writes that never completed. */
+    static void deleteTemps(File target) {
+        File dir = target.getAbsoluteFile().getParentFile();
+        String prefix = target.getName() + ".";
+        File[] temps = dir == null ? null
+                : dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".tmp"));
+        if (temps == null) return;
+        for (File t : temps) {
+            if (t.delete()) log.info("Removed incomplete snapshot {}", t.getAbsolutePath());
+        }
+    }
+
+    private static void syncDirectory(File target) {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the rename itself is still atomic
+            log.debug("Could not force directory {}", dir, e);
+        }
+    }
+
+    /** {@link GZIPOutputStream} at a chosen level. */
+    private static final class LeveledGzip extends GZIPOutputStream {
+        LeveledGzip(OutputStream out, int level) throws IOException {
+            super(out, 1 << 16);
+            def.setLevel(level);
+        }
+    }
+
+    /** Counts and checksums the bytes written through it. */
+    private static final class CheckedStream extends OutputStream {
+        final OutputStream out;
+        final CRC32 crc = new CRC32();
+        long length;
+
+        CheckedStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc.update(b);
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            crc.update(b, off, len);
+            length += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.safetynet.alerts.repository;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Durability strategy of {@link DataRepository}, selected with
+ * {@code safetynet.storage.engine}.
+ * <p>
+ * The repository always starts from the JSON data file and keeps the live
+ * dataset and its indexes in memory; an engine decides how admin changes are
+ * made durable. {@link #open} returns changes recorded since that file was
+ * written, which the repository replays; {@link #commit} is called, under the
+ * repository's engine lock, after each change has been applied in memory. Engines
+ * that need the full dataset on disk ask for it through the
+ * {@link SnapshotWriter} they are given, either right away or on a background
+ * thread so that the mutators do not wait for it.
+ * </p>
+ *
+ * <ul>
+ *   <li>{@code json} — rewrites the data file after every change, outside the
+ *       engine lock (default)</li>
+ *   <li>{@code journal} — appends changes to {@code <data-file>.journal} and
+ *       rewrites the data file in the background every
+ *       {@code safetynet.storage.journal.compact-after} changes</li>
+ *   <li>{@code memory} — never writes; changes are lost on restart</li>
+ *   <li>{@code btree} — keeps the dataset in {@code <data-file>.btree} ({@link StoreEngine})</li>
+ * </ul>
+ */
+public interface StorageEngine extends Closeable {
+
+    /** Writes the current dataset to the data file ({@link SnapshotFile}). */
+    interface SnapshotWriter {
+
+        /** Writes the dataset before returning. */
+        void write() throws IOException;
+
+        /**
+         * From {@link #commit}: writes the dataset, including the change, once
+         * the repository has released its locks and before the mutation
+         * returns. Rewrites that wait at the same time are coalesced: one that
+         * captured the dataset after this change was published covers it.
+         * Elsewhere, the same as {@link #write()}.
+         */
+        default void writeAfterCommit() throws IOException {
+            write();
+        }
+
+        /**
+         * Captures the dataset and writes it on a background thread; the caller
+         * keeps the engine lock only for the capture. {@code compaction} is called
+         * back under that lock once the write completes or is given up.
+         *
+         * @return {@code false} if a background snapshot is already running
+         */
+        boolean writeInBackground(Compaction compaction) throws IOException;
+    }
+
+    /**
+     * Callbacks of a background snapshot, each run under the repository's engine lock.
+     * Changes committed after the capture are not in the snapshot.
+     */
+    interface Compaction {
+
+        /** The snapshot is complete and forced in {@code temp}, which is about to replace the data file. */
+        void beforePublish(File temp) throws IOException;
+
+        /** {@code temp} has replaced the data file. */
+        void published() throws IOException;
+
+        /**
+         * The snapshot failed, or a newer write or an external replacement
+         * superseded it; the data file was not replaced.
+         */
+        void abandoned();
+    }
+
+    /**
+     * Attaches the engine to {@code dataFile}, which has just been read.
+     *
+     * @return changes made after {@code dataFile} was written, oldest first
+     */
+    List<Change> open(File dataFile) throws IOException;
+
+    /** Makes {@code change}, already applied in memory, durable. */
+    void commit(Change change, SnapshotWriter snapshot) throws IOException;
+
+    /** Makes the whole dataset durable ({@link DataRepository#save()}). */
+    void flush(SnapshotWriter snapshot) throws IOException;
+
+    /**
+     * Called after an externally replaced data file was swapped in; anything
+     * recorded against the previous file no longer applies.
+     */
+    default void replaced(File dataFile) throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
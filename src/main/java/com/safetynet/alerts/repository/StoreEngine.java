@@ -0,0 +1,33 @@
+package com.safetynet.alerts.repository;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link StorageEngine} that keeps the dataset itself. The repository then
+ * holds no lists: it serves lookups from the {@link CompactStore} and applies
+ * changes to it, and {@link #commit} only has to make them durable.
+ */
+interface StoreEngine extends StorageEngine {
+
+    /** Opens the store for {@code dataFile}, building it from the JSON when needed. */
+    CompactStore openStore(File dataFile) throws IOException;
+
+    /**
+     * Builds a store from a replacement {@code dataFile} beside the current one,
+     * which the engine keeps writing to until {@link #adopt} hands it the new
+     * one. Called without any lock held.
+     */
+    CompactStore buildStore(File dataFile) throws IOException;
+
+    /**
+     * Makes {@code store}, from {@link #buildStore}, the one the engine writes
+     * to, and closes the current one. Called under every lock, once the
+     * reload is sure to be swapped in; if it throws, the current store is
+     * still in use.
+     */
+    void adopt(CompactStore store) throws IOException;
+
+    /** Closes and removes {@code store}, from {@link #buildStore}, whose replacement was not swapped in. */
+    void discard(CompactStore store) throws IOException;
+}
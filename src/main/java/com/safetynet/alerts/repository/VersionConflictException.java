@@ -0,0 +1,23 @@
+package com.safetynet.alerts.repository;
+
+/**
+ * A conditional update or delete found the record at another version than the
+ * one the caller read: someone else changed it in the meantime.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long currentVersion;
+
+    public VersionConflictException(long expectedVersion, long currentVersion) {
+        super("Record was modified concurrently: expected version " + expectedVersion
+                + ", found " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    /** Version of the record as it is now. */
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
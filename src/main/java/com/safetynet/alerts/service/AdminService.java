@@ -56,6 +56,14 @@ public class AdminService {
         return repo.deleteFirestation(address);
     }
 
+    public boolean updateFirestation(Firestation f, long expectedVersion) throws IOException {
+        return repo.updateFirestation(f, expectedVersion);
+    }
+
+    public boolean deleteFirestation(String address, long expectedVersion) throws IOException {
+        return repo.deleteFirestation(address, expectedVersion);
+    }
+
     public int deleteFirestationByStation(int station) throws IOException {
         return repo.deleteFirestationByStation(station);
     }
@@ -82,6 +90,14 @@ public class AdminService {
         return repo.deleteMedicalRecord(firstName, lastName);
     }
 
+    public boolean updateMedicalRecord(MedicalRecord m, long expectedVersion) throws IOException {
+        return repo.updateMedicalRecord(m, expectedVersion);
+    }
+
+    public boolean deleteMedicalRecord(String firstName, String lastName, long expectedVersion) throws IOException {
+        return repo.deleteMedicalRecord(firstName, lastName, expectedVersion);
+    }
+
     public Optional<MedicalRecord> getMedicalRecord(String firstName, String lastName) {
         return repo.findMedical(firstName, lastName);
     }
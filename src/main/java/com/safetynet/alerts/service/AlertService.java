@@ -1,15 +1,19 @@
 package com.safetynet.alerts.service;
 
 import com.safetynet.alerts.dto.*;
+import com.safetynet.alerts.metrics.AlertMetrics;
 import com.safetynet.alerts.model.*;
 import com.safetynet.alerts.repository.DataRepository;
+import com.safetynet.alerts.repository.Household;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +37,20 @@ import java.util.stream.Collectors;
  * <p><b>Important:</b> Address comparisons are normalized (trim + lowercase) to
  * be resilient to minor data inconsistencies.</p>
  *
+ * <p>Each endpoint method is timed and its result size recorded through
+ * {@link AlertMetrics} (tag {@code endpoint}).</p>
+ *
+ * <p>{@code firestation}, {@code childAlert}, {@code fire} and
+ * {@code floodStations} are single-flight: a call that arrives while an
+ * identical one is computing (same endpoint, normalized parameters and
+ * {@linkplain DataRepository#generation() dataset generation}) waits for it
+ * and returns the same result object. Results of these methods are therefore
+ * shared and must not be modified by callers.</p>
+ *
+ * <p>{@code firestation} and {@code floodStations} also take a {@link Deadline}:
+ * their scans check it as they go and throw {@link DeadlineExceededException}
+ * once it has passed.</p>
+ *
  * @since 1.0
  */
 @Service
@@ -40,15 +58,32 @@ public class AlertService {
     private static final Logger log = LoggerFactory.getLogger(AlertService.class);
 
     private final DataRepository repo;
+    private final AlertMetrics metrics;
     private final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private final SingleFlight<Query, Object> inFlight = new SingleFlight<>();
+
+    /** Identity of a coalesced computation; {@code params} are normalized. */
+    private record Query(String endpoint, Object params, long generation) {}
 
     /**
-     * Creates the service with the required data repository.
+     * Creates the service with the required data repository and private metrics.
      *
      * @param repo shared in-memory data repository
      */
     public AlertService(DataRepository repo) {
+        this(repo, AlertMetrics.standalone());
+    }
+
+    /**
+     * Creates the service with the required data repository.
+     *
+     * @param repo    shared in-memory data repository
+     * @param metrics latency / result-size meters
+     */
+    @Autowired
+    public AlertService(DataRepository repo, AlertMetrics metrics) {
         this.repo = repo;
+        this.metrics = metrics;
     }
 
     /**
@@ -109,35 +144,45 @@ public class AlertService {
      * @return a map response with keys {@code persons}, {@code adults}, {@code children}
      */
     public Map<String, Object> firestation(int stationNumber) {
-        // diagnostics omitted in doc; safe to keep for debugging
-        Set<String> addrs = addressesForStation(stationNumber);
+        return firestation(stationNumber, Deadline.NONE);
+    }
 
-        List<Person> persons = repo.getPersons().stream()
-            .filter(p -> p.getAddress() != null)
-            .filter(p -> addrs.contains(norm(p.getAddress())))
-            .toList();
+    /**
+     * Like {@link #firestation(int)}, but gives up once {@code deadline} passes.
+     *
+     * @throws DeadlineExceededException if it does
+     */
+    public Map<String, Object> firestation(int stationNumber, Deadline deadline) {
+        return metrics.query("firestation",
+                () -> coalesced("firestation", stationNumber, deadline,
+                        () -> computeFirestation(stationNumber, deadline)),
+                AlertService::resultSize);
+    }
 
-        List<PersonSummaryDTO> list = new ArrayList<>();
-        int adults = 0, children = 0;
+    private Map<String, Object> computeFirestation(int stationNumber, Deadline deadline) {
+        Set<String> addrs = addressesForStation(stationNumber);
 
-        for (Person p : persons) {
+        List<PersonSummaryDTO> list = new ArrayList<>();
+        int scanned = 0;
+        for (Person p : repo.getPersons()) {
+            if ((scanned++ & 255) == 0) deadline.check();
+            if (p.getAddress() == null || !addrs.contains(norm(p.getAddress()))) continue;
             PersonSummaryDTO dto = new PersonSummaryDTO();
             dto.firstName = p.getFirstName();
             dto.lastName = p.getLastName();
             dto.address = p.getAddress();
             dto.phone = p.getPhone();
             list.add(dto);
-
-            Optional<MedicalRecord> mr = repo.findMedical(p.getFirstName(), p.getLastName());
-            int age = mr.map(m -> ageFromBirthdate(m.getBirthdate())).orElse(-1);
-            if (age >= 0 && age <= 18) children++;
-            else if (age > 18) adults++;
         }
 
+        // counts come from the age groups the repository keeps per household
+        deadline.check();
+        DataRepository.AgeCounts counts = repo.ageCountsAt(addrs);
+
         Map<String, Object> res = new LinkedHashMap<>();
         res.put("persons", list);
-        res.put("adults", adults);
-        res.put("children", children);
+        res.put("adults", counts.adults());
+        res.put("children", counts.children());
         return res;
     }
 
@@ -154,27 +199,24 @@ public class AlertService {
      * @return list of {@link ChildAlertDTO} or an empty map if none
      */
     public Object childAlert(String address) {
-        List<Person> ppl = repo.findPersonsByAddress(address);
-        List<ChildAlertDTO> children = new ArrayList<>();
-        List<String> household = ppl.stream()
-            .map(p -> p.getFirstName() + " " + p.getLastName())
-            .collect(Collectors.toList());
+        return metrics.query("childAlert",
+                () -> coalesced("childAlert", norm(address), () -> computeChildAlert(address)),
+                AlertService::resultSize);
+    }
 
-        for (Person p : ppl) {
-            Optional<MedicalRecord> mr = repo.findMedical(p.getFirstName(), p.getLastName());
-            int age = mr.map(m -> ageFromBirthdate(m.getBirthdate())).orElse(-1);
-            if (age >= 0 && age <= 18) {
-                ChildAlertDTO c = new ChildAlertDTO();
-                c.firstName = p.getFirstName();
-                c.lastName = p.getLastName();
-                c.age = age;
-                c.otherHouseholdMembers = household.stream()
-                    .filter(h -> !h.equals(p.getFirstName() + " " + p.getLastName()))
-                    .collect(Collectors.toList());
-                children.add(c);
-            }
+    private Object computeChildAlert(String address) {
+        Household h = repo.findHousehold(address).orElse(null);
+        if (h == null || h.children() == 0) return new HashMap<>();
+        List<ChildAlertDTO> children = new ArrayList<>(h.children());
+        for (Household.Resident r : h.residents()) {
+            if (r.group() != Household.AgeGroup.CHILD) continue;
+            ChildAlertDTO c = new ChildAlertDTO();
+            c.firstName = r.person().getFirstName();
+            c.lastName = r.person().getLastName();
+            c.age = r.age();
+            c.otherHouseholdMembers = r.otherResidents();
+            children.add(c);
         }
-        if (children.isEmpty()) return new HashMap<>();
         return children;
     }
 
@@ -187,19 +229,14 @@ public class AlertService {
      * @return a map with key {@code phones} and a list value
      */
     public Object phoneAlert(int stationNumber) {
-        Set<String> addrs = addressesForStation(stationNumber);
+        return metrics.query("phoneAlert", () -> computePhoneAlert(stationNumber), AlertService::resultSize);
+    }
 
-        Set<String> phones = repo.getPersons().stream()
-            .filter(p -> p.getAddress() != null)
-            .filter(p -> addrs.contains(norm(p.getAddress())))
-            .map(Person::getPhone)
-            .filter(Objects::nonNull)
-            .map(String::trim)
-            .filter(str -> !str.isEmpty())
-            .collect(Collectors.toCollection(LinkedHashSet::new));
+    private Object computePhoneAlert(int stationNumber) {
+        Set<String> addrs = addressesForStation(stationNumber);
 
         Map<String, Object> res = new LinkedHashMap<>();
-        res.put("phones", new ArrayList<>(phones));
+        res.put("phones", repo.phonesAt(addrs));
         return res;
     }
 
@@ -212,23 +249,26 @@ public class AlertService {
      * @return {@link FireResponseDTO} or an empty map if none
      */
     public Object fire(String address) {
-        List<Person> ppl = repo.findPersonsByAddress(address);
-        if (ppl.isEmpty()) return new HashMap<>();
-        int station = repo.findStationByAddress(address).map(Firestation::getStation).orElse(-1);
-        List<ResidentDetailsDTO> residents = new ArrayList<>();
-        for (Person p : ppl) {
+        return metrics.query("fire", () -> coalesced("fire", norm(address), () -> computeFire(address)),
+                AlertService::resultSize);
+    }
+
+    private Object computeFire(String address) {
+        Household h = repo.findHousehold(address).orElse(null);
+        if (h == null) return new HashMap<>();
+        List<ResidentDetailsDTO> residents = new ArrayList<>(h.residents().size());
+        for (Household.Resident hr : h.residents()) {
             ResidentDetailsDTO r = new ResidentDetailsDTO();
-            r.firstName = p.getFirstName();
-            r.lastName = p.getLastName();
-            r.phone = p.getPhone();
-            Optional<MedicalRecord> mr = repo.findMedical(p.getFirstName(), p.getLastName());
-            r.age = mr.map(m -> ageFromBirthdate(m.getBirthdate())).orElse(-1);
-            r.medications = mr.map(MedicalRecord::getMedications).orElse(Collections.emptyList());
-            r.allergies = mr.map(MedicalRecord::getAllergies).orElse(Collections.emptyList());
+            r.firstName = hr.person().getFirstName();
+            r.lastName = hr.person().getLastName();
+            r.phone = hr.person().getPhone();
+            r.age = hr.age();
+            r.medications = hr.medications();
+            r.allergies = hr.allergies();
             residents.add(r);
         }
         FireResponseDTO dto = new FireResponseDTO();
-        dto.station = station;
+        dto.station = h.station();
         dto.residents = residents;
         return dto;
     }
@@ -241,13 +281,43 @@ public class AlertService {
      * @return map of address to list of {@link ResidentDetailsDTO}; empty map if no addresses
      */
     public Object floodStations(List<Integer> stations) {
-        Set<String> addrs = repo.getFirestations().stream()
-            .filter(f -> stations.contains(f.getStation()))
-            .map(Firestation::getAddress)
-            .collect(Collectors.toSet());
+        return floodStations(stations, Deadline.NONE);
+    }
+
+    /**
+     * Like {@link #floodStations(List)}, but gives up once {@code deadline} passes.
+     *
+     * @throws DeadlineExceededException if it does
+     */
+    public Object floodStations(List<Integer> stations, Deadline deadline) {
+        return metrics.query("floodStations",
+                () -> coalesced("floodStations", stationSet(stations), deadline,
+                        () -> computeFloodStations(stations, deadline)),
+                AlertService::resultSize);
+    }
+
+    /** The result only depends on which stations are asked for, not their order or repetition. */
+    private static Set<Integer> stationSet(List<Integer> stations) {
+        if (stations == null) return null;
+        Set<Integer> set = new TreeSet<>();
+        for (Integer s : stations) {
+            if (s != null) set.add(s);
+        }
+        return set;
+    }
+
+    private Object computeFloodStations(List<Integer> stations, Deadline deadline) {
+        Set<Integer> wanted = new HashSet<>(stations);
+        Set<String> addrs = new HashSet<>();
+        int scanned = 0;
+        for (Firestation f : repo.getFirestations()) {
+            if ((scanned++ & 255) == 0) deadline.check();
+            if (wanted.contains(f.getStation())) addrs.add(f.getAddress());
+        }
         if (addrs.isEmpty()) return new HashMap<>();
         Map<String, List<ResidentDetailsDTO>> out = new LinkedHashMap<>();
         for (String addr : addrs) {
+            deadline.check();
             List<Person> ppl = repo.findPersonsByAddress(addr);
             List<ResidentDetailsDTO> residents = new ArrayList<>();
             for (Person p : ppl) {
@@ -274,6 +344,10 @@ public class AlertService {
      * @return list of {@link PersonInfoDTO}; empty list if none
      */
     public Object personInfo(String lastName) {
+        return metrics.query("personInfo", () -> computePersonInfo(lastName), AlertService::resultSize);
+    }
+
+    private Object computePersonInfo(String lastName) {
         List<Person> persons = repo.getPersons().stream()
             .filter(p -> p.getLastName().equalsIgnoreCase(lastName))
             .collect(Collectors.toList());
@@ -302,13 +376,55 @@ public class AlertService {
      * @return a DTO containing the unique emails list or an empty map if none
      */
     public Object communityEmail(String city) {
-        List<String> emails = repo.getPersons().stream()
-            .filter(p -> p.getCity().equalsIgnoreCase(city))
-            .map(Person::getEmail).distinct()
-            .collect(Collectors.toList());
+        return metrics.query("communityEmail", () -> computeCommunityEmail(city), AlertService::resultSize);
+    }
+
+    private Object computeCommunityEmail(String city) {
+        List<String> emails = repo.emailsInCity(city);
         if (emails.isEmpty()) return new HashMap<>();
         CommunityEmailDTO dto = new CommunityEmailDTO();
         dto.emails = emails;
         return dto;
     }
+
+    private <T> T coalesced(String endpoint, Object params, Supplier<T> compute) {
+        return coalesced(endpoint, params, Deadline.NONE, compute);
+    }
+
+    /**
+     * Runs {@code compute}, or waits for an identical computation already
+     * running against the current dataset generation. The generation is read
+     * before the data, so a shared result never predates a write that
+     * completed before this call. If the computation this call waited for
+     * ran out of its starter's deadline, it is run again under this one.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesced(String endpoint, Object params, Deadline deadline, Supplier<T> compute) {
+        while (true) {
+            Query key = new Query(endpoint, params, repo.generation());
+            try {
+                return (T) inFlight.run(key, compute::get, () -> metrics.coalesced(endpoint), deadline);
+            } catch (DeadlineExceededException e) {
+                if (e.getDeadline() == deadline || deadline.expired()) throw e;
+            }
+        }
+    }
+
+    /**
+     * Number of result rows carried by an endpoint response (persons, phones,
+     * residents, emails...). Empty-map responses count as zero.
+     */
+    static int resultSize(Object res) {
+        if (res instanceof Collection<?> c) return c.size();
+        if (res instanceof FireResponseDTO f) return f.residents == null ? 0 : f.residents.size();
+        if (res instanceof CommunityEmailDTO e) return e.emails == null ? 0 : e.emails.size();
+        if (res instanceof Map<?, ?> m) {
+            int total = 0;
+            for (Object v : m.values()) {
+                if (v instanceof Collection<?> c) total += c.size();
+            }
+            return total;
+        }
+        return 0;
+    }
 }
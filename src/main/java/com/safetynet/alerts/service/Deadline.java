@@ -0,0 +1,88 @@
+package com.safetynet.alerts.service;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Point in time by which a caller needs its answer. Long-running queries call
+ * {@link #check()} as they go and give up with {@link DeadlineExceededException}
+ * once it has passed, instead of finishing work nobody waits for.
+ */
+public final class Deadline {
+
+    /** No deadline: {@link #check()} never throws. */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE, null);
+
+    private final long startNanos;
+    private final long budgetNanos;
+    private final Duration budget;
+
+    private Deadline(long budgetNanos, Duration budget) {
+        this.startNanos = System.nanoTime();
+        this.budgetNanos = budgetNanos;
+        this.budget = budget;
+    }
+
+    /** A deadline {@code budget} from now. */
+    public static Deadline after(Duration budget) {
+        if (budget.isNegative()) throw new IllegalArgumentException("Negative deadline: " + budget);
+        return new Deadline(budget.toNanos(), budget);
+    }
+
+    public boolean isNone() {
+        return this == NONE;
+    }
+
+    public boolean expired() {
+        return remainingNanos() == 0;
+    }
+
+    /** Time left, zero once expired; {@code Long.MAX_VALUE} for {@link #NONE}. */
+    public long remainingNanos() {
+        if (this == NONE) return Long.MAX_VALUE;
+        return Math.max(0, budgetNanos - (System.nanoTime() - startNanos));
+    }
+
+    /** @throws DeadlineExceededException if the deadline has passed */
+    public void check() {
+        if (expired()) throw new DeadlineExceededException(this);
+    }
+
+    /** The budget this deadline was created with, or {@code null} for {@link #NONE}. */
+    public Duration budget() {
+        return budget;
+    }
+
+    /**
+     * A read-only view of {@code list} that {@linkplain #check() checks} the
+     * deadline every few elements, so that serializing a large listing stops
+     * once nobody waits for it. {@link #NONE} returns {@code list} itself.
+     */
+    public <T> List<T> guard(List<T> list) {
+        if (this == NONE) return list;
+        return new Guarded<>(list, this);
+    }
+
+    private static final class Guarded<T> extends AbstractList<T> implements RandomAccess {
+        private final List<T> list;
+        private final Deadline deadline;
+
+        Guarded(List<T> list, Deadline deadline) {
+            this.list = list;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public T get(int index) {
+            if ((index & 255) == 0) deadline.check();
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+    }
+}
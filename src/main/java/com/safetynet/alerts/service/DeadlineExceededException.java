@@ -0,0 +1,22 @@
+package com.safetynet.alerts.service;
+
+/**
+ * A query gave up because its {@link Deadline} passed before it finished.
+ * Carries the deadline, so a caller that shared another caller's computation
+ * can tell whether it was its own.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Deadline deadline;
+
+    public DeadlineExceededException(Deadline deadline) {
+        super("Query exceeded its deadline of " + deadline.budget().toMillis() + " ms");
+        this.deadline = deadline;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+}
@@ -1,78 +1,81 @@
 package com.safetynet.alerts.service;
 
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import com.safetynet.alerts.repository.VersionConflictException;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Person CRUD for {@code /person}, on the same {@link DataRepository} the alert
+ * endpoints read. Lookups go through its name index and writes through its
+ * storage engine. The repository rejects duplicate names.
+ */
 @Service
 public class PersonService {
 
-    // Temporary in-memory store until DB or JSON integration
-    private final Map<String, Person> people = new HashMap<>();
+    private final DataRepository repo;
 
-    private String key(String first, String last) {
-        String f = first == null ? "" : first.toLowerCase();
-        String l = last == null ? "" : last.toLowerCase();
-        return f + "_" + l;
+    public PersonService(DataRepository repo) {
+        this.repo = repo;
     }
 
     /** Add new person; fail if already exists */
-    public Person addPerson(Person person) {
+    public Person addPerson(Person person) throws IOException {
         if (person == null || person.getFirstName() == null || person.getLastName() == null) {
             throw new IllegalArgumentException("firstName and lastName are required");
         }
-        String k = key(person.getFirstName(), person.getLastName());
-        if (people.containsKey(k)) {
-            throw new IllegalStateException("Person already exists with given firstName and lastName");
-        }
-        people.put(k, person);
+        repo.addPerson(person);
         return person;
     }
 
     /** Update existing person (first/last name immutable). Throws if missing. */
-    public Person updatePerson(String firstName, String lastName, Person payload) {
-        if (firstName == null || lastName == null) {
-            throw new IllegalArgumentException("firstName and lastName are required");
-        }
-        String k = key(firstName, lastName);
-        Person existing = people.get(k);
-        if (existing == null) {
+    public Person updatePerson(String firstName, String lastName, Person payload) throws IOException {
+        Person updated = withName(firstName, lastName, payload);
+        if (!repo.updatePerson(updated)) {
             throw new IllegalArgumentException("Person not found");
         }
+        return updated;
+    }
 
-        // Enforce immutable names
-        existing.setAddress(payload.getAddress());
-        existing.setCity(payload.getCity());
-        existing.setZip(payload.getZip());
-        existing.setPhone(payload.getPhone());
-        existing.setEmail(payload.getEmail());
-
-        // If you prefer replacing the whole object apart from names:
-        // Person updated = new Person(existing.getFirstName(), existing.getLastName(),
-        //         payload.getAddress(), payload.getCity(), payload.getZip(),
-        //         payload.getPhone(), payload.getEmail());
-        // people.put(k, updated);
-        // return updated;
+    /**
+     * Update existing person only while it is still at {@code expectedVersion}.
+     *
+     * @throws VersionConflictException if another write got there first
+     */
+    public Person updatePerson(String firstName, String lastName, Person payload, long expectedVersion)
+            throws IOException {
+        Person updated = withName(firstName, lastName, payload);
+        if (!repo.updatePerson(updated, expectedVersion)) {
+            throw new IllegalArgumentException("Person not found");
+        }
+        return updated;
+    }
 
-        return existing;
+    public boolean deletePerson(String firstName, String lastName) throws IOException {
+        return repo.deletePerson(firstName, lastName);
     }
 
-    public boolean deletePerson(String firstName, String lastName) {
-        return people.remove(key(firstName, lastName)) != null;
+    /**
+     * Delete only while the person is still at {@code expectedVersion}.
+     *
+     * @throws VersionConflictException if another write got there first
+     */
+    public boolean deletePerson(String firstName, String lastName, long expectedVersion) throws IOException {
+        return repo.deletePerson(firstName, lastName, expectedVersion);
     }
 
     public Optional<Person> getPerson(String firstName, String lastName) {
         if (firstName == null || lastName == null) return Optional.empty();
-        return Optional.ofNullable(people.get(key(firstName, lastName)));
+        return repo.findPerson(firstName, lastName);
     }
 
     public List<Person> getAllPersons() {
-        return new ArrayList<>(people.values());
+        return new ArrayList<>(repo.getPersons());
     }
 
     /*
@@ -80,21 +83,23 @@ public class PersonService {
      * but DO NOT use it for the /person PUT endpoint that must be update-only.
      */
     @Deprecated
-    public Person upsertPerson(Person person) {
+    public Person upsertPerson(Person person) throws IOException {
         if (person == null || person.getFirstName() == null || person.getLastName() == null) {
             throw new IllegalArgumentException("firstName and lastName are required");
         }
-        String id = key(person.getFirstName(), person.getLastName());
-        Person existing = people.get(id);
-        if (existing == null) {
-            people.put(id, person);
-            return person;
+        try {
+            return addPerson(person);
+        } catch (IllegalStateException exists) {
+            return updatePerson(person.getFirstName(), person.getLastName(), person);
+        }
+    }
+
+    /** The stored record for an update: names come from the request path, which the repository keeps as stored. */
+    private static Person withName(String firstName, String lastName, Person payload) {
+        if (firstName == null || lastName == null) {
+            throw new IllegalArgumentException("firstName and lastName are required");
         }
-        existing.setAddress(person.getAddress());
-        existing.setCity(person.getCity());
-        existing.setZip(person.getZip());
-        existing.setPhone(person.getPhone());
-        existing.setEmail(person.getEmail());
-        return existing;
+        return new Person(firstName, lastName, payload.getAddress(), payload.getCity(), payload.getZip(),
+                payload.getPhone(), payload.getEmail());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.safetynet.alerts.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a computation at most once per key at a time. The first caller for a
+ * key computes; callers that arrive with the same key while it runs wait for
+ * it and get the same result (or exception) instead of computing again. The
+ * entry is dropped as soon as the computation finishes, so nothing is cached
+ * beyond it: a later caller computes afresh.
+ * <p>
+ * The result is shared by every caller that waited on it and must not be
+ * modified. A caller waits no longer than its own {@link Deadline}; the
+ * computation runs under the deadline of the caller that started it.
+ * </p>
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param onShared called in a caller that got another caller's result
+     * @return the result of {@code compute}, run by this caller or by the one already running it for {@code key}
+     */
+    V run(K key, Supplier<V> compute, Runnable onShared) {
+        return run(key, compute, onShared, Deadline.NONE);
+    }
+
+    /**
+     * Like {@link #run(Object, Supplier, Runnable)}, but a caller that waits
+     * for another caller's computation gives up once {@code deadline} passes.
+     *
+     * @throws DeadlineExceededException if {@code deadline} passed while waiting
+     */
+    V run(K key, Supplier<V> compute, Runnable onShared, Deadline deadline) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            onShared.run();
+            return deadline.isNone() ? await(running) : await(running, deadline);
+        }
+        // dropped before completing, so a caller woken by a failure that runs again starts afresh
+        V result;
+        try {
+            result = compute.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(result);
+        return result;
+    }
+
+    /** Number of computations currently running. */
+    int size() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> running, Deadline deadline) {
+        try {
+            return running.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(deadline);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
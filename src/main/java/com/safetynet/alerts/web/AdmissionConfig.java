@@ -0,0 +1,45 @@
+package com.safetynet.alerts.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.metrics.AlertMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Priority admission for the REST endpoints ({@code safetynet.admission.*}).
+ * {@code max-concurrent} plus {@code queue-capacity} should stay below the
+ * servlet container's worker threads ({@code server.tomcat.threads.max}, 200
+ * by default): queued requests hold a worker, and only requests that reach
+ * this filter can be ordered by priority.
+ */
+@Configuration
+@ConditionalOnProperty(name = "safetynet.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    @Bean
+    public PriorityAdmission priorityAdmission(
+            AlertMetrics metrics,
+            @Value("${safetynet.admission.max-concurrent:32}") int maxConcurrent,
+            @Value("${safetynet.admission.bulk.max-concurrent:16}") int bulkMaxConcurrent,
+            @Value("${safetynet.admission.admin.max-concurrent:4}") int adminMaxConcurrent,
+            @Value("${safetynet.admission.queue-capacity:128}") int queueCapacity,
+            @Value("${safetynet.admission.max-wait:PT2S}") Duration maxWait) {
+        return new PriorityAdmission(maxConcurrent,
+                Map.of(RequestClass.BULK, bulkMaxConcurrent, RequestClass.ADMIN, adminMaxConcurrent),
+                queueCapacity, maxWait, metrics);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(PriorityAdmission admission, ObjectMapper mapper) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionFilter(admission, mapper));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
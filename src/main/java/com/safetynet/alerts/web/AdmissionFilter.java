@@ -0,0 +1,79 @@
+package com.safetynet.alerts.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs every request through {@link PriorityAdmission} under its
+ * {@link RequestClass}. A shed request is answered {@code 503} with
+ * {@code Retry-After} and the error body of the controllers, without reaching
+ * them. Actuator probes are never held back.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private final PriorityAdmission admission;
+    private final ObjectMapper mapper;
+
+    public AdmissionFilter(PriorityAdmission admission, ObjectMapper mapper) {
+        this.admission = admission;
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        RequestClass cls = RequestClass.of(req);
+        if (cls == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+        PriorityAdmission.Permit permit;
+        try {
+            permit = admission.acquire(cls);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permit = null;
+        }
+        if (permit == null) {
+            reject(req, res, cls);
+            return;
+        }
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            permit.close();
+        }
+    }
+
+    private void reject(HttpServletRequest req, HttpServletResponse res, RequestClass cls) throws IOException {
+        log.warn("Shed {} {} ({})", req.getMethod(), req.getRequestURI(), cls.tag());
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", OffsetDateTime.now().toString());
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", "Server is busy, retry later");
+        body.put("path", req.getRequestURI());
+        body.put("code", status.name());
+        res.setStatus(status.value());
+        res.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        mapper.writeValue(res.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,190 @@
+package com.safetynet.alerts.web;
+
+import com.safetynet.alerts.metrics.AlertMetrics;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control and priority queueing for {@link RequestClass}es.
+ * <p>
+ * At most {@code capacity} requests run at once, and each class can be capped
+ * lower ({@code bulk} exports and {@code admin} writes are by default), so the
+ * remaining slots stay reserved for life-safety lookups. A request that finds
+ * no free slot waits in one queue ordered by class, then arrival; a freed slot
+ * goes to the first waiter whose class is under its cap. A class is shed once
+ * the queue holds its {@link RequestClass#queueShare share} of
+ * {@code queueCapacity}: admin writes at half, bulk at three quarters, and
+ * life-safety lookups only when the queue is full. A request that would be
+ * shed first evicts the newest waiter of a lower class, so under pressure
+ * admin and bulk traffic is turned away before any life-safety request. A
+ * waiter that gets no slot within {@code maxWait} is shed as well.
+ * </p>
+ */
+public final class PriorityAdmission {
+
+    /** Held while a request runs; closing it frees the slot. */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final int capacity;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final Map<RequestClass, Integer> caps;
+    private final AlertMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Waiter> queue = new TreeSet<>(
+            Comparator.comparing((Waiter w) -> w.cls).thenComparingLong(w -> w.seq));
+    private final Map<RequestClass, Integer> running = new EnumMap<>(RequestClass.class);
+    private int runningTotal;
+    private long arrivals;
+
+    /**
+     * @param capacity      requests running at once over all classes
+     * @param caps          lower per-class limits; classes not in the map may use every slot
+     * @param queueCapacity requests waiting at once over all classes
+     * @param maxWait       longest wait for a slot before the request is shed
+     */
+    public PriorityAdmission(int capacity, Map<RequestClass, Integer> caps, int queueCapacity, Duration maxWait,
+                             AlertMetrics metrics) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.caps = new EnumMap<>(RequestClass.class);
+        for (RequestClass c : RequestClass.values()) {
+            this.caps.put(c, Math.max(1, Math.min(capacity, caps.getOrDefault(c, capacity))));
+            running.put(c, 0);
+        }
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Takes a slot for a request of class {@code cls}, waiting in priority
+     * order if none is free.
+     *
+     * @return the slot, or {@code null} if the request is shed
+     */
+    public Permit acquire(RequestClass cls) throws InterruptedException {
+        long start = System.nanoTime();
+        Waiter w;
+        lock.lock();
+        try {
+            if (fits(cls)) return start(cls, start);
+            while (queue.size() >= queueCapacity * cls.queueShare) {
+                if (!evictBelow(cls)) return shed(cls, "queue-full");
+            }
+            w = new Waiter(cls, arrivals++, lock.newCondition());
+            queue.add(w);
+            long remaining = maxWaitNanos;
+            while (w.state == State.WAITING) {
+                if (remaining <= 0) {
+                    queue.remove(w);
+                    return shed(cls, "timeout");
+                }
+                try {
+                    remaining = w.signal.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    if (w.state == State.GRANTED) release(cls);
+                    queue.remove(w);
+                    throw e;
+                }
+            }
+            if (w.state == State.EVICTED) return shed(cls, "evicted");
+        } finally {
+            lock.unlock();
+        }
+        metrics.admissionWait(cls.tag(), System.nanoTime() - start);
+        return () -> release(cls);
+    }
+
+    /** Number of requests of {@code cls} running. */
+    public int running(RequestClass cls) {
+        lock.lock();
+        try {
+            return running.get(cls);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of requests of {@code cls} waiting for a slot. */
+    public int queued(RequestClass cls) {
+        lock.lock();
+        try {
+            return (int) queue.stream().filter(w -> w.cls == cls).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean fits(RequestClass cls) {
+        return runningTotal < capacity && running.get(cls) < caps.get(cls);
+    }
+
+    private Permit start(RequestClass cls, long arrived) {
+        runningTotal++;
+        running.merge(cls, 1, Integer::sum);
+        metrics.admissionWait(cls.tag(), System.nanoTime() - arrived);
+        return () -> release(cls);
+    }
+
+    /** Sheds the newest waiter of the lowest class below {@code cls}, if there is one. */
+    private boolean evictBelow(RequestClass cls) {
+        Waiter last = queue.isEmpty() ? null : queue.last();
+        if (last == null || last.cls.compareTo(cls) <= 0) return false;
+        queue.remove(last);
+        last.state = State.EVICTED;
+        last.signal.signal();
+        return true;
+    }
+
+    private void release(RequestClass cls) {
+        lock.lock();
+        try {
+            runningTotal--;
+            running.merge(cls, -1, Integer::sum);
+            for (Iterator<Waiter> it = queue.iterator(); it.hasNext() && runningTotal < capacity; ) {
+                Waiter w = it.next();
+                if (running.get(w.cls) >= caps.get(w.cls)) continue;
+                it.remove();
+                runningTotal++;
+                running.merge(w.cls, 1, Integer::sum);
+                w.state = State.GRANTED;
+                w.signal.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit shed(RequestClass cls, String reason) {
+        metrics.admissionRejected(cls.tag(), reason);
+        return null;
+    }
+
+    private enum State { WAITING, GRANTED, EVICTED }
+
+    private static final class Waiter {
+        final RequestClass cls;
+        final long seq;
+        final Condition signal;
+        State state = State.WAITING;
+
+        Waiter(RequestClass cls, long seq, Condition signal) {
+            this.cls = cls;
+            this.seq = seq;
+            this.signal = signal;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.safetynet.alerts.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Scheduling class of a request, highest priority first. The declaration
+ * order is the priority order used by {@link PriorityAdmission}.
+ */
+public enum RequestClass {
+
+    /** Single-address and single-station lookups for responders: {@code /fire}, {@code /childAlert}, {@code /firestation?stationNumber}, {@code /phoneAlert}. */
+    LIFE_SAFETY(1.0),
+
+    /** Exports and other reads: the {@code /all} listings, {@code /communityEmail}, {@code /flood/stations}, {@code /personInfo}, admin lookups. */
+    BULK(0.75),
+
+    /** Admin mutations: every {@code POST}, {@code PUT}, {@code PATCH} and {@code DELETE}. */
+    ADMIN(0.5);
+
+    private static final Set<String> LIFE_SAFETY_PATHS = Set.of("/fire", "/childAlert", "/phoneAlert");
+
+    /** Share of the wait queue this class may fill before it is shed. */
+    final double queueShare;
+
+    RequestClass(double queueShare) {
+        this.queueShare = queueShare;
+    }
+
+    /** Tag value for metrics. */
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * @return the class of {@code req}, or {@code null} for requests that are
+     *         never scheduled (actuator probes and error dispatches)
+     */
+    public static RequestClass of(HttpServletRequest req) {
+        String path = req.getRequestURI().substring(req.getContextPath().length());
+        if (path.startsWith("/actuator") || path.equals("/error")) return null;
+        if (!"GET".equals(req.getMethod()) && !"HEAD".equals(req.getMethod())) return ADMIN;
+        if (LIFE_SAFETY_PATHS.contains(path)) return LIFE_SAFETY;
+        if (path.equals("/firestation") && req.getParameter("stationNumber") != null) return LIFE_SAFETY;
+        return BULK;
+    }
+}
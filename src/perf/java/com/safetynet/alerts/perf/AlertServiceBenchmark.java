@@ -0,0 +1,107 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.repository.DataRepository;
+import com.safetynet.alerts.service.AlertService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Every {@link AlertService} endpoint method over the same parameter space as
+ * {@link RepositoryBenchmark}. {@code floodStations} asks for a quarter of the
+ * stations (at least one) to exercise the multi-station join.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class AlertServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int persons;
+
+    @Param({"4", "64"})
+    int stations;
+
+    @Param({"3", "20"})
+    int householdSize;
+
+    PerfDataset dataset;
+    AlertService service;
+    List<Integer> floodStations;
+    String[] addresses;
+    String[] cities;
+    String[] lastNames;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = new PerfDataset(persons, stations, householdSize);
+        File work = Files.createTempDirectory("safetynet-bench").toFile();
+        work.deleteOnExit();
+        DataRepository repo = dataset.loadRepository(work);
+        service = new AlertService(repo);
+        floodStations = IntStream.rangeClosed(1, Math.max(1, stations / 4)).boxed().toList();
+        DatasetGenerator.Household[] households = dataset.sampleHouseholds();
+        addresses = Arrays.stream(households).map(DatasetGenerator.Household::address).toArray(String[]::new);
+        cities = Arrays.stream(households).map(DatasetGenerator.Household::city).toArray(String[]::new);
+        lastNames = Arrays.stream(dataset.sampleMembers()).map(DatasetGenerator.Member::lastName)
+                .toArray(String[]::new);
+    }
+
+    private int next() {
+        return next++ & (PerfDataset.SAMPLES - 1);
+    }
+
+    private int station() {
+        return ThreadLocalRandom.current().nextInt(stations) + 1;
+    }
+
+    private String address() {
+        return addresses[next()];
+    }
+
+    @Benchmark
+    public Map<String, Object> firestation() {
+        return service.firestation(station());
+    }
+
+    @Benchmark
+    public Object childAlert() {
+        return service.childAlert(address());
+    }
+
+    @Benchmark
+    public Object phoneAlert() {
+        return service.phoneAlert(station());
+    }
+
+    @Benchmark
+    public Object fire() {
+        return service.fire(address());
+    }
+
+    @Benchmark
+    public Object floodStations() {
+        return service.floodStations(floodStations);
+    }
+
+    @Benchmark
+    public Object personInfo() {
+        return service.personInfo(lastNames[next()]);
+    }
+
+    @Benchmark
+    public Object communityEmail() {
+        return service.communityEmail(cities[next()]);
+    }
+}
@@ -0,0 +1,341 @@
+package com.safetynet.alerts.perf;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Generates {@code data.json}-compatible datasets of arbitrary size.
+ * <p>
+ * Values (first/last names, streets, cities, medications, allergies) come from a
+ * template dataset, by default the bundled {@code data.json}. The population is
+ * built household by household; each household draws from its own random
+ * stream derived from {@code (seed, householdIndex)}, so the output is a pure
+ * function of the {@link Options} and any household can be regenerated on its
+ * own (benchmarks use this to sample keys without holding the dataset).
+ * </p>
+ * <p>
+ * The file is streamed section by section ({@code persons}, {@code firestations},
+ * {@code medicalrecords}) with constant memory, so multi-GB outputs are fine.
+ * </p>
+ *
+ * <pre>
+ * mvn -Pperf test-compile exec:java -Dexec.mainClass=com.safetynet.alerts.perf.DatasetGenerator \
+ *     -Dexec.args="--persons=1000000 --counties=4 --stations-per-county=8 --out=target/data-1m.json"
+ * </pre>
+ */
+public final class DatasetGenerator {
+
+    private static final DateTimeFormatter BIRTHDATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    /** Generation knobs; every field has a CLI flag of the same name in kebab case. */
+    public static final class Options {
+        public long seed = 42L;
+        public int persons = 10_000;
+        public int householdSizeMin = 1;
+        public int householdSizeMax = 6;
+        public int cities = 10;
+        public int counties = 2;
+        public int stationsPerCounty = 4;
+        public double childrenRatio = 0.22;
+        public int maxMedications = 3;
+        public int maxAllergies = 2;
+        /** Reference date for ages; part of the output's identity together with the seed. */
+        public LocalDate asOf = LocalDate.now();
+        /** Overrides the template vocabularies when non-empty. */
+        public List<String> medications = new ArrayList<>();
+        public List<String> allergies = new ArrayList<>();
+        public Path template;
+        public Path out = Paths.get("target/generated-data.json");
+        public boolean pretty;
+
+        public static Options parse(String... args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+                String[] kv = arg.substring(2).split("=", 2);
+                String v = kv.length > 1 ? kv[1] : "true";
+                switch (kv[0]) {
+                    case "seed" -> o.seed = Long.parseLong(v);
+                    case "persons" -> o.persons = Integer.parseInt(v);
+                    case "household-size-min" -> o.householdSizeMin = Integer.parseInt(v);
+                    case "household-size-max" -> o.householdSizeMax = Integer.parseInt(v);
+                    case "cities" -> o.cities = Integer.parseInt(v);
+                    case "counties" -> o.counties = Integer.parseInt(v);
+                    case "stations-per-county" -> o.stationsPerCounty = Integer.parseInt(v);
+                    case "children-ratio" -> o.childrenRatio = Double.parseDouble(v);
+                    case "max-medications" -> o.maxMedications = Integer.parseInt(v);
+                    case "max-allergies" -> o.maxAllergies = Integer.parseInt(v);
+                    case "as-of" -> o.asOf = LocalDate.parse(v);
+                    case "medications" -> o.medications = List.of(v.split(","));
+                    case "allergies" -> o.allergies = List.of(v.split(","));
+                    case "template" -> o.template = Paths.get(v);
+                    case "out" -> o.out = Paths.get(v);
+                    case "pretty" -> o.pretty = Boolean.parseBoolean(v);
+                    default -> throw new IllegalArgumentException("Unknown option: --" + kv[0]);
+                }
+            }
+            o.validate();
+            return o;
+        }
+
+        void validate() {
+            if (persons < 0) throw new IllegalArgumentException("persons must be >= 0");
+            if (householdSizeMin < 1 || householdSizeMax < householdSizeMin)
+                throw new IllegalArgumentException("household sizes must satisfy 1 <= min <= max");
+            if (cities < 1 || counties < 1 || stationsPerCounty < 1)
+                throw new IllegalArgumentException("cities, counties and stations-per-county must be >= 1");
+            if (childrenRatio < 0 || childrenRatio > 1)
+                throw new IllegalArgumentException("children-ratio must be within [0, 1]");
+        }
+
+        public int stations() {
+            return counties * stationsPerCounty;
+        }
+    }
+
+    /** One member of a household. */
+    public record Member(String firstName, String lastName, String phone, String email,
+                         String birthdate, List<String> medications, List<String> allergies) {
+    }
+
+    /** One address with its residents. */
+    public record Household(int index, String address, String city, String zip, int station,
+                            List<Member> members) {
+    }
+
+    private final Options options;
+    private final List<String> firstNames;
+    private final List<String> lastNames;
+    private final List<String> streets;
+    private final List<String> cityNames;
+    private final List<String> medications;
+    private final List<String> allergies;
+    private final String zipBase;
+
+    private final int households;
+    private final int lastHouseholdSize;
+
+    public DatasetGenerator(Options options) throws IOException {
+        options.validate();
+        this.options = options;
+        JsonNode template = readTemplate(options.template);
+
+        Set<String> first = new LinkedHashSet<>();
+        Set<String> last = new LinkedHashSet<>();
+        Set<String> street = new LinkedHashSet<>();
+        Set<String> city = new LinkedHashSet<>();
+        String zip = "97451";
+        for (JsonNode p : template.path("persons")) {
+            first.add(p.path("firstName").asText());
+            last.add(p.path("lastName").asText());
+            street.add(p.path("address").asText().replaceFirst("^\\d+\\s+", ""));
+            city.add(p.path("city").asText());
+            zip = p.path("zip").asText(zip);
+        }
+        Set<String> meds = new LinkedHashSet<>();
+        Set<String> allergy = new LinkedHashSet<>();
+        for (JsonNode m : template.path("medicalrecords")) {
+            m.path("medications").forEach(n -> meds.add(n.asText()));
+            m.path("allergies").forEach(n -> allergy.add(n.asText()));
+        }
+        this.firstNames = nonEmpty(first, "firstName");
+        this.lastNames = nonEmpty(last, "lastName");
+        this.streets = nonEmpty(street, "address");
+        this.cityNames = cityNames(nonEmpty(city, "city"), options.cities);
+        this.medications = options.medications.isEmpty() ? new ArrayList<>(meds) : options.medications;
+        this.allergies = options.allergies.isEmpty() ? new ArrayList<>(allergy) : options.allergies;
+        this.zipBase = zip;
+
+        // Planning pass: household sizes only, so sections can be regenerated independently.
+        int count = 0;
+        int remaining = options.persons;
+        int lastSize = 0;
+        while (remaining > 0) {
+            int size = Math.min(remaining, householdSize(count));
+            remaining -= size;
+            lastSize = size;
+            count++;
+        }
+        this.households = count;
+        this.lastHouseholdSize = lastSize;
+    }
+
+    public Options options() {
+        return options;
+    }
+
+    public int households() {
+        return households;
+    }
+
+    /** Regenerates household {@code h} ({@code 0 <= h < households()}). */
+    public Household household(int h) {
+        if (h < 0 || h >= households) throw new IndexOutOfBoundsException("household " + h);
+        SplittableRandom rnd = random(h);
+        int size = h == households - 1 ? lastHouseholdSize : householdSize(h);
+        rnd.nextInt(); // keep in step with householdSize(h)
+
+        int cityIndex = rnd.nextInt(options.cities);
+        int county = cityIndex % options.counties;
+        int station = county * options.stationsPerCounty + rnd.nextInt(options.stationsPerCounty) + 1;
+        String streetName = streets.get(h % streets.size());
+        String address = (1 + h / streets.size()) + " " + streetName;
+        String zip = String.valueOf(Integer.parseInt(zipBase) + cityIndex);
+
+        // Household surname plus a base-36 household tag keeps (first, last) unique dataset-wide.
+        String lastName = lastNames.get(rnd.nextInt(lastNames.size())) + "-" + Integer.toString(h, 36);
+        String sharedPhone = phone(rnd);
+        List<Member> members = new ArrayList<>(size);
+        int offset = rnd.nextInt(firstNames.size());
+        for (int i = 0; i < size; i++) {
+            String firstName = firstNames.get((offset + i) % firstNames.size());
+            if (i >= firstNames.size()) firstName = firstName + (i / firstNames.size() + 1);
+            boolean child = rnd.nextDouble() < options.childrenRatio;
+            int age = child ? rnd.nextInt(19) : 19 + rnd.nextInt(72);
+            LocalDate dob = options.asOf.minusYears(age).minusDays(1 + rnd.nextInt(364));
+            String phone = rnd.nextInt(3) == 0 ? phone(rnd) : sharedPhone;
+            String email = (firstName + "." + lastName).toLowerCase(Locale.ROOT) + "@email.com";
+            members.add(new Member(firstName, lastName, phone, email, dob.format(BIRTHDATE),
+                    sample(rnd, medications, options.maxMedications),
+                    sample(rnd, allergies, options.maxAllergies)));
+        }
+        return new Household(h, address, cityNames.get(cityIndex), zip, station, members);
+    }
+
+    /** Streams the dataset to {@link Options#out} via a temp file + rename. */
+    public Path write() throws IOException {
+        Path out = options.out.toAbsolutePath();
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (JsonGenerator g = new JsonFactory().createGenerator(tmp.toFile(), JsonEncoding.UTF8)) {
+            if (options.pretty) g.useDefaultPrettyPrinter();
+            g.writeStartObject();
+
+            g.writeArrayFieldStart("persons");
+            for (int h = 0; h < households; h++) {
+                Household hh = household(h);
+                for (Member m : hh.members()) {
+                    g.writeStartObject();
+                    g.writeStringField("firstName", m.firstName());
+                    g.writeStringField("lastName", m.lastName());
+                    g.writeStringField("address", hh.address());
+                    g.writeStringField("city", hh.city());
+                    g.writeStringField("zip", hh.zip());
+                    g.writeStringField("phone", m.phone());
+                    g.writeStringField("email", m.email());
+                    g.writeEndObject();
+                }
+            }
+            g.writeEndArray();
+
+            g.writeArrayFieldStart("firestations");
+            for (int h = 0; h < households; h++) {
+                Household hh = household(h);
+                g.writeStartObject();
+                g.writeStringField("address", hh.address());
+                g.writeNumberField("station", hh.station());
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+
+            g.writeArrayFieldStart("medicalrecords");
+            for (int h = 0; h < households; h++) {
+                for (Member m : household(h).members()) {
+                    g.writeStartObject();
+                    g.writeStringField("firstName", m.firstName());
+                    g.writeStringField("lastName", m.lastName());
+                    g.writeStringField("birthdate", m.birthdate());
+                    writeStrings(g, "medications", m.medications());
+                    writeStrings(g, "allergies", m.allergies());
+                    g.writeEndObject();
+                }
+            }
+            g.writeEndArray();
+
+            g.writeEndObject();
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        return out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        long start = System.nanoTime();
+        DatasetGenerator generator = new DatasetGenerator(options);
+        Path out = generator.write();
+        System.out.printf("Wrote %,d persons in %,d households (%d stations) to %s (%,d bytes) in %d ms%n",
+                options.persons, generator.households(), options.stations(), out, Files.size(out),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // -------------- Helpers --------------
+
+    private int householdSize(int h) {
+        int span = options.householdSizeMax - options.householdSizeMin + 1;
+        return options.householdSizeMin + Math.floorMod(random(h).nextInt(), span);
+    }
+
+    private SplittableRandom random(int h) {
+        // SplitMix-style mixing so neighbouring households get unrelated streams
+        long z = options.seed + 0x9E3779B97F4A7C15L * (h + 1L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    private static String phone(SplittableRandom rnd) {
+        return String.format("841-%03d-%04d", 100 + rnd.nextInt(900), rnd.nextInt(10_000));
+    }
+
+    private static List<String> sample(SplittableRandom rnd, List<String> vocabulary, int max) {
+        if (vocabulary.isEmpty() || max <= 0) return List.of();
+        int n = rnd.nextInt(Math.min(max, vocabulary.size()) + 1);
+        List<String> out = new ArrayList<>(n);
+        int start = rnd.nextInt(vocabulary.size());
+        for (int i = 0; i < n; i++) out.add(vocabulary.get((start + i) % vocabulary.size()));
+        return out;
+    }
+
+    private static void writeStrings(JsonGenerator g, String field, List<String> values) throws IOException {
+        g.writeArrayFieldStart(field);
+        for (String v : values) g.writeString(v);
+        g.writeEndArray();
+    }
+
+    private static List<String> cityNames(List<String> base, int count) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = base.get(i % base.size());
+            out.add(i < base.size() ? name : name + " " + (i / base.size() + 1));
+        }
+        return out;
+    }
+
+    private static List<String> nonEmpty(Set<String> values, String field) {
+        values.remove("");
+        if (values.isEmpty()) throw new IllegalArgumentException("Template has no values for " + field);
+        return new ArrayList<>(values);
+    }
+
+    private static JsonNode readTemplate(Path template) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        if (template != null) return mapper.readTree(template.toFile());
+        try (InputStream is = DatasetGenerator.class.getResourceAsStream("/data.json")) {
+            if (is == null) throw new IOException("Bundled data.json template not found on classpath");
+            return mapper.readTree(is);
+        }
+    }
+}
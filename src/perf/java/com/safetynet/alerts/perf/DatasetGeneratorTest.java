@@ -0,0 +1,81 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    private DatasetGenerator.Options options(long seed, String name) {
+        DatasetGenerator.Options o = DatasetGenerator.Options.parse(
+                "--persons=5000", "--counties=3", "--stations-per-county=4", "--cities=7",
+                "--children-ratio=0.25", "--as-of=2026-01-01", "--seed=" + seed);
+        o.out = dir.resolve(name);
+        return o;
+    }
+
+    @Test
+    void same_seed_produces_identical_files_and_other_seed_differs() throws Exception {
+        Path a = new DatasetGenerator(options(7, "a.json")).write();
+        Path b = new DatasetGenerator(options(7, "b.json")).write();
+        Path c = new DatasetGenerator(options(8, "c.json")).write();
+
+        assertThat(Files.readAllBytes(a)).isEqualTo(Files.readAllBytes(b));
+        assertThat(Files.readAllBytes(a)).isNotEqualTo(Files.readAllBytes(c));
+    }
+
+    @Test
+    void output_loads_into_repository_with_matching_medical_records() throws Exception {
+        Path out = new DatasetGenerator(options(1, "data.json")).write();
+        DataRepository repo = new DataRepository(new FileSystemResource(out.toFile()), new FileSystemResource(out.toFile()));
+        repo.load();
+
+        assertThat(repo.getPersons()).hasSize(5000);
+        assertThat(repo.getMedicalrecords()).hasSize(5000);
+        assertThat(repo.getFirestations()).allSatisfy(f -> assertThat(f.getStation()).isBetween(1, 12));
+
+        Set<String> names = new HashSet<>();
+        for (Person p : repo.getPersons()) {
+            assertThat(names.add(p.getFirstName() + "|" + p.getLastName())).isTrue();
+        }
+        MedicalRecord first = repo.getMedicalrecords().get(0);
+        assertThat(names).contains(first.getFirstName() + "|" + first.getLastName());
+
+        long children = repo.getMedicalrecords().stream()
+                .map(m -> LocalDate.parse(m.getBirthdate(), DateTimeFormatter.ofPattern("MM/dd/yyyy")))
+                .filter(d -> d.isAfter(LocalDate.of(2026, 1, 1).minusYears(19)))
+                .count();
+        assertThat(children).isBetween(1000L, 1500L);
+    }
+
+    @Test
+    void household_is_regenerated_identically() throws Exception {
+        DatasetGenerator g = new DatasetGenerator(options(3, "unused.json"));
+        assertThat(g.household(17)).isEqualTo(g.household(17));
+        assertThat(g.household(g.households() - 1).members()).isNotEmpty();
+    }
+
+    @Test
+    void rejects_unknown_and_inconsistent_options() {
+        assertThatThrownBy(() -> DatasetGenerator.Options.parse("--nope=1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DatasetGenerator.Options.parse("--household-size-min=4", "--household-size-max=2"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,89 @@
+package com.safetynet.alerts.perf;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe latency and outcome bookkeeping for the HTTP load tools.
+ * <p>
+ * Latencies are recorded per label (usually the endpoint path) into HDR
+ * histograms with microsecond resolution. Callers decide what a latency is:
+ * the open-model tools pass {@code completion - intendedStart}, which keeps the
+ * numbers free of coordinated omission.
+ * </p>
+ */
+public final class LatencyRecorder {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Histogram total = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param label      endpoint label
+     * @param latencyNs  latency to record
+     * @param status     HTTP status, or {@code -1} when the request failed before a response
+     */
+    public void record(String label, long latencyNs, int status) {
+        long micros = Math.min(MAX_TRACKABLE_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNs)));
+        histograms.computeIfAbsent(label, k -> new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3)).recordValue(micros);
+        total.recordValue(micros);
+        statuses.computeIfAbsent(status < 0 ? "failed" : String.valueOf(status), k -> new LongAdder()).increment();
+        if (status < 0 || status >= 500) {
+            failures.increment();
+            errors.computeIfAbsent(label, k -> new LongAdder()).increment();
+        }
+    }
+
+    public long count() {
+        return total.getTotalCount();
+    }
+
+    public long errors() {
+        return failures.sum();
+    }
+
+    public Histogram total() {
+        return total;
+    }
+
+    /** Prints a per-label percentile table, status counts and error rate. */
+    public void report(PrintStream out, double elapsedSeconds) {
+        out.printf("%-22s %9s %9s %9s %9s %9s %9s %9s %7s%n",
+                "endpoint", "count", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "rate/s", "err%");
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+            LongAdder err = errors.get(e.getKey());
+            row(out, e.getKey(), e.getValue(), err == null ? 0 : err.sum(), elapsedSeconds);
+        }
+        row(out, "TOTAL", total, failures.sum(), elapsedSeconds);
+        out.println("status counts: " + new TreeMap<>(statuses));
+    }
+
+    /** Writes the total histogram in HdrHistogram percentile-distribution format (plottable). */
+    public void writeDistribution(String path) throws FileNotFoundException {
+        try (PrintStream ps = new PrintStream(new FileOutputStream(path))) {
+            total.outputPercentileDistribution(ps, 1000.0);
+        }
+    }
+
+    private static void row(PrintStream out, String label, Histogram h, long errors, double elapsedSeconds) {
+        long n = h.getTotalCount();
+        out.printf("%-22s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %9.1f %6.2f%%%n", label, n,
+                h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0, h.getValueAtPercentile(99.9) / 1000.0,
+                h.getMaxValue() / 1000.0, elapsedSeconds > 0 ? n / elapsedSeconds : 0.0,
+                n == 0 ? 0.0 : 100.0 * errors / n);
+    }
+}
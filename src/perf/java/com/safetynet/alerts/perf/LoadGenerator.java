@@ -0,0 +1,369 @@
+package com.safetynet.alerts.perf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.AlertsApplication;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the REST surface.
+ * <p>
+ * Requests arrive at a constant rate regardless of how fast the server answers
+ * (request {@code i} is due at {@code start + i / rate}); at most
+ * {@code --connections} are in flight, the rest queue on the client side. Latency
+ * is recorded from the due time, so a stalled server shows up as the latency
+ * every queued request actually saw instead of a single slow sample
+ * (coordinated-omission corrected).
+ * </p>
+ * <p>
+ * By default the application is started in-process on a random port over a
+ * {@link PerfDataset} copy; {@code --target} points it at a running instance
+ * instead. {@code --rates} runs one step per rate and ends with a summary that
+ * marks the first step that missed its rate or the p99 objective, which is the
+ * node's saturation point for that mix.
+ * </p>
+ *
+ * <pre>
+ * mvn -Pperf test-compile exec:java -Dexec.mainClass=com.safetynet.alerts.perf.LoadGenerator \
+ *     -Dexec.args="--persons=100000 --rates=200,500,1000,2000 --duration=PT30S --write-ratio=0.05"
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    /** Load knobs; CLI flags use the same names in kebab case. */
+    public static final class Options {
+        public URI target;
+        public int persons = 10_000;
+        public int stations = 16;
+        public int householdSize = 4;
+        public List<Integer> rates = List.of(500);
+        public Duration duration = Duration.ofSeconds(30);
+        public Duration warmup = Duration.ofSeconds(10);
+        public double writeRatio = 0.05;
+        public int connections = 64;
+        public Duration slo = Duration.ofMillis(100);
+        public Duration timeout = Duration.ofSeconds(30);
+        public String histogram;
+
+        public static Options parse(String... args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+                String[] kv = arg.substring(2).split("=", 2);
+                String v = kv.length > 1 ? kv[1] : "true";
+                switch (kv[0]) {
+                    case "target" -> o.target = URI.create(v);
+                    case "persons" -> o.persons = Integer.parseInt(v);
+                    case "stations" -> o.stations = Integer.parseInt(v);
+                    case "household-size" -> o.householdSize = Integer.parseInt(v);
+                    case "rate", "rates" -> {
+                        List<Integer> rates = new ArrayList<>();
+                        for (String r : v.split(",")) rates.add(Integer.parseInt(r.trim()));
+                        o.rates = rates;
+                    }
+                    case "duration" -> o.duration = Duration.parse(v);
+                    case "warmup" -> o.warmup = Duration.parse(v);
+                    case "write-ratio" -> o.writeRatio = Double.parseDouble(v);
+                    case "connections" -> o.connections = Integer.parseInt(v);
+                    case "slo" -> o.slo = Duration.parse(v);
+                    case "timeout" -> o.timeout = Duration.parse(v);
+                    case "histogram" -> o.histogram = v;
+                    default -> throw new IllegalArgumentException("Unknown option: --" + kv[0]);
+                }
+            }
+            if (o.rates.isEmpty() || o.rates.stream().anyMatch(r -> r <= 0)) {
+                throw new IllegalArgumentException("rates must be > 0");
+            }
+            if (o.writeRatio < 0 || o.writeRatio > 1) throw new IllegalArgumentException("write-ratio must be in [0,1]");
+            if (o.connections < 1) throw new IllegalArgumentException("connections must be >= 1");
+            return o;
+        }
+    }
+
+    /** Outcome of one constant-rate step. */
+    public record Step(int rate, LatencyRecorder latency, long scheduled, long unfinished, double elapsedSeconds) {
+
+        public double achievedRate() {
+            return latency.count() / elapsedSeconds;
+        }
+
+        boolean saturated(Duration slo) {
+            return unfinished > 0
+                    || achievedRate() < 0.95 * rate
+                    || latency.total().getValueAtPercentile(99) > TimeUnit.NANOSECONDS.toMicros(slo.toNanos());
+        }
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Options options;
+    private final URI base;
+    private final PerfDataset dataset;
+    private final HttpClient http;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<String[]> ownPersons = new ConcurrentLinkedQueue<>();
+    private final Queue<String[]> ownRecords = new ConcurrentLinkedQueue<>();
+
+    public LoadGenerator(Options options, URI base, PerfDataset dataset) {
+        this.options = options;
+        this.base = base;
+        this.dataset = dataset;
+        this.http = HttpClient.newBuilder().connectTimeout(options.timeout).build();
+    }
+
+    /** Runs one constant-arrival-rate step of {@code duration} at {@code rate} requests/s. */
+    public Step run(int rate, Duration duration) throws InterruptedException {
+        LatencyRecorder latency = new LatencyRecorder();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = duration.toNanos() / interval;
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.connections);
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long due = start + i * interval;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            pool.execute(() -> {
+                Call call = next();
+                int status;
+                try {
+                    status = http.send(call.request(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (IOException e) {
+                    status = -1;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                latency.record(call.label(), System.nanoTime() - due, status);
+                if (status >= 200 && status < 300) call.onSuccess().run();
+            });
+        }
+        pool.shutdown();
+        long unfinished = 0;
+        if (!pool.awaitTermination(options.timeout.toNanos() + duration.toNanos(), TimeUnit.NANOSECONDS)) {
+            unfinished = pool.shutdownNow().size();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new Step(rate, latency, total, unfinished, elapsed);
+    }
+
+    // ------------------------------------------------------------------ request mix
+
+    private record Call(String label, HttpRequest request, Runnable onSuccess) {
+        Call(String label, HttpRequest request) {
+            this(label, request, () -> { });
+        }
+    }
+
+    private Call next() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return rnd.nextDouble() < options.writeRatio ? nextWrite(rnd) : nextRead(rnd);
+    }
+
+    private Call nextRead(ThreadLocalRandom rnd) {
+        DatasetGenerator.Household h = dataset.randomHousehold();
+        return switch (rnd.nextInt(5)) {
+            case 0 -> get("/firestation", "stationNumber", String.valueOf(h.station()));
+            case 1 -> get("/flood/stations", "stations", h.station() + "," + (1 + rnd.nextInt(dataset.stations())));
+            case 2 -> get("/fire", "address", h.address());
+            case 3 -> get("/childAlert", "address", h.address());
+            default -> get("/personInfo", "lastName", h.members().get(0).lastName());
+        };
+    }
+
+    /**
+     * Admin CRUD. Creates use names no dataset member has, and updates/deletes
+     * only touch what this generator created, so reads keep seeing the dataset.
+     */
+    private Call nextWrite(ThreadLocalRandom rnd) {
+        DatasetGenerator.Household h = dataset.randomHousehold();
+        switch (rnd.nextInt(7)) {
+            case 0, 1: {
+                String[] name = ownPersons.poll();
+                if (name != null) {
+                    if (rnd.nextBoolean()) {
+                        Person p = person(name, h);
+                        return new Call("PUT /person", send("PUT", "/person?" + nameQuery(name), p),
+                                () -> ownPersons.add(name));
+                    }
+                    return new Call("DELETE /person", send("DELETE", "/person?" + nameQuery(name), null));
+                }
+                // fall through to create
+            }
+            case 2: {
+                String[] name = freshName();
+                return new Call("POST /person", send("POST", "/person", person(name, h)), () -> ownPersons.add(name));
+            }
+            case 3, 4: {
+                String[] name = ownRecords.poll();
+                if (name != null) {
+                    if (rnd.nextBoolean()) {
+                        return new Call("PUT /medicalRecord",
+                                send("PUT", "/medicalRecord?" + nameQuery(name), record(name)),
+                                () -> ownRecords.add(name));
+                    }
+                    return new Call("DELETE /medicalRecord", send("DELETE", "/medicalRecord?" + nameQuery(name), null));
+                }
+                // fall through to create
+            }
+            case 5: {
+                String[] name = freshName();
+                return new Call("POST /medicalRecord", send("POST", "/medicalRecord", record(name)),
+                        () -> ownRecords.add(name));
+            }
+            default:
+                // Re-assigns the address to the station it already has: a real write, no semantic change.
+                return new Call("PUT /firestation", send("PUT", "/firestation?address=" + encode(h.address()),
+                        new Firestation(h.address(), h.station())));
+        }
+    }
+
+    private String[] freshName() {
+        return new String[] { "Load", "Gen-" + Long.toString(sequence.incrementAndGet(), 36) };
+    }
+
+    private static Person person(String[] name, DatasetGenerator.Household h) {
+        return new Person(name[0], name[1], h.address(), h.city(), h.zip(),
+                String.format("841-%03d-%04d", ThreadLocalRandom.current().nextInt(1000),
+                        ThreadLocalRandom.current().nextInt(10000)),
+                name[1].toLowerCase() + "@load.test");
+    }
+
+    private static MedicalRecord record(String[] name) {
+        return new MedicalRecord(name[0], name[1], "01/01/1990", List.of("aznol:350mg"), List.of());
+    }
+
+    private static String nameQuery(String[] name) {
+        return "firstName=" + encode(name[0]) + "&lastName=" + encode(name[1]);
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private Call get(String path, String param, String value) {
+        return new Call("GET " + path, send("GET", path + "?" + param + "=" + encode(value), null));
+    }
+
+    private HttpRequest send(String method, String pathAndQuery, Object body) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(base.resolve(pathAndQuery)).timeout(options.timeout);
+        if (body == null) return b.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        try {
+            return b.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ------------------------------------------------------------------ embedded instance
+
+    /**
+     * Starts the application on a random port over a private copy of the dataset,
+     * logging to the work directory so the repository's own logs stay untouched.
+     */
+    public static ConfigurableApplicationContext startEmbedded(PerfDataset dataset, Path workDir) throws IOException {
+        Path source = dataset.ensureWritten().toPath().toAbsolutePath();
+        Path data = workDir.resolve("data.json").toAbsolutePath();
+        Files.copy(source, data, StandardCopyOption.REPLACE_EXISTING);
+        return new SpringApplicationBuilder(AlertsApplication.class).run(
+                "--server.port=0",
+                "--safetynet.data-file=file:" + data,
+                "--safetynet.seed-file=file:" + source,
+                "--logging.file.name=" + workDir.resolve("load.log").toAbsolutePath(),
+                "--logging.level.com.safetynet.alerts=INFO");
+    }
+
+    static URI baseUri(ConfigurableApplicationContext ctx) {
+        return URI.create("http://localhost:" + ctx.getEnvironment().getProperty("local.server.port"));
+    }
+
+    public static void report(PrintStream out, List<Step> steps, Duration slo) {
+        out.printf("%n%8s %10s %10s %9s %9s %9s %9s %7s  %s%n",
+                "rate/s", "achieved", "unfinished", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "err%", "");
+        boolean marked = false;
+        for (Step s : steps) {
+            var h = s.latency().total();
+            long n = s.latency().count();
+            String mark = "";
+            if (!marked && s.saturated(slo)) {
+                mark = "<- saturated (rate missed or p99 > " + slo.toMillis() + " ms)";
+                marked = true;
+            }
+            out.printf("%8d %10.1f %10d %9.2f %9.2f %9.2f %9.2f %6.2f%%  %s%n", s.rate(), s.achievedRate(),
+                    s.unfinished(), h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+                    h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0,
+                    n == 0 ? 0.0 : 100.0 * s.latency().errors() / n, mark);
+        }
+        if (!marked) out.println("No step saturated; raise --rates to find the limit.");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options o = Options.parse(args);
+        PerfDataset dataset = new PerfDataset(o.persons, o.stations, o.householdSize);
+        ConfigurableApplicationContext ctx = null;
+        URI base = o.target;
+        if (base == null) {
+            Path workDir = Files.createTempDirectory("safetynet-load");
+            ctx = startEmbedded(dataset, workDir);
+            base = baseUri(ctx);
+            System.out.println("Embedded instance at " + base + ", work dir " + workDir);
+        } else {
+            System.out.println("Target " + base + ", expected to serve " + dataset.ensureWritten());
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(o, base, dataset);
+            if (!o.warmup.isZero()) {
+                System.out.printf("Warm-up %s at %d/s%n", o.warmup, o.rates.get(0));
+                generator.run(o.rates.get(0), o.warmup);
+            }
+            List<Step> steps = new ArrayList<>();
+            for (int rate : o.rates) {
+                Step step = generator.run(rate, o.duration);
+                steps.add(step);
+                System.out.printf("%n== %d req/s for %s, %d connections, write ratio %.2f: %d scheduled, %d unfinished%n",
+                        rate, o.duration, o.connections, o.writeRatio, step.scheduled(), step.unfinished());
+                step.latency().report(System.out, step.elapsedSeconds());
+                if (o.histogram != null) {
+                    String file = o.histogram + "-" + rate + ".hgrm";
+                    step.latency().writeDistribution(file);
+                    System.out.println("Histogram written to " + file);
+                }
+            }
+            report(System.out, steps, o.slo);
+        } finally {
+            if (ctx != null) ctx.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.safetynet.alerts.perf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void read_only_constant_rate_step_against_embedded_instance_completes_without_errors() throws Exception {
+        LoadGenerator.Options o = LoadGenerator.Options.parse("--write-ratio=0", "--connections=4");
+        PerfDataset dataset = new PerfDataset(500, 4, 4);
+        try (ConfigurableApplicationContext ctx = LoadGenerator.startEmbedded(dataset, dir)) {
+            LoadGenerator generator = new LoadGenerator(o, LoadGenerator.baseUri(ctx), dataset);
+
+            LoadGenerator.Step step = generator.run(100, Duration.ofSeconds(2));
+
+            assertThat(step.scheduled()).isEqualTo(200);
+            assertThat(step.unfinished()).isZero();
+            assertThat(step.latency().count()).isEqualTo(200);
+            assertThat(step.latency().errors()).isZero();
+        }
+    }
+}
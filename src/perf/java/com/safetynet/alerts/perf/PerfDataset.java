@@ -0,0 +1,103 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.repository.DataRepository;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmark fixture: a {@link DatasetGenerator} dataset of a given size, cached
+ * under {@code target/perf-data} so forks and re-runs do not regenerate it.
+ * <p>
+ * Households have exactly {@code householdSize} members (address cardinality
+ * is {@code persons / householdSize}) and are spread over {@code stations}
+ * stations in a single county. Lookup keys are sampled by regenerating
+ * random households, so the dataset never has to be held outside the
+ * repository; benchmarks draw {@link #SAMPLES} of them in their trial setup and
+ * cycle through those, so that the regeneration is not measured.
+ * </p>
+ */
+public final class PerfDataset {
+
+    /** Number of sampled households a benchmark cycles through; a power of two. */
+    public static final int SAMPLES = 1 << 12;
+
+    /** Fixed so cached files stay valid across days. */
+    private static final LocalDate AS_OF = LocalDate.of(2026, 1, 1);
+
+    private final DatasetGenerator generator;
+    private final File file;
+
+    public PerfDataset(int persons, int stations, int householdSize) throws IOException {
+        DatasetGenerator.Options o = new DatasetGenerator.Options();
+        o.persons = persons;
+        o.householdSizeMin = householdSize;
+        o.householdSizeMax = householdSize;
+        o.counties = 1;
+        o.stationsPerCounty = stations;
+        o.cities = 10;
+        o.asOf = AS_OF;
+        this.file = new File("target/perf-data",
+                "persons-" + persons + "-stations-" + stations + "-household-" + householdSize + ".json");
+        o.out = Paths.get(file.getPath());
+        this.generator = new DatasetGenerator(o);
+    }
+
+    public int stations() {
+        return generator.options().stations();
+    }
+
+    public DatasetGenerator.Household randomHousehold() {
+        return generator.household(ThreadLocalRandom.current().nextInt(generator.households()));
+    }
+
+    /** {@link #SAMPLES} random households, for a benchmark's trial setup. */
+    public DatasetGenerator.Household[] sampleHouseholds() {
+        DatasetGenerator.Household[] out = new DatasetGenerator.Household[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) out[i] = randomHousehold();
+        return out;
+    }
+
+    /** One random member of each of {@link #SAMPLES} random households. */
+    public DatasetGenerator.Member[] sampleMembers() {
+        DatasetGenerator.Member[] out = new DatasetGenerator.Member[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            var members = randomHousehold().members();
+            out[i] = members.get(ThreadLocalRandom.current().nextInt(members.size()));
+        }
+        return out;
+    }
+
+    /** Writes the dataset unless a cached copy already exists. */
+    public File ensureWritten() throws IOException {
+        if (!file.exists()) generator.write();
+        return file;
+    }
+
+    /**
+     * Loads a repository over a private copy of the dataset, so benchmarks that
+     * call {@code save()} never rewrite the cached file.
+     */
+    public DataRepository loadRepository(File workDir) throws IOException {
+        return loadRepository(workDir, "json");
+    }
+
+    /** Same as {@link #loadRepository(File)} with the given storage engine. */
+    public DataRepository loadRepository(File workDir, String engine) throws IOException {
+        File source = ensureWritten();
+        File copy = new File(workDir, "data.json");
+        Files.copy(source.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(new File(workDir, "data.json.journal").toPath());
+        Files.deleteIfExists(new File(workDir, "data.json.btree").toPath());
+        DataRepository repo = new DataRepository(new FileSystemResource(copy), new FileSystemResource(source));
+        repo.setStorageEngine(engine);
+        repo.load();
+        return repo;
+    }
+}
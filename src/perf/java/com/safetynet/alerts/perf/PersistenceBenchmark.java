@@ -0,0 +1,51 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-file {@link DataRepository#load()} and {@link DataRepository#save()}.
+ * Single-shot: each invocation parses or writes the whole dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PersistenceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int persons;
+
+    @Param({"4"})
+    int stations;
+
+    @Param({"3"})
+    int householdSize;
+
+    DataRepository repo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File work = Files.createTempDirectory("safetynet-bench").toFile();
+        work.deleteOnExit();
+        repo = new PerfDataset(persons, stations, householdSize).loadRepository(work);
+    }
+
+    @Benchmark
+    public DataRepository load() throws Exception {
+        repo.load();
+        return repo;
+    }
+
+    @Benchmark
+    public DataRepository save() throws Exception {
+        repo.save();
+        return repo;
+    }
+}
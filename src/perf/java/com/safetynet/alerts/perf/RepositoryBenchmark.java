@@ -0,0 +1,79 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point and range lookups on {@link DataRepository}.
+ * <p>
+ * Parameterized over dataset size, number of stations and household size
+ * (address cardinality is {@code persons / householdSize}). Keys are sampled
+ * uniformly from the generated dataset so every call hits, once per trial,
+ * and cycled through.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class RepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int persons;
+
+    @Param({"4", "64"})
+    int stations;
+
+    @Param({"3", "20"})
+    int householdSize;
+
+    PerfDataset dataset;
+    DataRepository repo;
+    String[] addresses;
+    DatasetGenerator.Member[] members;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = new PerfDataset(persons, stations, householdSize);
+        File work = Files.createTempDirectory("safetynet-bench").toFile();
+        work.deleteOnExit();
+        repo = dataset.loadRepository(work);
+        addresses = Arrays.stream(dataset.sampleHouseholds()).map(DatasetGenerator.Household::address)
+                .toArray(String[]::new);
+        members = dataset.sampleMembers();
+    }
+
+    private int next() {
+        return next++ & (PerfDataset.SAMPLES - 1);
+    }
+
+    @Benchmark
+    public List<Person> findPersonsByAddress() {
+        return repo.findPersonsByAddress(addresses[next()]);
+    }
+
+    @Benchmark
+    public Optional<MedicalRecord> findMedical() {
+        DatasetGenerator.Member m = members[next()];
+        return repo.findMedical(m.firstName(), m.lastName());
+    }
+
+    @Benchmark
+    public List<Person> findPersonsByStation() {
+        int s = ThreadLocalRandom.current().nextInt(stations) + 1;
+        return repo.findPersonsByStation(s);
+    }
+}
@@ -0,0 +1,103 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixed admin traffic from 16 threads against one repository: four threads
+ * each update persons, firestations and medical records while four read by
+ * address. Updates of different entity types only meet on the short engine
+ * lock, and reads take no lock, so the per-operation times should stay close
+ * to their single-threaded values in {@link StorageEngineBenchmark}; a rise
+ * shows up as {@code safetynet_repository_lock_wait_seconds} when the same
+ * traffic runs against the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class RepositoryContentionBenchmark {
+
+    @Param({"memory", "journal", "json"})
+    String engine;
+
+    @Param({"1000", "100000"})
+    int persons;
+
+    PerfDataset dataset;
+    DataRepository repo;
+    DatasetGenerator.Household[] households;
+    DatasetGenerator.Member[] members;
+    String[] phones;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = new PerfDataset(persons, 4, 3);
+        File work = Files.createTempDirectory("safetynet-bench").toFile();
+        work.deleteOnExit();
+        repo = dataset.loadRepository(work, engine);
+        households = dataset.sampleHouseholds();
+        members = dataset.sampleMembers();
+        phones = StorageEngineBenchmark.phones();
+    }
+
+    /** Per-thread position in the samples, so that threads do not share a counter. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = ThreadLocalRandom.current().nextInt(PerfDataset.SAMPLES);
+
+        int next() {
+            return next++ & (PerfDataset.SAMPLES - 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repo.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public boolean updatePerson(Cursor c) throws Exception {
+        int i = c.next();
+        DatasetGenerator.Household h = households[i];
+        DatasetGenerator.Member m = h.members().get(0);
+        return repo.updatePerson(new Person(m.firstName(), m.lastName(), h.address(), h.city(), h.zip(), phones[i], m.email()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public boolean updateFirestation(Cursor c) throws Exception {
+        DatasetGenerator.Household h = households[c.next()];
+        return repo.updateFirestation(new Firestation(h.address(), h.station()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public boolean updateMedicalRecord(Cursor c) throws Exception {
+        DatasetGenerator.Member m = members[c.next()];
+        return repo.updateMedicalRecord(new MedicalRecord(m.firstName(), m.lastName(), m.birthdate(),
+                m.medications(), m.allergies()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public List<Person> findPersonsByAddress(Cursor c) {
+        return repo.findPersonsByAddress(households[c.next()].address());
+    }
+}
@@ -0,0 +1,70 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DataRepository#save()} and {@link DataRepository#load()} for each
+ * snapshot compression level (0 = plain JSON). Single-shot, like
+ * {@link PersistenceBenchmark}; at the end of each trial the size of the
+ * written data file is printed next to the plain size, so the time per
+ * operation can be read as throughput against the bytes that reach the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class SnapshotCompressionBenchmark {
+
+    @Param({"100000", "1000000"})
+    int persons;
+
+    @Param({"0", "1", "6", "9"})
+    int level;
+
+    @Param({"4"})
+    int stations;
+
+    @Param({"3"})
+    int householdSize;
+
+    DataRepository repo;
+    File plain;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File work = Files.createTempDirectory("safetynet-bench").toFile();
+        work.deleteOnExit();
+        PerfDataset dataset = new PerfDataset(persons, stations, householdSize);
+        plain = dataset.ensureWritten();
+        repo = dataset.loadRepository(work);
+        repo.setCompressionLevel(level);
+        repo.save();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() throws Exception {
+        long written = repo.dataFile().length();
+        System.out.printf("%nlevel=%d persons=%d: data file %,d bytes (%.1f%% of %,d plain)%n",
+                level, persons, written, 100.0 * written / plain.length(), plain.length());
+        repo.close();
+    }
+
+    @Benchmark
+    public DataRepository save() throws Exception {
+        repo.save();
+        return repo;
+    }
+
+    @Benchmark
+    public DataRepository load() throws Exception {
+        repo.load();
+        return repo;
+    }
+}
@@ -0,0 +1,87 @@
+package com.safetynet.alerts.perf;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same workload against each storage engine: single-record admin
+ * updates, a read by station, and a restart ({@link DataRepository#load()},
+ * including journal replay).
+ * <p>
+ * Run e.g. {@code -Djmh.args="StorageEngineBenchmark -p persons=100000"} to
+ * see where the per-change cost of the {@code json} engine's full rewrite
+ * overtakes the {@code journal} engine's append plus periodic compaction.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class StorageEngineBenchmark {
+
+    @Param({"json", "journal", "memory", "btree"})
+    String engine;
+
+    @Param({"1000", "100000"})
+    int persons;
+
+    PerfDataset dataset;
+    DataRepository repo;
+    DatasetGenerator.Household[] households;
+    String[] phones;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = new PerfDataset(persons, 4, 3);
+        File work = Files.createTempDirectory("safetynet-bench").toFile();
+        work.deleteOnExit();
+        repo = dataset.loadRepository(work, engine);
+        households = dataset.sampleHouseholds();
+        phones = phones();
+    }
+
+    /** Random phone numbers, so that consecutive updates of a person change it. */
+    static String[] phones() {
+        String[] out = new String[PerfDataset.SAMPLES];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = "841-" + ThreadLocalRandom.current().nextInt(100, 1000) + "-0000";
+        }
+        return out;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repo.close();
+    }
+
+    @Benchmark
+    public boolean updatePerson() throws Exception {
+        int i = next++ & (PerfDataset.SAMPLES - 1);
+        DatasetGenerator.Household h = households[i];
+        DatasetGenerator.Member m = h.members().get(0);
+        return repo.updatePerson(new Person(m.firstName(), m.lastName(), h.address(), h.city(), h.zip(), phones[i], m.email()));
+    }
+
+    @Benchmark
+    public List<Person> findPersonsByStation() {
+        return repo.findPersonsByStation(ThreadLocalRandom.current().nextInt(dataset.stations()) + 1);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DataRepository restart() throws Exception {
+        repo.load();
+        return repo;
+    }
+}
@@ -0,0 +1,151 @@
+package com.safetynet.alerts.perf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Turns {@code logs/safetynet-alerts.log} (and its rotated {@code .gz} files) into
+ * a replayable request trace.
+ * <p>
+ * Controllers log requests in two styles, both understood here:
+ * <ul>
+ *   <li>{@code GET /firestation?stationNumber=3} (query string, {@code QueryController})</li>
+ *   <li>{@code DELETE /person firstName=John lastName=Boyd} (key=value pairs, admin controllers)</li>
+ * </ul>
+ * Lines that log a request body ({@code POST}/{@code PUT ... body=...}) cannot be
+ * reconstructed, because the body is written with {@code toString()}; they are
+ * counted as skipped. {@code DELETE}s are only kept when asked for.
+ * </p>
+ */
+public final class TrafficLog {
+
+    /** One request seen in the log. */
+    public record Request(Instant at, String method, String path, Map<String, String> params) {
+
+        /** Path and URL-encoded query string, e.g. {@code /fire?address=1509+Culver+St}. */
+        public String uri() {
+            if (params.isEmpty()) return path;
+            StringJoiner q = new StringJoiner("&", path + "?", "");
+            params.forEach((k, v) -> q.add(URLEncoder.encode(k, StandardCharsets.UTF_8)
+                    + "=" + URLEncoder.encode(v, StandardCharsets.UTF_8)));
+            return q.toString();
+        }
+    }
+
+    /** Parse outcome: the ordered trace plus what was left out. */
+    public record Trace(List<Request> requests, int skippedWithBody, int skippedDeletes) {
+    }
+
+    private static final Pattern LINE = Pattern.compile(
+            "^(\\S+)\\s+\\w+\\s+.*?\\s:\\s(GET|POST|PUT|DELETE) (/[^\\s?]*)(\\?.*|\\s+.*)?$");
+    private static final Pattern PAIR = Pattern.compile("(\\w+)=(.*?)(?=\\s+\\w+=|$)");
+    private static final Pattern ROTATED = Pattern.compile(".*\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)(\\.gz)?$");
+
+    private TrafficLog() {
+    }
+
+    /**
+     * Reads every log file under {@code location} (or the single file it names),
+     * rotated files first in date order, the live log last, and returns requests
+     * sorted by timestamp.
+     */
+    public static Trace read(Path location, boolean includeDeletes) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> s = Files.list(location)) {
+                s.filter(p -> p.getFileName().toString().contains(".log")).forEach(files::add);
+            }
+        } else {
+            files.add(location);
+        }
+        files.sort(Comparator.comparing(TrafficLog::rotationKey));
+
+        List<Request> requests = new ArrayList<>();
+        int[] skipped = new int[2];
+        for (Path file : files) {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    parseLine(line, includeDeletes, requests, skipped);
+                }
+            }
+        }
+        requests.sort(Comparator.comparing(Request::at));
+        return new Trace(requests, skipped[0], skipped[1]);
+    }
+
+    /** Parses one log line; returns the request or {@code null} when it is not a replayable request. */
+    public static Request parse(String line) {
+        List<Request> out = new ArrayList<>(1);
+        parseLine(line, true, out, new int[2]);
+        return out.isEmpty() ? null : out.get(0);
+    }
+
+    private static void parseLine(String line, boolean includeDeletes, List<Request> out, int[] skipped) {
+        Matcher m = LINE.matcher(line);
+        if (!m.matches()) return;
+        Instant at;
+        try {
+            at = OffsetDateTime.parse(m.group(1)).toInstant();
+        } catch (DateTimeParseException e) {
+            return;
+        }
+        String method = m.group(2);
+        String path = m.group(3);
+        String rest = m.group(4) == null ? "" : m.group(4).trim();
+
+        if (rest.contains("body=")) {
+            skipped[0]++;
+            return;
+        }
+        if (method.equals("DELETE") && !includeDeletes) {
+            skipped[1]++;
+            return;
+        }
+        if (method.equals("POST") || method.equals("PUT")) {
+            skipped[0]++;
+            return;
+        }
+
+        // Values are logged unencoded, so a query string runs to the end of the line.
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rest.startsWith("?")) {
+            for (String kv : rest.substring(1).split("&")) {
+                String[] parts = kv.split("=", 2);
+                if (!parts[0].isEmpty()) params.put(parts[0], parts.length > 1 ? parts[1] : "");
+            }
+        } else {
+            Matcher pm = PAIR.matcher(rest);
+            while (pm.find()) {
+                params.put(pm.group(1), pm.group(2));
+            }
+        }
+        out.add(new Request(at, method, path, params));
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    /** Rotated files ({@code name.yyyy-MM-dd.N[.gz]}) sort by date and index; the live file sorts last. */
+    private static String rotationKey(Path p) {
+        Matcher m = ROTATED.matcher(p.getFileName().toString());
+        if (m.matches()) return m.group(1) + String.format("-%06d", Integer.parseInt(m.group(2)));
+        return "9999-99-99";
+    }
+}
@@ -0,0 +1,80 @@
+package com.safetynet.alerts.perf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrafficLogTest {
+
+    private static final String PREFIX = "  INFO 29748 --- [SafetyNet Alerts] [http-nio-8080-exec-5] "
+            + "c.s.alerts.controller.QueryController    : ";
+
+    @TempDir
+    Path dir;
+
+    private static String line(String at, String request) {
+        return at + PREFIX + request;
+    }
+
+    @Test
+    void parses_query_string_and_key_value_styles() {
+        TrafficLog.Request fire = TrafficLog.parse(line("2026-02-19T15:20:26.934-05:00", "GET /fire?address=1509 Culver St"));
+        assertThat(fire.path()).isEqualTo("/fire");
+        assertThat(fire.params()).isEqualTo(Map.of("address", "1509 Culver St"));
+        assertThat(fire.uri()).isEqualTo("/fire?address=1509+Culver+St");
+
+        TrafficLog.Request info = TrafficLog.parse(line("2026-02-19T15:20:27.000-05:00", "GET /personInfo lastName=Boyd"));
+        assertThat(info.uri()).isEqualTo("/personInfo?lastName=Boyd");
+
+        TrafficLog.Request delete = TrafficLog.parse(line("2026-02-19T15:20:28.000-05:00",
+                "DELETE /firestation address=1509 Culver St"));
+        assertThat(delete.method()).isEqualTo("DELETE");
+        assertThat(delete.params()).isEqualTo(Map.of("address", "1509 Culver St"));
+
+        assertThat(TrafficLog.parse(line("2026-02-19T15:20:29.000-05:00",
+                "PUT /person firstName=John lastName=Boyd body=com.safetynet.alerts.model.Person@1"))).isNull();
+        assertThat(TrafficLog.parse("2026-02-19T15:20:29.000-05:00  INFO 1 --- [main] Started AlertsApplication")).isNull();
+    }
+
+    @Test
+    void reads_rotated_gzip_files_and_live_log_in_time_order() throws Exception {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("safetynet-alerts.log.2026-02-19.0.gz")))) {
+            out.write(String.join("\n",
+                    line("2026-02-19T10:00:00.000-05:00", "GET /firestation?stationNumber=3"),
+                    line("2026-02-19T10:00:01.000-05:00", "POST /person body=com.safetynet.alerts.model.Person@1"),
+                    line("2026-02-19T10:00:02.000-05:00", "DELETE /person firstName=John lastName=Boyd"))
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        Files.writeString(dir.resolve("safetynet-alerts.log"),
+                line("2026-02-20T09:00:00.000-05:00", "GET /childAlert?address=1509 Culver St"));
+
+        TrafficLog.Trace trace = TrafficLog.read(dir, false);
+
+        assertThat(trace.requests()).extracting(TrafficLog.Request::path).containsExactly("/firestation", "/childAlert");
+        assertThat(trace.skippedWithBody()).isEqualTo(1);
+        assertThat(trace.skippedDeletes()).isEqualTo(1);
+        assertThat(TrafficLog.read(dir, true).requests()).hasSize(3);
+    }
+
+    @Test
+    void schedule_caps_idle_gaps_and_scales_by_speed() {
+        List<TrafficLog.Request> requests = List.of(
+                TrafficLog.parse(line("2026-02-19T10:00:00.000-05:00", "GET /firestation?stationNumber=1")),
+                TrafficLog.parse(line("2026-02-19T10:00:01.000-05:00", "GET /firestation?stationNumber=2")),
+                TrafficLog.parse(line("2026-02-19T12:00:00.000-05:00", "GET /firestation?stationNumber=3")));
+
+        long[] offsets = TrafficReplay.schedule(requests, Duration.ofSeconds(5), 2.0);
+
+        assertThat(offsets).containsExactly(0L, Duration.ofMillis(500).toNanos(), Duration.ofMillis(3000).toNanos());
+    }
+}
@@ -0,0 +1,157 @@
+package com.safetynet.alerts.perf;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the request mix recorded in {@code logs/} against a running instance.
+ * <p>
+ * Requests are issued on the original timeline, compressed by {@code --speed}
+ * (2.0 = twice as fast) and with idle gaps capped at {@code --max-gap}. A pool
+ * of {@code --clients} workers sends them; response time is measured from the
+ * request's scheduled time, so time spent waiting for a free client counts
+ * (no coordinated omission), and service time (from the actual send) is
+ * reported alongside.
+ * </p>
+ *
+ * <pre>
+ * mvn -Pperf test-compile exec:java -Dexec.mainClass=com.safetynet.alerts.perf.TrafficReplay \
+ *     -Dexec.args="--target=http://localhost:8080 --logs=logs --speed=10 --clients=16"
+ * </pre>
+ */
+public final class TrafficReplay {
+
+    /** Replay knobs; CLI flags use the same names in kebab case. */
+    public static final class Options {
+        public URI target = URI.create("http://localhost:8080");
+        public Path logs = Paths.get("logs");
+        public double speed = 1.0;
+        public int clients = 8;
+        public Duration maxGap = Duration.ofSeconds(10);
+        public boolean includeDeletes;
+        public int limit = Integer.MAX_VALUE;
+        public Duration timeout = Duration.ofSeconds(30);
+        public String histogram;
+
+        public static Options parse(String... args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+                String[] kv = arg.substring(2).split("=", 2);
+                String v = kv.length > 1 ? kv[1] : "true";
+                switch (kv[0]) {
+                    case "target" -> o.target = URI.create(v);
+                    case "logs" -> o.logs = Paths.get(v);
+                    case "speed" -> o.speed = Double.parseDouble(v);
+                    case "clients" -> o.clients = Integer.parseInt(v);
+                    case "max-gap" -> o.maxGap = Duration.parse(v);
+                    case "include-deletes" -> o.includeDeletes = Boolean.parseBoolean(v);
+                    case "limit" -> o.limit = Integer.parseInt(v);
+                    case "timeout" -> o.timeout = Duration.parse(v);
+                    case "histogram" -> o.histogram = v;
+                    default -> throw new IllegalArgumentException("Unknown option: --" + kv[0]);
+                }
+            }
+            if (o.speed <= 0) throw new IllegalArgumentException("speed must be > 0");
+            if (o.clients < 1) throw new IllegalArgumentException("clients must be >= 1");
+            return o;
+        }
+    }
+
+    /** Result of a replay run. */
+    public record Result(LatencyRecorder responseTime, LatencyRecorder serviceTime, double elapsedSeconds) {
+    }
+
+    private TrafficReplay() {
+    }
+
+    /**
+     * Offsets (ns from replay start) for each request: original spacing with gaps
+     * capped at {@code maxGap}, divided by {@code speed}.
+     */
+    static long[] schedule(List<TrafficLog.Request> requests, Duration maxGap, double speed) {
+        long[] offsets = new long[requests.size()];
+        long cap = maxGap.isZero() ? Long.MAX_VALUE : maxGap.toNanos();
+        long t = 0;
+        for (int i = 1; i < requests.size(); i++) {
+            long gap = Duration.between(requests.get(i - 1).at(), requests.get(i).at()).toNanos();
+            t += Math.min(Math.max(0, gap), cap);
+            offsets[i] = (long) (t / speed);
+        }
+        return offsets;
+    }
+
+    public static Result replay(List<TrafficLog.Request> requests, Options o) throws InterruptedException {
+        LatencyRecorder response = new LatencyRecorder();
+        LatencyRecorder service = new LatencyRecorder();
+        long[] offsets = schedule(requests, o.maxGap, o.speed);
+
+        ExecutorService clients = Executors.newFixedThreadPool(o.clients);
+        HttpClient http = HttpClient.newBuilder().connectTimeout(o.timeout).build();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests.size(); i++) {
+            long intended = start + offsets[i];
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            TrafficLog.Request r = requests.get(i);
+            HttpRequest req = HttpRequest.newBuilder(o.target.resolve(r.uri()))
+                    .timeout(o.timeout)
+                    .method(r.method(), HttpRequest.BodyPublishers.noBody())
+                    .build();
+            String label = r.method() + " " + r.path();
+            clients.execute(() -> {
+                long sent = System.nanoTime();
+                int status;
+                try {
+                    status = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (IOException e) {
+                    status = -1;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long done = System.nanoTime();
+                response.record(label, done - intended, status);
+                service.record(label, done - sent, status);
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.HOURS);
+        return new Result(response, service, (System.nanoTime() - start) / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options o = Options.parse(args);
+        TrafficLog.Trace trace = TrafficLog.read(o.logs, o.includeDeletes);
+        List<TrafficLog.Request> requests = new ArrayList<>(
+                trace.requests().subList(0, Math.min(o.limit, trace.requests().size())));
+        System.out.printf("Trace: %d requests (%d skipped with body, %d deletes skipped) from %s%n",
+                requests.size(), trace.skippedWithBody(), trace.skippedDeletes(), o.logs);
+        if (requests.isEmpty()) return;
+
+        Result result = replay(requests, o);
+        System.out.printf("%nResponse time (from scheduled start), %d clients, speed x%.2f, %.1f s:%n",
+                o.clients, o.speed, result.elapsedSeconds());
+        result.responseTime().report(System.out, result.elapsedSeconds());
+        System.out.printf("%nService time (from actual send):%n");
+        result.serviceTime().report(System.out, result.elapsedSeconds());
+        if (o.histogram != null) {
+            result.responseTime().writeDistribution(o.histogram);
+            System.out.println("Histogram written to " + o.histogram);
+        }
+    }
+}
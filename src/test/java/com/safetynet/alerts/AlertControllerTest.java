@@ -51,6 +51,21 @@ class AlertControllerTest {
 		mvc.perform(get("/flood/stations").param("stations", "1,2")).andExpect(status().isOk());
 	}
 
+	@Test
+	void heavy_queries_past_their_deadline_return_504() throws Exception {
+		mvc.perform(get("/flood/stations").param("stations", "1,2").param("timeoutMs", "0"))
+				.andExpect(status().isGatewayTimeout())
+				.andExpect(jsonPath("$.code").value("GATEWAY_TIMEOUT"));
+		mvc.perform(get("/firestation").param("stationNumber", "1").header("X-Timeout-Ms", "0"))
+				.andExpect(status().isGatewayTimeout());
+		mvc.perform(get("/person/all").param("timeoutMs", "0")).andExpect(status().isGatewayTimeout());
+		mvc.perform(get("/firestation/all").param("timeoutMs", "0")).andExpect(status().isGatewayTimeout());
+		mvc.perform(get("/medicalRecord/all").header("X-Timeout-Ms", "0")).andExpect(status().isGatewayTimeout());
+		mvc.perform(get("/flood/stations").param("stations", "1,2").param("timeoutMs", "10000"))
+				.andExpect(status().isOk());
+		mvc.perform(get("/firestation/all").param("timeoutMs", "soon")).andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void personInfo_by_lastname() throws Exception {
 		mvc.perform(get("/personInfo").param("lastName", "Boyd")).andExpect(status().isOk());
@@ -0,0 +1,34 @@
+package com.safetynet.alerts;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsEndpointTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Test
+	void prometheus_exposes_query_repository_and_lock_metrics() throws Exception {
+		mvc.perform(get("/fire").param("address", "1509 Culver St")).andExpect(status().isOk());
+
+		mvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("safetynet_alerts_query_seconds{endpoint=\"fire\",quantile=\"0.99\"}")))
+				.andExpect(content().string(containsString("safetynet_alerts_result_size_count{endpoint=\"fire\"}")))
+				.andExpect(content().string(containsString("safetynet_repository_operation_seconds_count{op=\"findPersonsByAddress\"}")))
+				.andExpect(content().string(containsString("safetynet_repository_lock_wait_seconds_count{op=\"load\"}")))
+				.andExpect(content().string(containsString("uri=\"/fire\",quantile=\"0.999\"}")));
+	}
+}
@@ -0,0 +1,36 @@
+package com.safetynet.alerts;
+
+import com.safetynet.alerts.health.DatasetHealthIndicator;
+import com.safetynet.alerts.repository.DataRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReadinessEndpointTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Test
+	void readiness_is_up_once_dataset_loaded() throws Exception {
+		mvc.perform(get("/actuator/health/readiness"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.status").value("UP"));
+	}
+
+	@Test
+	void dataset_indicator_is_out_of_service_before_load() {
+		DatasetHealthIndicator indicator = new DatasetHealthIndicator(new DataRepository());
+
+		assertThat(indicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+	}
+}
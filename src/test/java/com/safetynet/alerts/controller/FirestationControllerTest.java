@@ -3,6 +3,7 @@ package com.safetynet.alerts.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.controller.FirestationController;
 import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.repository.VersionConflictException;
 import com.safetynet.alerts.service.AdminService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -71,6 +72,39 @@ class FirestationControllerTest {
            .andExpect(jsonPath("$.station").value(4));
     }
 
+    @Test
+    @DisplayName("PUT /firestation?address=... with If-Match -> conditional update, new ETag")
+    void update_station_if_match() throws Exception {
+        Mockito.when(admin.updateFirestation(any(Firestation.class), eq(7L))).thenAnswer(inv -> {
+            inv.getArgument(0, Firestation.class).setVersion(8);
+            return true;
+        });
+
+        mvc.perform(put("/firestation")
+                .param("address", "1509 Culver St")
+                .header("If-Match", "\"7\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"station\":4}"))
+           .andExpect(status().isOk())
+           .andExpect(header().string("ETag", "\"8\""));
+    }
+
+    @Test
+    @DisplayName("PUT /firestation?address=... with a stale If-Match -> 412 with the current ETag")
+    void update_station_stale_if_match() throws Exception {
+        Mockito.when(admin.updateFirestation(any(Firestation.class), eq(7L)))
+               .thenThrow(new VersionConflictException(7, 9));
+
+        mvc.perform(put("/firestation")
+                .param("address", "1509 Culver St")
+                .header("If-Match", "\"7\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"station\":4}"))
+           .andExpect(status().isPreconditionFailed())
+           .andExpect(header().string("ETag", "\"9\""))
+           .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+    }
+
     @Test
     @DisplayName("PUT /firestation?address=... (not found) -> 404")
     void update_station_not_found() throws Exception {
@@ -135,6 +169,20 @@ class FirestationControllerTest {
            .andExpect(jsonPath("$.station").value(3));
     }
 
+    @Test
+    @DisplayName("GET /firestation?address=... -> ETag carries the version")
+    void get_by_address_etag() throws Exception {
+        Firestation f = new Firestation("1509 Culver St", 3);
+        f.setVersion(42);
+        Mockito.when(admin.getFirestationByAddress("1509 Culver St")).thenReturn(Optional.of(f));
+
+        mvc.perform(get("/firestation")
+                .param("address", "1509 Culver St"))
+           .andExpect(status().isOk())
+           .andExpect(header().string("ETag", "\"42\""))
+           .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
     @Test
     @DisplayName("GET /firestation?address=... (not found) -> 404")
     void get_by_address_not_found() throws Exception {
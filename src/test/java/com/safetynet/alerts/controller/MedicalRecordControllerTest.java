@@ -3,6 +3,7 @@ package com.safetynet.alerts.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.repository.VersionConflictException;
 import com.safetynet.alerts.service.AdminService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -43,7 +44,6 @@ class MedicalRecordControllerTest {
     @DisplayName("POST /medicalRecord -> 201 Created")
     void add_medical_record_created() throws Exception {
         var m = sample();
-        Mockito.when(admin.getMedicalRecord("John1","Doe1")).thenReturn(Optional.empty());
         Mockito.doNothing().when(admin).addMedicalRecord(any(MedicalRecord.class));
 
         mvc.perform(post("/medicalRecord")
@@ -59,13 +59,28 @@ class MedicalRecordControllerTest {
     @DisplayName("POST /medicalRecord (duplicate) -> 409 Conflict")
     void add_medical_record_conflict() throws Exception {
         var m = sample();
-        Mockito.when(admin.getMedicalRecord("John1","Doe1"))
-               .thenReturn(Optional.of(m)); // exists
+        Mockito.doThrow(new IllegalStateException("Medical record already exists for given firstName and lastName"))
+               .when(admin).addMedicalRecord(any(MedicalRecord.class));
 
         mvc.perform(post("/medicalRecord")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(om.writeValueAsString(m)))
-           .andExpect(status().isConflict());
+           .andExpect(status().isConflict())
+           .andExpect(jsonPath("$.message").value("Medical record already exists for given firstName and lastName"));
+    }
+
+    @Test
+    @DisplayName("POST /medicalRecord (read-only dataset) -> 405 with Allow")
+    void add_medical_record_read_only() throws Exception {
+        Mockito.doThrow(new UnsupportedOperationException("Dataset is read-only in columnar storage mode"))
+               .when(admin).addMedicalRecord(any(MedicalRecord.class));
+
+        mvc.perform(post("/medicalRecord")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(om.writeValueAsString(sample())))
+           .andExpect(status().isMethodNotAllowed())
+           .andExpect(header().string("Allow", "GET,HEAD"))
+           .andExpect(jsonPath("$.message").value("Dataset is read-only in columnar storage mode"));
     }
 
     @Test
@@ -121,6 +136,26 @@ class MedicalRecordControllerTest {
            .andExpect(status().isNoContent());
     }
 
+    @Test
+    @DisplayName("DELETE /medicalRecord with If-Match -> conditional delete; unknown tags never match")
+    void delete_medical_record_if_match() throws Exception {
+        Mockito.when(admin.deleteMedicalRecord("John1", "Doe1", 5L)).thenReturn(true);
+        Mockito.when(admin.deleteMedicalRecord("John1", "Doe1", -1L))
+               .thenThrow(new VersionConflictException(-1, 5));
+
+        mvc.perform(delete("/medicalRecord")
+                .param("firstName", "John1")
+                .param("lastName", "Doe1")
+                .header("If-Match", "\"5\""))
+           .andExpect(status().isNoContent());
+        mvc.perform(delete("/medicalRecord")
+                .param("firstName", "John1")
+                .param("lastName", "Doe1")
+                .header("If-Match", "W/\"5\""))
+           .andExpect(status().isPreconditionFailed());
+        Mockito.verify(admin, Mockito.never()).deleteMedicalRecord("John1", "Doe1");
+    }
+
     @Test
     @DisplayName("DELETE /medicalRecord?firstName&lastName (not found) -> 404")
     void delete_medical_record_not_found() throws Exception {
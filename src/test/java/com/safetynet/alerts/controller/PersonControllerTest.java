@@ -1,6 +1,7 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.VersionConflictException;
 import com.safetynet.alerts.service.PersonService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -68,6 +69,25 @@ class PersonControllerTest {
            .andExpect(jsonPath("$.code").value("BAD_REQUEST"));
     }
 
+    @Test
+    void updatePerson_staleIfMatch_412() throws Exception {
+        when(service.updatePerson(eq("John"), eq("Boyd"), any(Person.class), eq(3L)))
+                .thenThrow(new VersionConflictException(3, 4));
+        mvc.perform(put("/person?firstName=John&lastName=Boyd")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"John\",\"lastName\":\"Boyd\"}"))
+           .andExpect(status().isPreconditionFailed())
+           .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void deletePerson_ifMatchStar_isUnconditional() throws Exception {
+        when(service.deletePerson("John", "Boyd")).thenReturn(true);
+        mvc.perform(delete("/person?firstName=John&lastName=Boyd").header("If-Match", "*"))
+           .andExpect(status().isNoContent());
+    }
+
     @Test
     void deletePerson_notFound_404() throws Exception {
         when(service.deletePerson("No", "Body")).thenReturn(false);
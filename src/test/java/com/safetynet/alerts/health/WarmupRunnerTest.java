@@ -0,0 +1,62 @@
+package com.safetynet.alerts.health;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.repository.DataRepository;
+import com.safetynet.alerts.service.AlertService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmupRunnerTest {
+
+    @TempDir
+    File dir;
+
+    private DataRepository repo;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repo = new DataRepository(new FileSystemResource(new File(dir, "data.json")),
+                new ClassPathResource("test-seed.json"));
+        repo.load();
+    }
+
+    private WarmupRunner runner(DataRepository r) {
+        WarmupRunner w = new WarmupRunner(new AlertService(r), r, new ObjectMapper());
+        ReflectionTestUtils.setField(w, "budget", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(w, "roundSize", 50);
+        return w;
+    }
+
+    @Test
+    void reports_out_of_service_until_warm_up_ran_then_up() {
+        WarmupRunner w = runner(repo);
+        assertThat(w.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        long calls = w.warmUp();
+
+        assertThat(calls).isGreaterThanOrEqualTo(50);
+        assertThat(w.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void disabled_or_empty_dataset_is_ready_without_calls() {
+        WarmupRunner disabled = runner(repo);
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+        assertThat(disabled.warmUp()).isZero();
+        assertThat(disabled.health().getStatus()).isEqualTo(Status.UP);
+
+        WarmupRunner empty = runner(new DataRepository());
+        assertThat(empty.warmUp()).isZero();
+        assertThat(empty.health().getStatus()).isEqualTo(Status.UP);
+    }
+}
@@ -0,0 +1,190 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.Household.AgeGroup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgeRolloverTest {
+
+    @TempDir
+    File dir;
+
+    DataRepository repo;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repo = new DataRepository(new FileSystemResource(new File(dir, "data.json")),
+                new ClassPathResource("test-seed.json"));
+        repo.setStorageEngine("memory");
+        setDay(LocalDate.of(2026, 3, 5));
+        repo.load();
+        // Jacob turns 19 tomorrow; Tessa lives elsewhere and stays a child
+        repo.addMedicalRecord(record("Jacob", "Boyd", "03/06/2007"));
+        repo.addPerson(new Person("Tessa", "Carman", "834 Binoc Ave", "Culver", "97451", "841-874-6512", "t@c.com"));
+        repo.addMedicalRecord(record("Tessa", "Carman", "02/18/2012"));
+    }
+
+    @Test
+    void households_carry_age_groups() {
+        Household h = repo.findHousehold(" 1509 CULVER st").orElseThrow();
+
+        assertThat(h.residents()).extracting(r -> r.person().getFirstName()).containsExactly("John", "Jacob");
+        assertThat(h.residents()).extracting(Household.Resident::group).containsExactly(AgeGroup.ADULT, AgeGroup.CHILD);
+        assertThat(h.children()).isEqualTo(1);
+        assertThat(h.adults()).isEqualTo(1);
+        assertThat(repo.findHousehold("29 15th St")).isEmpty();
+    }
+
+    @Test
+    void the_rollover_reclassifies_only_households_where_someone_came_of_age() {
+        setDay(LocalDate.of(2026, 3, 6));
+
+        assertThat(repo.rollover()).isEqualTo(1);
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().children()).isZero();
+        assertThat(repo.findHousehold("834 Binoc Ave").orElseThrow().children()).isEqualTo(1);
+        assertThat(repo.ageCountsAt(Set.of("1509 culver st", "834 binoc ave")))
+                .isEqualTo(new DataRepository.AgeCounts(1, 2));
+        assertThat(repo.rollover()).isZero();
+    }
+
+    @Test
+    void reads_on_a_new_day_roll_over_by_themselves() {
+        long generation = repo.generation();
+        setDay(LocalDate.of(2026, 3, 7));
+
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().adults()).isEqualTo(2);
+        assertThat(repo.generation()).isGreaterThan(generation);
+        assertThat(repo.rollover()).isZero();
+    }
+
+    @Test
+    void reads_on_a_new_day_do_not_wait_for_the_engine_lock() throws Exception {
+        ReentrantLock engine = (ReentrantLock) ReflectionTestUtils.getField(repo, "engineLock");
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        setDay(LocalDate.of(2026, 3, 7));
+        engine.lock();
+        try {
+            Future<Household> read = pool.submit(() -> repo.findHousehold("1509 Culver St").orElseThrow());
+            assertThat(read.get(30, TimeUnit.SECONDS).adults()).isEqualTo(2);
+        } finally {
+            engine.unlock();
+            pool.shutdownNow();
+        }
+        // the read could not publish its households, so the scheduler still has to
+        assertThat(repo.rollover()).isEqualTo(1);
+        assertThat(repo.rollover()).isZero();
+    }
+
+    @Test
+    void reloads_rebuild_only_the_households_they_touch() throws Exception {
+        Household binoc = repo.findHousehold("834 Binoc Ave").orElseThrow();
+        List<MedicalRecord> records = new ArrayList<>(repo.getMedicalrecords());
+        records.replaceAll(m -> m.getFirstName().equals("Jacob") ? record("Jacob", "Boyd", "01/01/1990") : m);
+        File file = repo.dataFile();
+        new ObjectMapper().writeValue(file, Map.of("persons", repo.getPersons(),
+                "firestations", repo.getFirestations(), "medicalrecords", records));
+        file.setLastModified(file.lastModified() + 2000);
+
+        assertThat(repo.reloadIfChanged()).isTrue();
+
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().children()).isZero();
+        assertThat(repo.findHousehold("834 Binoc Ave").orElseThrow()).isSameAs(binoc);
+    }
+
+    @Test
+    void a_february_29_birthday_comes_of_age_on_march_1() throws Exception {
+        repo.updateMedicalRecord(record("Jacob", "Boyd", "02/29/2008"));
+        setDay(LocalDate.of(2027, 2, 28));
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().children()).isEqualTo(1);
+
+        setDay(LocalDate.of(2027, 3, 1));
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().children()).isZero();
+    }
+
+    @Test
+    void changes_rebuild_the_households_they_touch() throws Exception {
+        repo.updateMedicalRecord(record("Jacob", "Boyd", "01/01/1990"));
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().children()).isZero();
+
+        repo.updatePerson(new Person("Tessa", "Carman", "1509 Culver St", "Culver", "97451", "841", "t@c.com"));
+        assertThat(repo.findHousehold("834 Binoc Ave")).isEmpty();
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().children()).isEqualTo(1);
+
+        repo.deleteMedicalRecord("Tessa", "Carman");
+        Household h = repo.findHousehold("1509 Culver St").orElseThrow();
+        assertThat(h.children()).isZero();
+        assertThat(h.residents()).extracting(Household.Resident::group)
+                .containsExactly(AgeGroup.ADULT, AgeGroup.ADULT, AgeGroup.UNKNOWN);
+
+        repo.deletePerson("Tessa", "Carman");
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().residents()).hasSize(2);
+    }
+
+    @Test
+    void households_carry_ages_names_and_the_station() {
+        Household h = repo.findHousehold("1509 Culver St").orElseThrow();
+
+        assertThat(h.station()).isEqualTo(3);
+        assertThat(h.residents()).extracting(Household.Resident::name).containsExactly("John Boyd", "Jacob Boyd");
+        assertThat(h.residents()).extracting(Household.Resident::age).containsExactly(41, 18);
+        assertThat(h.residents().get(0).otherResidents()).isEmpty();
+        assertThat(h.residents().get(1).otherResidents()).containsExactly("John Boyd");
+        assertThat(repo.findHousehold("834 Binoc Ave").orElseThrow().station()).isEqualTo(-1);
+    }
+
+    @Test
+    void ages_move_on_every_birthday() {
+        setDay(LocalDate.of(2026, 3, 6));
+
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().residents())
+                .extracting(Household.Resident::age).containsExactly(42, 19);
+        assertThat(repo.findHousehold("834 Binoc Ave").orElseThrow().residents().get(0).age()).isEqualTo(14);
+    }
+
+    @Test
+    void firestation_changes_rebuild_the_households_they_cover() throws Exception {
+        repo.addFirestation(new Firestation("834 Binoc Ave", 2));
+        assertThat(repo.findHousehold("834 Binoc Ave").orElseThrow().station()).isEqualTo(2);
+
+        repo.updateFirestation(new Firestation("1509 Culver St", 4));
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().station()).isEqualTo(4);
+
+        repo.deleteFirestationByStation(2);
+        assertThat(repo.findHousehold("834 Binoc Ave").orElseThrow().station()).isEqualTo(-1);
+
+        repo.deleteFirestation("4");
+        assertThat(repo.findHousehold("1509 Culver St").orElseThrow().station()).isEqualTo(-1);
+    }
+
+    private void setDay(LocalDate day) {
+        repo.setClock(Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+    }
+
+    private static MedicalRecord record(String first, String last, String birthdate) {
+        return new MedicalRecord(first, last, birthdate, new ArrayList<>(List.of()), new ArrayList<>(List.of()));
+    }
+}
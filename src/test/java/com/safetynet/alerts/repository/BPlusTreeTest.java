@@ -0,0 +1,103 @@
+package com.safetynet.alerts.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BPlusTreeTest {
+
+    @TempDir
+    File dir;
+
+    private static byte[] b(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void random_puts_and_removes_match_a_sorted_map_across_reopen() throws Exception {
+        File file = new File(dir, "t.btree");
+        TreeMap<String, String> expected = new TreeMap<>();
+        Random rnd = new Random(42);
+        try (PageFile pages = PageFile.create(file, 16)) {
+            BPlusTree tree = BPlusTree.create(pages, 0);
+            for (int i = 0; i < 50_000; i++) {
+                String k = "k" + rnd.nextInt(10_000);
+                if (rnd.nextInt(4) == 0) {
+                    assertThat(tree.remove(b(k))).isEqualTo(expected.remove(k) != null);
+                } else {
+                    String v = "v" + i + "x".repeat(rnd.nextInt(300));
+                    assertThat(tree.put(b(k), b(v))).isEqualTo(expected.put(k, v) == null);
+                }
+                if (i % 1000 == 0) pages.flush();
+            }
+            pages.flush();
+        }
+
+        try (PageFile pages = PageFile.open(file, 16)) {
+            BPlusTree tree = BPlusTree.open(pages, 0);
+            List<byte[][]> all = tree.scan(new byte[0], Integer.MAX_VALUE);
+            assertThat(all).hasSize(expected.size());
+            int i = 0;
+            for (Map.Entry<String, String> e : expected.entrySet()) {
+                assertThat(new String(all.get(i)[0], StandardCharsets.UTF_8)).isEqualTo(e.getKey());
+                assertThat(new String(all.get(i)[1], StandardCharsets.UTF_8)).isEqualTo(e.getValue());
+                i++;
+            }
+            assertThat(tree.scan(b("k123"), Integer.MAX_VALUE)).hasSize(expected.subMap("k123", "k124").size());
+            assertThat(tree.get(b("missing"))).isNull();
+        }
+    }
+
+    @Test
+    void truncates_the_log_after_a_flush_and_ignores_a_torn_one() throws Exception {
+        File file = new File(dir, "t.btree");
+        File wal = new File(dir, "t.btree.wal");
+        try (PageFile pages = PageFile.create(file, 16)) {
+            BPlusTree.create(pages, 0).put(b("a"), b("1"));
+            pages.flush();
+        }
+        assertThat(wal.length()).isZero();
+        byte[] flushed = Files.readAllBytes(file.toPath());
+
+        // a crash while the log was being written leaves a partial log and untouched pages
+        Files.write(wal.toPath(), new byte[] {0x53, 0x4E, 0x57, 0x4C, 0, 0, 0, 1, 0, 0});
+
+        try (PageFile pages = PageFile.open(file, 16)) {
+            assertThat(BPlusTree.open(pages, 0).get(b("a"))).isEqualTo(b("1"));
+        }
+        assertThat(Files.readAllBytes(file.toPath())).isEqualTo(flushed);
+    }
+
+    @Test
+    void rollback_forgets_unflushed_changes() throws Exception {
+        try (PageFile pages = PageFile.create(new File(dir, "t.btree"), 16)) {
+            BPlusTree tree = BPlusTree.create(pages, 0);
+            tree.put(b("a"), b("1"));
+            pages.flush();
+            for (int i = 0; i < 1000; i++) tree.put(b("k" + i), new byte[100]);
+            pages.rollback();
+
+            assertThat(tree.scan(new byte[0], Integer.MAX_VALUE)).hasSize(1);
+            assertThat(pages.pageCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void rejects_entries_that_cannot_share_a_page() throws Exception {
+        try (PageFile pages = PageFile.create(new File(dir, "t.btree"), 16)) {
+            BPlusTree tree = BPlusTree.create(pages, 0);
+            assertThatThrownBy(() -> tree.put(b("k"), new byte[BPlusTree.MAX_ENTRY]))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.service.AlertService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarStoreTest {
+
+    @TempDir
+    File dir;
+
+    private DataRepository repo;
+    private DataRepository memory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File data = new File(dir, "data.json");
+        Files.copy(new ClassPathResource("data.json").getInputStream(), data.toPath());
+        repo = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+        ReflectionTestUtils.setField(repo, "storageMode", "columnar");
+        repo.load();
+        memory = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+        memory.load();
+    }
+
+    @Test
+    void columnar_mode_serves_the_same_data_as_memory_mode() {
+        assertThat(repo.getPersons()).containsExactlyElementsOf(memory.getPersons());
+        assertThat(repo.getMedicalrecords()).containsExactlyElementsOf(memory.getMedicalrecords());
+        assertThat(repo.getFirestations()).containsExactlyElementsOf(memory.getFirestations());
+
+        assertThat(repo.findPersonsByAddress(" 1509 CULVER st")).containsExactlyElementsOf(
+                memory.findPersonsByAddress("1509 Culver St"));
+        assertThat(repo.findPersonsByAddress("nowhere")).isEmpty();
+        MedicalRecord john = repo.findMedical("john", "BOYD").orElseThrow();
+        assertThat(john).isEqualTo(memory.findMedical("John", "Boyd").orElseThrow());
+        assertThat(repo.findMedical("No", "Body")).isEmpty();
+    }
+
+    @Test
+    void column_scans_match_row_scans() throws Exception {
+        Set<String> addrs = Set.of("1509 culver st", "834 binoc ave", "nowhere");
+
+        assertThat(repo.emailsInCity("CULVER")).containsExactlyElementsOf(memory.emailsInCity("Culver"));
+        assertThat(repo.emailsInCity("Atlantis")).isEmpty();
+        assertThat(repo.phonesAt(addrs)).containsExactlyElementsOf(memory.phonesAt(addrs));
+        assertThat(repo.birthdatesAt(addrs)).containsExactlyElementsOf(memory.birthdatesAt(addrs));
+
+        AlertService columnar = new AlertService(repo);
+        AlertService heap = new AlertService(memory);
+        ObjectMapper json = new ObjectMapper();
+        for (int station = 1; station <= 4; station++) {
+            assertThat(json.writeValueAsString(columnar.firestation(station)))
+                    .isEqualTo(json.writeValueAsString(heap.firestation(station)));
+            assertThat(json.writeValueAsString(columnar.phoneAlert(station)))
+                    .isEqualTo(json.writeValueAsString(heap.phoneAlert(station)));
+        }
+        assertThat(json.writeValueAsString(columnar.communityEmail("Culver")))
+                .isEqualTo(json.writeValueAsString(heap.communityEmail("Culver")));
+        assertThat(json.writeValueAsString(columnar.fire("1509 Culver St")))
+                .isEqualTo(json.writeValueAsString(heap.fire("1509 Culver St")));
+    }
+
+    @Test
+    void columnar_mode_is_read_only() {
+        Person p = repo.getPersons().get(0);
+
+        assertThatThrownBy(() -> repo.addPerson(new Person("A", "B", "C", "D", "E", "F", "G")))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> p.setCity("x")).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
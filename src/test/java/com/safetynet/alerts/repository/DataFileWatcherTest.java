@@ -0,0 +1,55 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataFileWatcherTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void external_replacement_is_swapped_in() throws Exception {
+        File data = new File(dir, "data.json");
+        DataRepository repo = new DataRepository(new FileSystemResource(data), new ClassPathResource("test-seed.json"));
+        repo.load();
+        assertThat(repo.getPersons()).hasSize(2);
+
+        DataFileWatcher watcher = new DataFileWatcher(repo);
+        ReflectionTestUtils.setField(watcher, "debounce", Duration.ofMillis(50));
+        watcher.start();
+        try {
+            assertThat(watcher.isRunning()).isTrue();
+
+            // Export job style: write a temp file, then rename over the data file.
+            ObjectMapper mapper = new ObjectMapper();
+            ObjectNode root = (ObjectNode) mapper.readTree(data);
+            root.withArray("persons").remove(0);
+            File tmp = new File(dir, "export.tmp");
+            mapper.writeValue(tmp, root);
+            tmp.setLastModified(data.lastModified() + 2000);
+            Files.move(tmp.toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            while (repo.getPersons().size() != 1 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(repo.getPersons()).hasSize(1);
+        } finally {
+            watcher.stop();
+        }
+        assertThat(watcher.isRunning()).isFalse();
+    }
+}
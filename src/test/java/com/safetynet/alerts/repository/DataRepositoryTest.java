@@ -193,6 +193,102 @@ class DataRepositoryTest {
      assertThat(repo.findPersonsByStation(999)).isEmpty();
  }
 
+ @Test
+ void indexes_follow_mutations() throws Exception {
+     assertThat(repo.isLoaded()).isTrue();
+
+     repo.addPerson(new Person("Idx", "Test", " 1509 CULVER st ", "City", "00000", "000-000", "idx@example.com"));
+     assertThat(repo.findPersonsByAddress("1509 Culver St"))
+             .anyMatch(p -> p.getFirstName().equals("Idx"));
+
+     repo.updateFirestation(new Firestation("1509 Culver St", 7));
+     assertThat(repo.findStationByAddress("1509 culver st")).get()
+             .extracting(Firestation::getStation).isEqualTo(7);
+     assertThat(repo.findPersonsByStation(7)).anyMatch(p -> p.getFirstName().equals("Idx"));
+
+     repo.deleteMedicalRecord("John", "Boyd");
+     assertThat(repo.findMedical("John", "Boyd")).isEmpty();
+ }
+
+ @Test
+ void updates_and_deletes_keep_the_indexes_in_list_order() throws Exception {
+     repo.addPerson(new Person("Moved", "Later", "29 15th St", "City", "00000", "1", "m@example.com"));
+     repo.addPerson(new Person("Last", "One", "1509 Culver St", "City", "00000", "2", "l@example.com"));
+
+     // an update in place keeps its position; a move takes its list position at the new address
+     repo.updatePerson(new Person("John", "Boyd", "1509 Culver St", "Culver", "97451", "000", "john@example.com"));
+     repo.updatePerson(new Person("Moved", "Later", "1509 Culver St", "City", "00000", "1", "m@example.com"));
+     assertThat(repo.findPersonsByAddress("1509 Culver St")).extracting(Person::getFirstName)
+             .containsExactly("John", "Jacob", "Moved", "Last");
+     assertThat(repo.findPersonsByAddress("1509 Culver St").get(0).getPhone()).isEqualTo("000");
+     assertThat(repo.findPersonsByAddress("29 15th St")).isEmpty();
+
+     repo.deletePerson("jacob", "BOYD");
+     assertThat(repo.findPersonsByAddress("1509 Culver St")).extracting(Person::getFirstName)
+             .containsExactly("John", "Moved", "Last");
+     assertThat(repo.findPerson("Jacob", "Boyd")).isEmpty();
+
+     // a mapping moved to another station comes back in mapping order there
+     repo.updateFirestation(new Firestation("1509 Culver St", 2));
+     assertThat(repo.findPersonsByStation(3)).isEmpty();
+     repo.addPerson(new Person("Next", "Door", "29 15th St", "City", "00000", "3", "n@example.com"));
+     assertThat(repo.findPersonsByStation(2)).extracting(Person::getFirstName)
+             .containsExactly("John", "Moved", "Last", "Next");
+
+     repo.deleteFirestation("29 15th St");
+     assertThat(repo.findStationByAddress("29 15th St")).isEmpty();
+     assertThat(repo.findPersonsByStation(2)).extracting(Person::getFirstName)
+             .containsExactly("John", "Moved", "Last");
+ }
+
+ @Test
+ void reload_swaps_in_external_version_and_ignores_own_writes() throws Exception {
+     repo.addPerson(new Person("Own", "Write", "Addr", "City", "Zip", "1", "o@w.com"));
+     assertThat(repo.reloadIfChanged()).isFalse();
+
+     var mapper = new ObjectMapper();
+     var root = (com.fasterxml.jackson.databind.node.ObjectNode) mapper.readTree(dataFile);
+     root.withArray("persons").removeAll();
+     mapper.writeValue(dataFile, root);
+     dataFile.setLastModified(dataFile.lastModified() + 2000);
+     List<Person> before = repo.getPersons();
+
+     assertThat(repo.reloadIfChanged()).isTrue();
+     assertThat(repo.getPersons()).isEmpty();
+     assertThat(before).isNotEmpty();
+     assertThat(repo.findPersonsByAddress("1509 Culver St")).isEmpty();
+     assertThat(repo.reloadIfChanged()).isFalse();
+ }
+
+ @Test
+ void reload_applies_only_the_delta_and_keeps_unchanged_instances() throws Exception {
+     Person john = repo.findPersonsByAddress("1509 Culver St").stream()
+             .filter(p -> p.getFirstName().equals("John")).findFirst().orElseThrow();
+     var station = repo.findStationByAddress("29 15th St").orElseThrow();
+
+     var mapper = new ObjectMapper();
+     var root = (com.fasterxml.jackson.databind.node.ObjectNode) mapper.readTree(dataFile);
+     var persons = root.withArray("persons");
+     ((com.fasterxml.jackson.databind.node.ObjectNode) persons.get(1)).put("phone", "000-000-0000");
+     persons.addObject().put("firstName", "New").put("lastName", "Kid")
+             .put("address", "29 15th St").put("city", "Culver").put("zip", "97451")
+             .put("phone", "1").put("email", "k@x.com");
+     root.withArray("medicalrecords").removeAll();
+     mapper.writeValue(dataFile, root);
+     dataFile.setLastModified(dataFile.lastModified() + 2000);
+
+     assertThat(repo.reloadIfChanged()).isTrue();
+
+     assertThat(repo.findPersonsByAddress("1509 Culver St"))
+             .anySatisfy(p -> assertThat(p).isSameAs(john))
+             .anySatisfy(p -> assertThat(p.getPhone()).isEqualTo("000-000-0000"));
+     assertThat(repo.findPersonsByAddress("29 15th st")).extracting(Person::getLastName).containsExactly("Kid");
+     assertThat(repo.findPersonsByStation(2)).extracting(Person::getLastName).containsExactly("Kid");
+     assertThat(repo.findStationByAddress("29 15th St")).get().isSameAs(station);
+     assertThat(repo.findMedical("John", "Boyd")).isEmpty();
+     assertThat(repo.getPersons()).hasSize(3);
+ }
+
  @Test
  void load_again_is_idempotent() throws Exception {
      // calling load second time should not crash and should keep data consistent
@@ -0,0 +1,89 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.service.AlertService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedDatasetTest {
+
+    @TempDir
+    File dir;
+
+    private DataRepository repo;
+    private File data;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        data = new File(dir, "data.json");
+        Files.copy(new ClassPathResource("data.json").getInputStream(), data.toPath());
+        repo = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+        ReflectionTestUtils.setField(repo, "storageMode", "mapped");
+        repo.load();
+    }
+
+    @Test
+    void mapped_mode_serves_the_same_data_as_memory_mode() throws Exception {
+        DataRepository memory = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+        memory.load();
+
+        assertThat(new File(dir, "data.json.map")).exists();
+        assertThat(repo.getPersons()).hasSize(memory.getPersons().size())
+                .containsExactlyElementsOf(memory.getPersons());
+        assertThat(repo.getMedicalrecords()).containsExactlyElementsOf(memory.getMedicalrecords());
+        assertThat(repo.getFirestations()).containsExactlyElementsOf(memory.getFirestations());
+
+        assertThat(repo.findPersonsByAddress(" 1509 CULVER st")).containsExactlyElementsOf(
+                memory.findPersonsByAddress("1509 Culver St"));
+        assertThat(repo.findPersonsByStation(3)).containsExactlyInAnyOrderElementsOf(memory.findPersonsByStation(3));
+        assertThat(repo.findPersonsByAddress("nowhere")).isEmpty();
+
+        MedicalRecord john = repo.findMedical("john", "BOYD").orElseThrow();
+        assertThat(john).isEqualTo(memory.findMedical("John", "Boyd").orElseThrow());
+        assertThat(repo.findMedical("No", "Body")).isEmpty();
+
+        AlertService mapped = new AlertService(repo);
+        AlertService heap = new AlertService(memory);
+        ObjectMapper json = new ObjectMapper();
+        assertThat(json.writeValueAsString(mapped.fire("1509 Culver St")))
+                .isEqualTo(json.writeValueAsString(heap.fire("1509 Culver St")));
+        assertThat(json.writeValueAsString(mapped.firestation(3)))
+                .isEqualTo(json.writeValueAsString(heap.firestation(3)));
+    }
+
+    @Test
+    void mapped_mode_is_read_only() {
+        Person p = repo.getPersons().get(0);
+
+        assertThatThrownBy(() -> repo.addPerson(new Person("A", "B", "C", "D", "E", "F", "G")))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> repo.deleteMedicalRecord("John", "Boyd"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> p.setPhone("x")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> repo.getPersons().remove(0)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rebuilds_the_mapping_when_the_json_is_newer() throws Exception {
+        ObjectMapper json = new ObjectMapper();
+        var root = (com.fasterxml.jackson.databind.node.ObjectNode) json.readTree(data);
+        root.withArray("persons").remove(0);
+        json.writeValue(data, root);
+        data.setLastModified(System.currentTimeMillis() + 5000);
+
+        assertThat(repo.reloadIfChanged()).isTrue();
+        assertThat(repo.getPersons()).hasSize(root.withArray("persons").size());
+    }
+}
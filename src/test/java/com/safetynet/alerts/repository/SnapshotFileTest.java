@@ -0,0 +1,124 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotFileTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    File dir;
+
+    private Map<String, Object> sections() {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("persons", List.of(new Person("John", "Boyd", "1509 Culver St", "Culver", "97451", "841-874-6512", "jaboyd@email.com")));
+        root.put("firestations", List.of());
+        root.put("medicalrecords", List.of());
+        return root;
+    }
+
+    @Test
+    void writes_readable_json_with_a_matching_checksum_and_no_temp_file() throws Exception {
+        File data = new File(dir, "data.json");
+        Files.writeString(data.toPath(), "{}");
+
+        SnapshotFile.write(data, mapper, sections(), 0);
+
+        JsonNode root = mapper.readTree(data);
+        assertThat(root.get("persons").get(0).get("firstName").asText()).isEqualTo("John");
+        assertThat(root.get(SnapshotFile.CHECKSUM_FIELD).asText()).startsWith("crc32:");
+        SnapshotFile.verify(data);
+        assertThat(dir.list()).containsExactly("data.json");
+    }
+
+    @Test
+    void rejects_a_corrupted_file() throws Exception {
+        File data = new File(dir, "data.json");
+        SnapshotFile.write(data, mapper, sections(), 0);
+
+        try (RandomAccessFile raf = new RandomAccessFile(data, "rw")) {
+            raf.seek(40);
+            int b = raf.read();
+            raf.seek(40);
+            raf.write(b ^ 0x01);
+        }
+
+        assertThatThrownBy(() -> SnapshotFile.verify(data))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum mismatch");
+    }
+
+    @Test
+    void accepts_a_file_rewritten_by_another_tool() throws Exception {
+        File data = new File(dir, "data.json");
+        SnapshotFile.write(data, mapper, sections(), 0);
+
+        ObjectNode root = (ObjectNode) mapper.readTree(data);
+        root.withArray("persons").removeAll();
+        mapper.writerWithDefaultPrettyPrinter().writeValue(data, root);
+
+        SnapshotFile.verify(data);
+    }
+
+    @Test
+    void compressed_snapshots_read_back_through_open() throws Exception {
+        File plain = new File(dir, "plain.json");
+        File data = new File(dir, "data.json");
+        SnapshotFile.write(plain, mapper, sections(), 0);
+        SnapshotFile.write(data, mapper, sections(), 6);
+
+        assertThat(SnapshotFile.isCompressed(data)).isTrue();
+        assertThat(SnapshotFile.isCompressed(plain)).isFalse();
+        assertThat(data.length()).isLessThan(plain.length());
+        SnapshotFile.verify(data);
+        try (InputStream in = SnapshotFile.open(data); InputStream expected = SnapshotFile.open(plain)) {
+            assertThat(in.readAllBytes()).isEqualTo(expected.readAllBytes());
+        }
+    }
+
+    @Test
+    void damaged_compressed_snapshots_fail_to_read() throws Exception {
+        File data = new File(dir, "data.json");
+        SnapshotFile.write(data, mapper, sections(), 6);
+        try (RandomAccessFile raf = new RandomAccessFile(data, "rw")) {
+            raf.seek(raf.length() - 6);
+            raf.write(raf.read() ^ 0x01);
+        }
+
+        assertThatThrownBy(() -> {
+            try (InputStream in = SnapshotFile.open(data)) {
+                mapper.readTree(in);
+            }
+        }).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void unpublished_temp_files_are_removed_and_leave_the_data_file_alone() throws Exception {
+        File data = new File(dir, "data.json");
+        Files.writeString(data.toPath(), "{}");
+
+        File temp = SnapshotFile.writeTemp(data, mapper, sections(), 0);
+        assertThat(Files.readString(data.toPath())).isEqualTo("{}");
+
+        SnapshotFile.deleteTemps(data);
+        assertThat(temp).doesNotExist();
+        assertThat(data).exists();
+    }
+}
@@ -0,0 +1,460 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The same admin workload against every {@link StorageEngine}: changes are
+ * visible immediately, and durable engines return them after a restart.
+ */
+class StorageEngineConformanceTest {
+
+    @TempDir
+    File dir;
+
+    File data;
+
+    @BeforeEach
+    void copySeed() throws Exception {
+        data = new File(dir, "data.json");
+        Files.copy(new ClassPathResource("data.json").getInputStream(), data.toPath());
+    }
+
+    DataRepository open(String engine) throws Exception {
+        DataRepository repo = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+        repo.setStorageEngine(engine);
+        repo.load();
+        return repo;
+    }
+
+    abstract class Contract {
+
+        DataRepository repo;
+
+        abstract String engine();
+
+        abstract boolean durable();
+
+        @BeforeEach
+        void setUp() throws Exception {
+            repo = open(engine());
+        }
+
+        @AfterEach
+        void tearDown() throws Exception {
+            repo.close();
+        }
+
+        /** Reopens the repository as a restart would. */
+        DataRepository restart() throws Exception {
+            repo.close();
+            repo = open(engine());
+            return repo;
+        }
+
+        @Test
+        void mutations_are_visible_immediately() throws Exception {
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+            repo.addFirestation(new Firestation("1 Analytical Way", 9));
+            repo.addMedicalRecord(new MedicalRecord("Ada", "Lovelace", "12/10/1815", List.of(), List.of()));
+
+            assertThat(repo.findPersonsByStation(9)).extracting(Person::getFirstName).containsExactly("Ada");
+            assertThat(repo.findMedical("ada", "LOVELACE")).isPresent();
+
+            assertThat(repo.updatePerson(new Person("ada", "lovelace", "2 Engine Rd", "Culver", "97451", "841-000-0001", "ada@email.com"))).isTrue();
+            assertThat(repo.findPersonsByAddress("2 Engine Rd")).extracting(Person::getFirstName).containsExactly("Ada");
+            assertThat(repo.deletePerson("No", "Body")).isFalse();
+        }
+
+        @Test
+        void restart_keeps_changes_only_when_durable() throws Exception {
+            int persons = repo.getPersons().size();
+            int stations = repo.getFirestations().size();
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+            repo.updatePerson(new Person("Ada", "Lovelace", "2 Engine Rd", "Culver", "97451", "841-000-0001", "ada@email.com"));
+            repo.deletePerson("John", "Boyd");
+            repo.updateFirestation(new Firestation("1509 Culver St", 7));
+            int removed = repo.deleteFirestationByStation(2);
+            repo.updateMedicalRecord(new MedicalRecord("Jacob", "Boyd", "01/01/2000", List.of("aspirin:10mg"), List.of()));
+            repo.deleteMedicalRecord("Tenley", "Boyd");
+
+            restart();
+
+            if (durable()) {
+                assertThat(repo.getPersons()).hasSize(persons);
+                assertThat(repo.findPersonsByAddress("2 Engine Rd")).extracting(Person::getPhone).containsExactly("841-000-0001");
+                assertThat(repo.findPersonsByAddress("1509 Culver St")).extracting(Person::getFirstName).doesNotContain("John");
+                assertThat(repo.findStationByAddress("1509 Culver St")).map(Firestation::getStation).contains(7);
+                assertThat(repo.getFirestations()).hasSize(stations - removed);
+                assertThat(repo.findMedical("Jacob", "Boyd")).map(MedicalRecord::getBirthdate).contains("01/01/2000");
+                assertThat(repo.findMedical("Tenley", "Boyd")).isEmpty();
+            } else {
+                assertThat(repo.getPersons()).hasSize(persons);
+                assertThat(repo.findPersonsByAddress("2 Engine Rd")).isEmpty();
+                assertThat(repo.findMedical("Tenley", "Boyd")).isPresent();
+            }
+        }
+
+        @Test
+        void concurrent_changes_to_different_entities_are_all_kept() throws Exception {
+            int persons = repo.getPersons().size();
+            int records = repo.getMedicalrecords().size();
+            int stations = repo.getFirestations().size();
+            ExecutorService pool = Executors.newFixedThreadPool(16);
+            try {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < 16; t++) {
+                    int thread = t;
+                    done.add(pool.submit(() -> {
+                        for (int i = 0; i < 10; i++) {
+                            String name = "T" + thread + "n" + i;
+                            switch (thread % 3) {
+                                case 0 -> repo.addPerson(new Person(name, "Load", "9 Batch Ave", "Culver", "97451", "1", "e"));
+                                case 1 -> repo.addMedicalRecord(new MedicalRecord(name, "Load", "01/01/2000", List.of(), List.of()));
+                                default -> repo.addFirestation(new Firestation(name + " Batch Ave", 9));
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+            } finally {
+                pool.shutdownNow();
+            }
+
+            if (durable()) restart();
+
+            assertThat(repo.getPersons()).hasSize(persons + 60);
+            assertThat(repo.findPersonsByAddress("9 Batch Ave")).hasSize(60);
+            assertThat(repo.getMedicalrecords()).hasSize(records + 50);
+            assertThat(repo.getFirestations()).hasSize(stations + 50);
+            assertThat(repo.findMedical("T1n9", "Load")).isPresent();
+            assertThat(repo.findStationByAddress("T2n9 Batch Ave")).map(Firestation::getStation).contains(9);
+        }
+
+        @Test
+        void conditional_changes_apply_only_at_the_version_read() throws Exception {
+            MedicalRecord read = repo.findMedical("John", "Boyd").orElseThrow();
+            Firestation station = repo.findStationByAddress("1509 Culver St").orElseThrow();
+            MedicalRecord first = new MedicalRecord("John", "Boyd", read.getBirthdate(), List.of("first"), List.of());
+            MedicalRecord second = new MedicalRecord("John", "Boyd", read.getBirthdate(), List.of("second"), List.of());
+
+            assertThat(repo.updateMedicalRecord(first, read.getVersion())).isTrue();
+            assertThat(first.getVersion()).isGreaterThan(read.getVersion());
+            assertThatThrownBy(() -> repo.updateMedicalRecord(second, read.getVersion()))
+                    .isInstanceOf(VersionConflictException.class)
+                    .extracting(e -> ((VersionConflictException) e).getCurrentVersion()).isEqualTo(first.getVersion());
+            assertThatThrownBy(() -> repo.deleteFirestation("1509 Culver St", station.getVersion() + 1))
+                    .isInstanceOf(VersionConflictException.class);
+            assertThat(repo.deletePerson("No", "Body", 1)).isFalse();
+
+            if (durable()) restart();
+
+            assertThat(repo.findMedical("John", "Boyd")).map(MedicalRecord::getMedications).contains(List.of("first"));
+            assertThat(repo.findStationByAddress("1509 Culver St")).isPresent();
+        }
+
+        @Test
+        void conditional_changes_apply_to_the_record_whose_version_was_checked() throws Exception {
+            MedicalRecord read = repo.findMedical("John", "Boyd").orElseThrow();
+            Firestation station = repo.findStationByAddress("1509 Culver St").orElseThrow();
+
+            assertThat(repo.updateMedicalRecord(new MedicalRecord(" john ", "BOYD ", read.getBirthdate(),
+                    List.of("padded"), List.of()), read.getVersion())).isTrue();
+            assertThat(repo.updateFirestation(new Firestation(" 1509 culver st ", 7), station.getVersion())).isTrue();
+
+            if (durable()) restart();
+
+            MedicalRecord updated = repo.findMedical("John", "Boyd").orElseThrow();
+            assertThat(updated.getMedications()).containsExactly("padded");
+            assertThat(updated.getFirstName()).isEqualTo("John");
+            assertThat(repo.findStationByAddress("1509 Culver St")).map(Firestation::getAddress).contains("1509 Culver St");
+            assertThat(repo.findStationByAddress("1509 Culver St")).map(Firestation::getStation).contains(7);
+        }
+
+        @Test
+        void concurrent_read_modify_writes_lose_no_update() throws Exception {
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    done.add(pool.submit(() -> {
+                        for (int i = 0; i < 10; i++) {
+                            while (true) {
+                                MedicalRecord m = repo.findMedical("John", "Boyd").orElseThrow();
+                                List<String> meds = new ArrayList<>(m.getMedications());
+                                meds.add("dose");
+                                try {
+                                    repo.updateMedicalRecord(new MedicalRecord("John", "Boyd", m.getBirthdate(),
+                                            meds, m.getAllergies()), m.getVersion());
+                                    break;
+                                } catch (VersionConflictException retry) {
+                                    // someone else won; read again
+                                }
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+            } finally {
+                pool.shutdownNow();
+            }
+
+            assertThat(repo.findMedical("John", "Boyd").orElseThrow().getMedications())
+                    .filteredOn("dose"::equals).hasSize(80);
+        }
+
+        @Test
+        void adds_of_a_taken_key_are_rejected() throws Exception {
+            int persons = repo.getPersons().size();
+            assertThatThrownBy(() -> repo.addPerson(new Person("JOHN", "boyd", "x", "x", "x", "x", "x")))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> repo.addFirestation(new Firestation(" 1509 culver ST ", 9)))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> repo.addMedicalRecord(new MedicalRecord("john", "Boyd", "01/01/2000", List.of(), List.of())))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> repo.addFirestation(new Firestation(null, 9)))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            assertThat(repo.getPersons()).hasSize(persons);
+            assertThat(repo.findStationByAddress("1509 Culver St")).map(Firestation::getStation).contains(3);
+
+            repo.deletePerson("John", "Boyd");
+            repo.addPerson(new Person("John", "Boyd", "2 Engine Rd", "Culver", "97451", "1", "e"));
+            assertThat(repo.findPersonsByAddress("2 Engine Rd")).extracting(Person::getFirstName).containsExactly("John");
+        }
+
+        @Test
+        void concurrent_adds_of_one_key_create_one_record() throws Exception {
+            int records = repo.getMedicalrecords().size();
+            int stations = repo.getFirestations().size();
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Boolean>> done = new ArrayList<>();
+                for (int t = 0; t < 16; t++) {
+                    int thread = t;
+                    done.add(pool.submit(() -> {
+                        try {
+                            if (thread % 2 == 0) {
+                                repo.addMedicalRecord(new MedicalRecord("Race", "Winner", "01/01/2000", List.of(), List.of()));
+                            } else {
+                                repo.addFirestation(new Firestation("3 Finish Line", thread));
+                            }
+                            return true;
+                        } catch (IllegalStateException taken) {
+                            return false;
+                        }
+                    }));
+                }
+                int created = 0;
+                for (Future<Boolean> f : done) created += f.get(30, TimeUnit.SECONDS) ? 1 : 0;
+                assertThat(created).isEqualTo(2);
+            } finally {
+                pool.shutdownNow();
+            }
+
+            if (durable()) restart();
+
+            assertThat(repo.getMedicalrecords()).hasSize(records + 1);
+            assertThat(repo.getFirestations()).hasSize(stations + 1);
+        }
+
+        @Test
+        void save_then_restart_keeps_changes_when_durable() throws Exception {
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+            repo.save();
+
+            restart();
+
+            assertThat(repo.findPersonsByAddress("1 Analytical Way")).hasSize(durable() ? 1 : 0);
+        }
+    }
+
+    @Nested
+    class Json extends Contract {
+        @Override String engine() { return "json"; }
+        @Override boolean durable() { return true; }
+
+        @Test
+        void compressed_data_file_is_read_back_transparently() throws Exception {
+            repo.setCompressionLevel(6);
+            long plain = data.length();
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+
+            assertThat(SnapshotFile.isCompressed(data)).isTrue();
+            assertThat(data.length()).isLessThan(plain);
+
+            restart();
+
+            assertThat(repo.findPersonsByAddress("1 Analytical Way")).extracting(Person::getFirstName).containsExactly("Ada");
+        }
+
+        @Test
+        void changes_publish_while_the_data_file_is_rewritten() throws Exception {
+            // stands in for a slow rewrite: holding the rewrite lock stalls every rewrite, not the engine lock
+            ReentrantLock rewriting = (ReentrantLock) ReflectionTestUtils.getField(repo, "rewriteLock");
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            rewriting.lock();
+            try {
+                Future<?> person = pool.submit(() -> {
+                    repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "1", "e"));
+                    return null;
+                });
+                Future<?> station = pool.submit(() -> {
+                    repo.addFirestation(new Firestation("1 Analytical Way", 9));
+                    return null;
+                });
+                while (repo.findPersonsByAddress("1 Analytical Way").isEmpty()
+                        || repo.findStationByAddress("1 Analytical Way").isEmpty()) {
+                    Thread.onSpinWait();
+                }
+                assertThat(person).isNotDone();
+                assertThat(station).isNotDone();
+                rewriting.unlock();
+                person.get(30, TimeUnit.SECONDS);
+                station.get(30, TimeUnit.SECONDS);
+            } finally {
+                if (rewriting.isHeldByCurrentThread()) rewriting.unlock();
+                pool.shutdownNow();
+            }
+
+            restart();
+
+            assertThat(repo.findPersonsByAddress("1 Analytical Way")).hasSize(1);
+            assertThat(repo.findStationByAddress("1 Analytical Way")).map(Firestation::getStation).contains(9);
+        }
+    }
+
+    @Nested
+    class Journal extends Contract {
+        @Override String engine() { return "journal"; }
+        @Override boolean durable() { return true; }
+
+        @Test
+        void appends_instead_of_rewriting_the_data_file() throws Exception {
+            String before = Files.readString(data.toPath());
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+
+            assertThat(Files.readString(data.toPath())).isEqualTo(before);
+            assertThat(Files.readAllLines(new File(dir, "data.json.journal").toPath())).hasSize(2);
+        }
+
+        @Test
+        void drops_a_torn_last_entry() throws Exception {
+            repo.deletePerson("John", "Boyd");
+            repo.close();
+            Files.writeString(new File(dir, "data.json.journal").toPath(), "{\"op\":\"addPer", StandardOpenOption.APPEND);
+
+            restart();
+
+            assertThat(repo.findMedical("John", "Boyd")).isPresent();
+            assertThat(repo.findPersonsByAddress("1509 Culver St")).extracting(Person::getFirstName).doesNotContain("John");
+        }
+
+        @Test
+        void discards_the_journal_when_the_data_file_is_replaced() throws Exception {
+            repo.deletePerson("John", "Boyd");
+            repo.close();
+            Files.copy(new ClassPathResource("data.json").getInputStream(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            data.setLastModified(data.lastModified() + 5000);
+
+            restart();
+
+            assertThat(repo.findPersonsByAddress("1509 Culver St")).extracting(Person::getFirstName).contains("John");
+        }
+
+        @Test
+        void compacts_in_the_background_without_losing_later_changes() throws Exception {
+            repo.close();
+            repo = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+            ReflectionTestUtils.setField(repo, "journalCompactAfter", 3);
+            repo.setStorageEngine("journal");
+            repo.load();
+            for (int i = 0; i < 20; i++) {
+                repo.addPerson(new Person("P" + i, "Load", "9 Batch Ave", "Culver", "97451", "841-000-0000", "p@email.com"));
+            }
+
+            restart();
+
+            assertThat(repo.findPersonsByAddress("9 Batch Ave")).hasSize(20);
+            assertThat(Files.readString(data.toPath())).contains("\"P0\"");
+            SnapshotFile.verify(data);
+            assertThat(new File(dir, "data.json.journal.next")).doesNotExist();
+        }
+    }
+
+    @Nested
+    class Memory extends Contract {
+        @Override String engine() { return "memory"; }
+        @Override boolean durable() { return false; }
+
+        @Test
+        void never_writes_the_data_file() throws Exception {
+            String before = Files.readString(data.toPath());
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+            repo.save();
+
+            assertThat(Files.readString(data.toPath())).isEqualTo(before);
+        }
+    }
+
+    @Nested
+    class BTree extends Contract {
+        @Override String engine() { return "btree"; }
+        @Override boolean durable() { return true; }
+
+        @Test
+        void writes_pages_instead_of_the_data_file() throws Exception {
+            String before = Files.readString(data.toPath());
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+
+            assertThat(Files.readString(data.toPath())).isEqualTo(before);
+            assertThat(new File(dir, "data.json.btree")).exists();
+        }
+
+        @Test
+        void writes_after_a_reload_survive_a_restart() throws Exception {
+            ObjectMapper mapper = new ObjectMapper();
+            ObjectNode root = (ObjectNode) mapper.readTree(data);
+            root.withArray("persons").remove(0);
+            mapper.writeValue(data, root);
+            data.setLastModified(data.lastModified() + 2000);
+            int persons = root.withArray("persons").size();
+
+            assertThat(repo.reloadIfChanged()).isTrue();
+            repo.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+            restart();
+
+            assertThat(repo.getPersons()).hasSize(persons + 1);
+            assertThat(repo.findPersonsByAddress("1 Analytical Way")).extracting(Person::getFirstName).containsExactly("Ada");
+            assertThat(new File(dir, "data.json.btree.next")).doesNotExist();
+        }
+    }
+}
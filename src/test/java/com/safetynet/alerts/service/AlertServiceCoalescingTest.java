@@ -0,0 +1,116 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.metrics.AlertMetrics;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import com.safetynet.alerts.repository.Household;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AlertServiceCoalescingTest {
+
+    final DataRepository repo = mock(DataRepository.class);
+    final AlertMetrics metrics = AlertMetrics.standalone();
+    final AlertService service = new AlertService(repo, metrics);
+
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger scans = new AtomicInteger();
+
+    /** Address lookups block until released, so concurrent calls overlap. */
+    void blockingLookups() {
+        Person john = new Person("John", "Boyd", "1509 Culver St", "Culver", "97451", "841-874-6512", "j@b.com");
+        when(repo.findPersonsByAddress(anyString())).thenAnswer(inv -> {
+            scans.incrementAndGet();
+            release.await(10, TimeUnit.SECONDS);
+            return List.of(john);
+        });
+        when(repo.findHousehold(anyString())).thenAnswer(inv -> {
+            scans.incrementAndGet();
+            release.await(10, TimeUnit.SECONDS);
+            return Optional.of(new Household(-1, List.of(new Household.Resident(john, LocalDate.of(2015, 3, 6),
+                    Household.AgeGroup.CHILD, 11, "John Boyd", List.of(), List.of(), List.of())), 1, 0));
+        });
+        when(repo.findStationByAddress(anyString())).thenReturn(Optional.empty());
+        when(repo.findMedical(anyString(), anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void identical_concurrent_fire_queries_compute_once() throws Exception {
+        blockingLookups();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> calls = List.of(
+                    pool.submit(() -> service.fire("1509 Culver St")),
+                    pool.submit(() -> service.fire(" 1509 CULVER st ")),
+                    pool.submit(() -> service.fire("1509 culver st")));
+            while (scans.get() + coalesced("fire") < 3) Thread.onSpinWait();
+            release.countDown();
+
+            Object first = calls.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> f : calls) assertThat(f.get(10, TimeUnit.SECONDS)).isSameAs(first);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(scans).hasValue(1);
+        assertThat(coalesced("fire")).isEqualTo(2);
+    }
+
+    @Test
+    void a_newer_dataset_generation_is_not_served_an_older_computation() throws Exception {
+        blockingLookups();
+        when(repo.generation()).thenReturn(1L, 2L);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> before = pool.submit(() -> service.childAlert("1509 Culver St"));
+            while (scans.get() < 1) Thread.onSpinWait();
+            Future<Object> after = pool.submit(() -> service.childAlert("1509 Culver St"));
+            while (scans.get() < 2) Thread.onSpinWait();
+            release.countDown();
+            before.get(10, TimeUnit.SECONDS);
+            after.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(coalesced("childAlert")).isZero();
+    }
+
+    @Test
+    void flood_queries_coalesce_regardless_of_station_order() throws Exception {
+        when(repo.getFirestations()).thenAnswer(inv -> {
+            scans.incrementAndGet();
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> a = pool.submit(() -> service.floodStations(List.of(1, 2)));
+            while (scans.get() < 1) Thread.onSpinWait();
+            Future<Object> b = pool.submit(() -> service.floodStations(List.of(2, 1, 2)));
+            while (coalesced("floodStations") < 1) Thread.onSpinWait();
+            release.countDown();
+            assertThat(b.get(10, TimeUnit.SECONDS)).isSameAs(a.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(scans).hasValue(1);
+    }
+
+    private double coalesced(String endpoint) {
+        var counter = metrics.registry().find(AlertMetrics.COALESCED).tag("endpoint", endpoint).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
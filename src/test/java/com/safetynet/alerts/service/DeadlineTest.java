@@ -0,0 +1,91 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.repository.DataRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeadlineTest {
+
+    @Test
+    void none_never_expires() {
+        Deadline.NONE.check();
+        assertThat(Deadline.NONE.expired()).isFalse();
+        assertThat(Deadline.NONE.guard(List.of(1))).isEqualTo(List.of(1));
+    }
+
+    @Test
+    void expires_after_its_budget() {
+        Deadline d = Deadline.after(Duration.ofHours(1));
+        d.check();
+        assertThat(d.remainingNanos()).isPositive();
+        assertThatThrownBy(Deadline.after(Duration.ZERO)::check).isInstanceOf(DeadlineExceededException.class)
+                .hasMessage("Query exceeded its deadline of 0 ms");
+    }
+
+    @Test
+    void guarded_lists_stop_being_read_once_expired() throws Exception {
+        Deadline d = Deadline.after(Duration.ofMillis(500));
+        List<Integer> guarded = d.guard(IntStream.range(0, 1000).boxed().toList());
+        assertThat(guarded).hasSize(1000).startsWith(0, 1, 2);
+        while (!d.expired()) Thread.sleep(10);
+        assertThatThrownBy(() -> new ArrayList<>(guarded).forEach(i -> {})).isInstanceOf(DeadlineExceededException.class);
+    }
+
+    @Test
+    void heavy_queries_give_up_once_the_deadline_passes() {
+        DataRepository repo = mock(DataRepository.class);
+        when(repo.getFirestations()).thenReturn(List.of(new Firestation("1509 Culver St", 3)));
+        AlertService service = new AlertService(repo);
+        Deadline past = Deadline.after(Duration.ZERO);
+
+        assertThatThrownBy(() -> service.floodStations(List.of(3), past)).isInstanceOf(DeadlineExceededException.class);
+        assertThatThrownBy(() -> service.firestation(3, past)).isInstanceOf(DeadlineExceededException.class);
+        assertThat(service.floodStations(List.of(3), Deadline.after(Duration.ofHours(1)))).isInstanceOf(Map.class);
+    }
+
+    @Test
+    void a_caller_with_time_left_recomputes_when_the_shared_computation_ran_out_of_its_starters_deadline()
+            throws Exception {
+        DataRepository repo = mock(DataRepository.class);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger scans = new AtomicInteger();
+        when(repo.getFirestations()).thenAnswer(inv -> {
+            if (scans.incrementAndGet() == 1) release.await(10, TimeUnit.SECONDS);
+            return List.of(new Firestation("1509 Culver St", 3));
+        });
+        AlertService service = new AlertService(repo);
+        Deadline starter = Deadline.after(Duration.ofMillis(500));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = pool.submit(() -> service.floodStations(List.of(3), starter));
+            while (scans.get() < 1) Thread.onSpinWait();
+            Future<Object> second = pool.submit(() -> service.floodStations(List.of(3)));
+            Thread.sleep(50);
+            while (!starter.expired()) Thread.sleep(10);
+            release.countDown();
+
+            assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(DeadlineExceededException.class);
+            assertThat(second.get(10, TimeUnit.SECONDS)).isInstanceOf(Map.class);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(scans).hasValue(2);
+    }
+}
@@ -0,0 +1,102 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersonServiceTest {
+
+    @TempDir
+    File dir;
+
+    DataRepository repo;
+    PersonService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File data = new File(dir, "data.json");
+        Files.copy(new ClassPathResource("data.json").getInputStream(), data.toPath());
+        repo = new DataRepository(new FileSystemResource(data), new ClassPathResource("data.json"));
+        repo.load();
+        service = new PersonService(repo);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        repo.close();
+    }
+
+    @Test
+    void sees_the_loaded_dataset() {
+        assertThat(service.getPerson("john", "BOYD")).map(Person::getAddress).contains("1509 Culver St");
+        assertThat(service.getAllPersons()).hasSize(repo.getPersons().size());
+    }
+
+    @Test
+    void writes_reach_the_repository_and_survive_a_reload() throws Exception {
+        service.addPerson(new Person("Ada", "Lovelace", "1 Analytical Way", "Culver", "97451", "841-000-0000", "ada@email.com"));
+        assertThat(repo.findPersonsByAddress("1 Analytical Way")).extracting(Person::getFirstName).containsExactly("Ada");
+
+        Person updated = service.updatePerson("ADA", "lovelace", new Person(null, null, "2 Engine Rd", "Culver", "97451", "841-000-0001", "ada@email.com"));
+        assertThat(updated.getFirstName()).isEqualTo("Ada");
+        assertThat(repo.findPersonsByAddress("1 Analytical Way")).isEmpty();
+
+        repo.load();
+        assertThat(service.getPerson("Ada", "Lovelace")).map(Person::getAddress).contains("2 Engine Rd");
+        assertThat(service.deletePerson("Ada", "Lovelace")).isTrue();
+        assertThat(repo.findPersonsByAddress("2 Engine Rd")).isEmpty();
+    }
+
+    @Test
+    void duplicates_and_missing_persons_are_rejected() throws Exception {
+        assertThatThrownBy(() -> service.addPerson(new Person("John", "Boyd", "x", "x", "x", "x", "x")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.updatePerson("No", "Body", new Person()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Person not found");
+    }
+
+    @Test
+    void concurrent_adds_of_one_name_create_it_once() throws Exception {
+        int before = repo.getPersons().size();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> done = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                Callable<Boolean> add = () -> {
+                    try {
+                        service.addPerson(new Person("Race", "Winner", "3 Finish Line", "Culver", "97451", "1", "e"));
+                        return true;
+                    } catch (IllegalStateException duplicate) {
+                        return false;
+                    }
+                };
+                done.add(pool.submit(add));
+            }
+            int created = 0;
+            for (Future<Boolean> f : done) created += f.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            assertThat(created).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(repo.getPersons()).hasSize(before + 1);
+    }
+}
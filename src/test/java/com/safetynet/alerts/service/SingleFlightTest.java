@@ -0,0 +1,98 @@
+package com.safetynet.alerts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    final SingleFlight<String, Object> flight = new SingleFlight<>();
+
+    @Test
+    void callers_of_a_running_key_share_its_result() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computed = new AtomicInteger();
+        AtomicInteger shared = new AtomicInteger();
+        Object result = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<Object> leader = pool.submit(() -> flight.run("k", () -> {
+                computed.incrementAndGet();
+                started.countDown();
+                await(release);
+                return result;
+            }, shared::incrementAndGet));
+            started.await(10, TimeUnit.SECONDS);
+
+            List<Future<Object>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(pool.submit(() -> flight.run("k", () -> {
+                    computed.incrementAndGet();
+                    return new Object();
+                }, shared::incrementAndGet)));
+            }
+            while (shared.get() < 7) Thread.onSpinWait();
+            release.countDown();
+
+            assertThat(leader.get(10, TimeUnit.SECONDS)).isSameAs(result);
+            for (Future<Object> f : followers) assertThat(f.get(10, TimeUnit.SECONDS)).isSameAs(result);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(computed).hasValue(1);
+        assertThat(flight.size()).isZero();
+    }
+
+    @Test
+    void finished_computations_are_not_reused() {
+        AtomicInteger computed = new AtomicInteger();
+        flight.run("k", computed::incrementAndGet, () -> {});
+        flight.run("k", computed::incrementAndGet, () -> {});
+        flight.run("other", computed::incrementAndGet, () -> {});
+        assertThat(computed).hasValue(3);
+    }
+
+    @Test
+    void a_failure_reaches_every_waiting_caller_and_is_not_kept() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger shared = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = pool.submit(() -> flight.run("k", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("boom");
+            }, shared::incrementAndGet));
+            started.await(10, TimeUnit.SECONDS);
+            Future<Object> follower = pool.submit(() -> flight.run("k", Object::new, shared::incrementAndGet));
+            while (shared.get() < 1) Thread.onSpinWait();
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS)).hasRootCauseMessage("boom");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(flight.run("k", () -> "fresh", () -> {})).isEqualTo("fresh");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
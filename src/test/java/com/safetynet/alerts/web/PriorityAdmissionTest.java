@@ -0,0 +1,123 @@
+package com.safetynet.alerts.web;
+
+import com.safetynet.alerts.metrics.AlertMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.safetynet.alerts.web.RequestClass.ADMIN;
+import static com.safetynet.alerts.web.RequestClass.BULK;
+import static com.safetynet.alerts.web.RequestClass.LIFE_SAFETY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriorityAdmissionTest {
+
+    final AlertMetrics metrics = AlertMetrics.standalone();
+    final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    PriorityAdmission admission(int capacity, Map<RequestClass, Integer> caps, int queue, Duration maxWait) {
+        return new PriorityAdmission(capacity, caps, queue, maxWait, metrics);
+    }
+
+    /** Starts an acquire on another thread and returns once it is queued. */
+    Future<PriorityAdmission.Permit> queueUp(PriorityAdmission a, RequestClass cls) {
+        int before = a.queued(cls);
+        Future<PriorityAdmission.Permit> f = pool.submit(() -> a.acquire(cls));
+        while (a.queued(cls) == before && !f.isDone()) Thread.onSpinWait();
+        return f;
+    }
+
+    @Test
+    void freed_slots_go_to_the_highest_class_first() throws Exception {
+        PriorityAdmission a = admission(1, Map.of(), 10, Duration.ofSeconds(10));
+        PriorityAdmission.Permit held = a.acquire(BULK);
+        List<RequestClass> order = new CopyOnWriteArrayList<>();
+        List<Future<?>> done = new java.util.ArrayList<>();
+        for (RequestClass cls : List.of(ADMIN, BULK, LIFE_SAFETY)) {
+            Future<PriorityAdmission.Permit> f = queueUp(a, cls);
+            done.add(pool.submit(() -> {
+                PriorityAdmission.Permit p = f.get(10, TimeUnit.SECONDS);
+                order.add(cls);
+                p.close();
+                return null;
+            }));
+        }
+        held.close();
+        for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+
+        assertThat(order).containsExactly(LIFE_SAFETY, BULK, ADMIN);
+    }
+
+    @Test
+    void class_caps_keep_slots_for_life_safety() throws Exception {
+        PriorityAdmission a = admission(2, Map.of(BULK, 1), 10, Duration.ofSeconds(10));
+        PriorityAdmission.Permit bulk = a.acquire(BULK);
+        Future<PriorityAdmission.Permit> second = queueUp(a, BULK);
+
+        PriorityAdmission.Permit life = a.acquire(LIFE_SAFETY);
+        assertThat(life).isNotNull();
+        assertThat(a.running(LIFE_SAFETY)).isEqualTo(1);
+        assertThat(second).isNotDone();
+
+        bulk.close();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(a.running(BULK)).isEqualTo(1);
+    }
+
+    @Test
+    void lower_classes_are_shed_first_when_the_queue_fills() throws Exception {
+        PriorityAdmission a = admission(1, Map.of(), 4, Duration.ofSeconds(10));
+        PriorityAdmission.Permit held = a.acquire(LIFE_SAFETY);
+
+        Future<PriorityAdmission.Permit> admin1 = queueUp(a, ADMIN);
+        Future<PriorityAdmission.Permit> admin2 = queueUp(a, ADMIN);
+        assertThat(a.acquire(ADMIN)).as("admin may fill half the queue").isNull();
+
+        queueUp(a, BULK);
+        queueUp(a, BULK);
+        assertThat(admin2.get(10, TimeUnit.SECONDS)).as("newest admin evicted by bulk").isNull();
+
+        queueUp(a, LIFE_SAFETY);
+        queueUp(a, LIFE_SAFETY);
+        assertThat(admin1.get(10, TimeUnit.SECONDS)).as("last admin evicted by life-safety").isNull();
+        assertThat(a.queued(ADMIN)).isZero();
+        assertThat(a.queued(BULK)).isEqualTo(2);
+        assertThat(a.queued(LIFE_SAFETY)).isEqualTo(2);
+
+        assertThat(rejected("admin", "queue-full")).isEqualTo(1);
+        assertThat(rejected("admin", "evicted")).isEqualTo(2);
+        held.close();
+    }
+
+    @Test
+    void waiters_are_shed_after_max_wait() throws Exception {
+        PriorityAdmission a = admission(1, Map.of(), 10, Duration.ofMillis(50));
+        PriorityAdmission.Permit held = a.acquire(ADMIN);
+
+        assertThat(a.acquire(LIFE_SAFETY)).isNull();
+        assertThat(a.queued(LIFE_SAFETY)).isZero();
+        assertThat(rejected("life-safety", "timeout")).isEqualTo(1);
+
+        held.close();
+        assertThat(a.acquire(LIFE_SAFETY)).isNotNull();
+    }
+
+    private double rejected(String cls, String reason) {
+        var counter = metrics.registry().find(AlertMetrics.ADMISSION_REJECTED)
+                .tag("class", cls).tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,39 @@
+package com.safetynet.alerts.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestClassTest {
+
+    static RequestClass classify(String method, String path, String... params) {
+        MockHttpServletRequest req = new MockHttpServletRequest(method, path);
+        for (int i = 0; i < params.length; i += 2) req.addParameter(params[i], params[i + 1]);
+        return RequestClass.of(req);
+    }
+
+    @Test
+    void life_safety_lookups() {
+        assertThat(classify("GET", "/fire", "address", "1509 Culver St")).isEqualTo(RequestClass.LIFE_SAFETY);
+        assertThat(classify("GET", "/childAlert", "address", "1509 Culver St")).isEqualTo(RequestClass.LIFE_SAFETY);
+        assertThat(classify("GET", "/phoneAlert", "firestation", "1")).isEqualTo(RequestClass.LIFE_SAFETY);
+        assertThat(classify("GET", "/firestation", "stationNumber", "1")).isEqualTo(RequestClass.LIFE_SAFETY);
+    }
+
+    @Test
+    void exports_and_other_reads_are_bulk() {
+        assertThat(classify("GET", "/flood/stations", "stations", "1,2")).isEqualTo(RequestClass.BULK);
+        assertThat(classify("GET", "/communityEmail", "city", "Culver")).isEqualTo(RequestClass.BULK);
+        assertThat(classify("GET", "/person/all")).isEqualTo(RequestClass.BULK);
+        assertThat(classify("GET", "/firestation", "address", "1509 Culver St")).isEqualTo(RequestClass.BULK);
+    }
+
+    @Test
+    void mutations_are_admin_and_probes_are_not_scheduled() {
+        assertThat(classify("POST", "/fire")).isEqualTo(RequestClass.ADMIN);
+        assertThat(classify("DELETE", "/firestation", "station", "3")).isEqualTo(RequestClass.ADMIN);
+        assertThat(classify("PUT", "/person", "firstName", "John", "lastName", "Boyd")).isEqualTo(RequestClass.ADMIN);
+        assertThat(classify("GET", "/actuator/health/readiness")).isNull();
+    }
+}